@@ -0,0 +1,70 @@
+package bproblem;
+
+abstract class Animation {
+    protected ShapeWrapper wrapper;
+    protected long time;
+    protected final boolean cycle;
+
+    public Animation(ShapeWrapper wrapper, long time, boolean cycle) {
+        this.wrapper = wrapper;
+        this.time = time;
+        this.cycle = cycle;
+    }
+
+    /**
+     * Writes the state of the animation at {@code curTime} into the wrapper.
+     *
+     * @param curTime milliseconds since the scene start
+     */
+    abstract void apply(long curTime);
+
+    /**
+     * Adds every state of the animation within the window of {@code envelope} to it.
+     */
+    abstract void envelope(MotionEnvelope envelope);
+
+    /**
+     * @return {@link FlatScene#MOVE}, {@link FlatScene#ROTATE} or {@link FlatScene#SCALE}
+     */
+    abstract byte kind();
+
+    void timing(AnimationTiming timing) {
+        timing.animation(kind(), time, cycle);
+    }
+
+    /**
+     * @return milliseconds since the start of the current pass at {@code curTime} or -1 if the animation is finished
+     */
+    protected long passTime(long curTime) {
+        return passTime(time, cycle, curTime);
+    }
+
+    /**
+     * Cycle animations ping-pong: every odd pass runs from the destination back to the source.
+     */
+    protected boolean isReversed(long curTime) {
+        return isReversed(time, cycle, curTime);
+    }
+
+    boolean isFinished(long curTime) {
+        return isFinished(time, cycle, curTime);
+    }
+
+    static boolean isFinished(long time, boolean cycle, long curTime) {
+        return !cycle && (time <= 0 || curTime >= time);
+    }
+
+    static long passTime(long time, boolean cycle, long curTime) {
+        if (curTime < 0) {
+            return 0;
+        }
+        if (time <= 0 || (!cycle && curTime >= time)) {
+            return -1;
+        }
+        return cycle ? curTime % time : curTime;
+    }
+
+    static boolean isReversed(long time, boolean cycle, long curTime) {
+        return cycle && time > 0 && curTime > 0 && (curTime / time) % 2 == 1;
+    }
+}
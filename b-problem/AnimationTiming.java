@@ -0,0 +1,12 @@
+package bproblem;
+
+/**
+ * Receives the animations of a figure, see {@link Scene#timing}. Every animation runs from the scene start.
+ */
+interface AnimationTiming {
+    /**
+     * @param kind {@link FlatScene#MOVE}, {@link FlatScene#ROTATE} or {@link FlatScene#SCALE}
+     * @param time length of one pass in milliseconds
+     */
+    void animation(byte kind, long time, boolean cycle);
+}
@@ -0,0 +1,250 @@
+package bproblem;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Renders every scene of a directory headlessly in one JVM, several scenes at a time, and prints a line per scene
+ * and a summary.
+ * <p>
+ * Usage: {@code java bproblem.BatchRenderer [render options] [--threads N] [--memory <megabytes>]
+ * [--scene-memory <megabytes>] dir [--frames 0..10000 step 16] [--format none|png|raw] [--out dir]}
+ * <p>
+ * Render options are those of {@link Foo#main}; frame options are those of {@link HeadlessRenderer}, except that
+ * the output of every scene goes to {@code <out>/<scene name>/} for PNG and {@code <out>/<scene name>.raw} for raw
+ * frames. The default format is {@code none}, which only renders.
+ * <p>
+ * Scenes run on a fixed pool of {@code --threads} workers, by default one per core. Before loading, each scene
+ * reserves its heap footprint, estimated from the size and figure count at the start of its file, out of the
+ * {@code --memory} budget (three quarters of the maximum heap by default), so large scenes wait for memory instead
+ * of exhausting it. A scene whose estimate exceeds
+ * {@code --scene-memory} or the whole budget fails without being rendered.
+ */
+class BatchRenderer {
+    // Measured on generated scenes with the object model and culling, the largest of the scene models
+    private static final long BYTES_PER_FIGURE = 448;
+    private static final long MEGABYTE = 1 << 20;
+
+    private final RenderOptions options;
+    private final HeadlessRenderer.Frames frames;
+    private final int threads;
+    private final long memoryBytes;
+    private final long sceneMemoryBytes;
+    // Budget in kilobytes so that it fits into the permits of a semaphore
+    private final Semaphore memory;
+
+    /**
+     * @param frameArgs {@link HeadlessRenderer} options applied to every scene
+     */
+    BatchRenderer(RenderOptions options, String[] frameArgs, int threads, long memoryBytes, long sceneMemoryBytes) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.options = options;
+        frames = HeadlessRenderer.Frames.parse(frameArgs, 0);
+        this.threads = threads;
+        this.memoryBytes = memoryBytes;
+        this.sceneMemoryBytes = sceneMemoryBytes;
+        memory = new Semaphore((int) Math.min(Integer.MAX_VALUE, memoryBytes >> 10));
+    }
+
+    static class Result {
+        final Path scene;
+        final int figures;
+        final long footprintBytes;
+        final double loadMillis;
+        final double renderMillis;
+        final long frames;
+        final double p99Millis;
+        final String error;
+
+        Result(Path scene, int figures, long footprintBytes, double loadMillis, double renderMillis, long frames,
+               double p99Millis, String error) {
+            this.scene = scene;
+            this.figures = figures;
+            this.footprintBytes = footprintBytes;
+            this.loadMillis = loadMillis;
+            this.renderMillis = renderMillis;
+            this.frames = frames;
+            this.p99Millis = p99Millis;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Renders all {@code scenes} and waits for them.
+     *
+     * @return one result per scene in the order of {@code scenes}
+     */
+    List<Result> run(List<Path> scenes) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (Path scene : scenes) {
+                futures.add(executor.submit(() -> render(scene)));
+            }
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); ++i) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(new Result(scenes.get(i), 0, 0, 0, 0, 0, 0, String.valueOf(e.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Result render(Path file) throws IOException, InterruptedException {
+        // Reserve memory from the header before the scene and the frame buffers take any
+        SceneHeader header = SceneCompiler.isCompiled(file) ? SceneCompiler.readHeader(file)
+                : SceneParser.parseHeader(file);
+        long footprint = header.figureCount * BYTES_PER_FIGURE
+                + HeadlessRenderer.footprintBytes(header.width, header.height, frames.format, options);
+        if (footprint > sceneMemoryBytes || footprint > memoryBytes) {
+            return new Result(file, header.figureCount, footprint, 0, 0, 0, 0,
+                    String.format(Locale.ROOT, "needs %.1f MiB", (double) footprint / MEGABYTE));
+        }
+
+        int permits = (int) Math.max(1, footprint >> 10);
+        memory.acquire(permits);
+        try {
+            long started = System.nanoTime();
+            Scene scene = options.load(file);
+            double loadMillis = (System.nanoTime() - started) / 1e6;
+
+            HeadlessRenderer renderer = new HeadlessRenderer(scene, options, frames);
+            String name = sceneName(file);
+            OutputStream rawOut = null;
+            try {
+                if (frames.format == HeadlessRenderer.Format.RAW) {
+                    File outDir = frames.outDir;
+                    if (!outDir.isDirectory() && !outDir.mkdirs()) {
+                        throw new IOException("Cannot create " + outDir);
+                    }
+                    rawOut = new BufferedOutputStream(Files.newOutputStream(outDir.toPath().resolve(name + ".raw")),
+                            1 << 16);
+                }
+                long renderStarted = System.nanoTime();
+                long frameCount = renderer.render(new File(frames.outDir, name), rawOut);
+                double renderMillis = (System.nanoTime() - renderStarted) / 1e6;
+                return new Result(file, scene.figureCount(), footprint, loadMillis, renderMillis, frameCount,
+                        renderer.metrics().getP99Millis(), null);
+            } finally {
+                renderer.shutdown();
+                if (rawOut != null) {
+                    rawOut.close();
+                }
+            }
+        } finally {
+            memory.release(permits);
+        }
+    }
+
+    private static String sceneName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * @return text and compiled scenes of {@code dir} sorted by name
+     */
+    static List<Path> listScenes(Path dir) throws IOException {
+        List<Path> scenes = new ArrayList<>();
+        String glob = "*{.txt," + SceneCompiler.EXTENSION + "}";
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            for (Path scene : stream) {
+                if (Files.isRegularFile(scene)) {
+                    scenes.add(scene);
+                }
+            }
+        }
+        Collections.sort(scenes);
+        return scenes;
+    }
+
+    static void print(List<Result> results, double wallSeconds, int threads) {
+        System.out.println("scene              figures  memory MiB   load ms  render ms  frames      fps  p99 ms");
+        long frames = 0;
+        long failed = 0;
+        double busyMillis = 0;
+        for (Result result : results) {
+            String name = result.scene.getFileName().toString();
+            if (result.error != null) {
+                ++failed;
+                System.out.printf(Locale.ROOT, "%-18s %8d %11.1f %9.1f  failed: %s%n", name, result.figures,
+                        (double) result.footprintBytes / MEGABYTE, result.loadMillis, result.error);
+                continue;
+            }
+            frames += result.frames;
+            busyMillis += result.loadMillis + result.renderMillis;
+            System.out.printf(Locale.ROOT, "%-18s %8d %11.1f %9.1f %10.1f %7d %8.1f %7.2f%n", name, result.figures,
+                    (double) result.footprintBytes / MEGABYTE, result.loadMillis, result.renderMillis, result.frames,
+                    result.frames * 1000 / result.renderMillis, result.p99Millis);
+        }
+        System.out.printf(Locale.ROOT, "%d scenes, %d failed, %d frames in %.3f s on %d threads: %.1f fps, "
+                        + "%.2fx concurrency%n", results.size(), failed, frames, wallSeconds, threads,
+                frames / wallSeconds, busyMillis / 1000 / wallSeconds);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        RenderOptions options = new RenderOptions();
+        int arg = options.parse(args, 0);
+        int threads = Runtime.getRuntime().availableProcessors();
+        long memoryBytes = Runtime.getRuntime().maxMemory() / 4 * 3;
+        long sceneMemoryBytes = Long.MAX_VALUE;
+        while (arg < args.length && args[arg].startsWith("--")) {
+            if (args[arg].equals("--threads")) {
+                threads = Integer.parseInt(args[arg + 1]);
+            } else if (args[arg].equals("--memory")) {
+                memoryBytes = Long.parseLong(args[arg + 1]) * MEGABYTE;
+            } else if (args[arg].equals("--scene-memory")) {
+                sceneMemoryBytes = Long.parseLong(args[arg + 1]) * MEGABYTE;
+            } else {
+                throw new IllegalArgumentException("Unknown option " + args[arg]);
+            }
+            arg += 2;
+        }
+        if (arg >= args.length) {
+            System.err.println("Usage: BatchRenderer [render options] [--threads N] [--memory <megabytes>] "
+                    + "[--scene-memory <megabytes>] dir [--frames from..to [step N]] [--format none|png|raw] [--out dir]");
+            System.exit(2);
+        }
+        List<Path> scenes = listScenes(Paths.get(args[arg]));
+        String[] frameArgs = new String[args.length - arg + 1];
+        frameArgs[0] = "--format";
+        frameArgs[1] = "none";
+        System.arraycopy(args, arg + 1, frameArgs, 2, args.length - arg - 1);
+
+        BatchRenderer batch = new BatchRenderer(options, frameArgs, threads, memoryBytes, sceneMemoryBytes);
+        long started = System.nanoTime();
+        List<Result> results = batch.run(scenes);
+        print(results, (System.nanoTime() - started) / 1e9, threads);
+        options.shutdown();
+        boolean failed = false;
+        for (Result result : results) {
+            failed |= result.error != null;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
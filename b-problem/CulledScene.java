@@ -0,0 +1,156 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * View of a scene that contains only the figures whose {@linkplain Scene#envelope motion envelope} intersects the
+ * viewport, in the original painting order. Figures outside of it are never evaluated, so a frame costs time
+ * proportional to the figures that can be visible.
+ */
+class CulledScene implements Scene {
+    private final Scene scene;
+    private EnvelopeGrid grid;
+    // The scene that the visible figures are read from: this one, or the source of a drawing view
+    private final CulledScene source;
+    private int[] visible;
+    private int visibleCount;
+    private final Rectangle2D.Double viewport = new Rectangle2D.Double();
+
+    CulledScene(Scene scene) {
+        this.scene = scene;
+        grid = new EnvelopeGrid(scene);
+        visible = new int[scene.figureCount()];
+        source = this;
+        setViewport(0, 0, scene.width(), scene.height());
+    }
+
+    private CulledScene(CulledScene source) {
+        scene = source.scene.drawingView();
+        this.source = source;
+    }
+
+    /**
+     * Selects the figures to render. Their state has to be evaluated again before drawing.
+     */
+    void setViewport(double x, double y, double width, double height) {
+        viewport.setRect(x, y, width, height);
+        visibleCount = grid.query(viewport, visible);
+    }
+
+    /**
+     * Updates the visible figures after {@code edit} was applied to the underlying scene. Only the cells of the
+     * edited figure change.
+     */
+    void edited(EditableScene.Edit edit) {
+        switch (edit.kind) {
+            case EditableScene.Edit.ADD:
+                grid.inserted(scene, edit.index);
+                break;
+            case EditableScene.Edit.REPLACE:
+                grid.replaced(scene, edit.index);
+                break;
+            case EditableScene.Edit.REMOVE:
+                grid.removed(edit.index);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown edit " + edit.kind);
+        }
+        if (grid.isWorn()) {
+            grid = new EnvelopeGrid(scene);
+        }
+        if (visible.length < scene.figureCount()) {
+            visible = new int[Math.max(scene.figureCount(), visible.length * 2)];
+        }
+        visibleCount = grid.query(viewport, visible);
+    }
+
+    /**
+     * @return the scene that this one culls
+     */
+    Scene underlying() {
+        return scene;
+    }
+
+    /**
+     * @return index among the visible figures of figure {@code figure} of the underlying scene, or -1 if it is not
+     * visible
+     */
+    int visibleIndex(int figure) {
+        int index = Arrays.binarySearch(visible, 0, visibleCount, figure);
+        return index >= 0 ? index : -1;
+    }
+
+    @Override
+    public int width() {
+        return scene.width();
+    }
+
+    @Override
+    public int height() {
+        return scene.height();
+    }
+
+    @Override
+    public int figureCount() {
+        return source.visibleCount;
+    }
+
+    @Override
+    public void evaluate(long curTime, int from, int to) {
+        int[] visible = source.visible;
+        // Evaluate runs of consecutive figures with a single call
+        int runStart = from;
+        for (int i = from + 1; i <= to; ++i) {
+            if (i == to || visible[i] != visible[i - 1] + 1) {
+                scene.evaluate(curTime, visible[runStart], visible[i - 1] + 1);
+                runStart = i;
+            }
+        }
+    }
+
+    @Override
+    public void draw(int figure, Graphics2D g2d, AffineTransform base) {
+        scene.draw(source.visible[figure], g2d, base);
+    }
+
+    @Override
+    public void rasterize(int figure, SoftwareRasterizer rasterizer) {
+        scene.rasterize(source.visible[figure], rasterizer);
+    }
+
+    @Override
+    public void bounds(int figure, Rectangle2D out) {
+        scene.bounds(source.visible[figure], out);
+    }
+
+    /**
+     * @return view that also follows later {@link #setViewport} calls of this scene
+     */
+    @Override
+    public Scene drawingView() {
+        return new CulledScene(this);
+    }
+
+    @Override
+    public boolean isSettled(int figure, long curTime) {
+        return scene.isSettled(source.visible[figure], curTime);
+    }
+
+    @Override
+    public void envelope(int figure, long from, long to, Rectangle2D out) {
+        scene.envelope(source.visible[figure], from, to, out);
+    }
+
+    @Override
+    public boolean outline(int figure, AffineTransform transform, Rectangle2D frame) {
+        return scene.outline(source.visible[figure], transform, frame);
+    }
+
+    @Override
+    public void timing(int figure, AnimationTiming timing) {
+        scene.timing(source.visible[figure], timing);
+    }
+}
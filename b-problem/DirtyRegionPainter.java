@@ -0,0 +1,301 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Incremental painter for the Swing panel. Only figures that can still change are evaluated on every tick, and
+ * only the union of their previous and current bounds is repainted. The longest prefix of settled figures (in
+ * painting order) is cached in a background image, so painting a dirty region costs a blit plus the figures
+ * above the prefix that intersect it.
+ * <p>
+ * Scene time is expected to grow; a step back re-evaluates everything. When a figure of the scene is edited, the
+ * painter is told with {@link #figureRemoved} and {@link #figureInserted}: the figure's old and new bounds are
+ * repainted with the next {@link #advance}, and only that region of the background is painted again.
+ */
+class DirtyRegionPainter {
+    private final Scene scene;
+    // minX, minY, maxX, maxY of every figure from its last evaluation
+    private double[] bounds;
+    private boolean[] settled;
+    private int[] active;
+    private int activeCount;
+    private int settledPrefix;
+    private long lastTime = Long.MIN_VALUE;
+
+    private BufferedImage background;
+    private int backgroundFigures;
+    // Regions changed by edits since the last advance and since the background was last painted, empty if none
+    private final Rectangle2D.Double edited = new Rectangle2D.Double();
+    private final Rectangle2D.Double backgroundEdited = new Rectangle2D.Double();
+
+    private final Rectangle2D.Double figureBounds = new Rectangle2D.Double();
+    private final Rectangle dirty = new Rectangle();
+    private final AffineTransform identity = new AffineTransform();
+
+    DirtyRegionPainter(Scene scene) {
+        this.scene = scene;
+        int figureCount = scene.figureCount();
+        bounds = new double[figureCount * 4];
+        settled = new boolean[figureCount];
+        active = new int[figureCount];
+    }
+
+    /**
+     * Evaluates the scene at {@code curTime}.
+     *
+     * @return region to repaint in scene coordinates or null if nothing changed
+     */
+    Rectangle advance(long curTime) {
+        if (curTime < lastTime || lastTime == Long.MIN_VALUE) {
+            reset(curTime);
+            double minX = 0;
+            double minY = 0;
+            double maxX = scene.width();
+            double maxY = scene.height();
+            for (int i = 0; i < scene.figureCount(); ++i) {
+                minX = Math.min(minX, bounds[4 * i]);
+                minY = Math.min(minY, bounds[4 * i + 1]);
+                maxX = Math.max(maxX, bounds[4 * i + 2]);
+                maxY = Math.max(maxY, bounds[4 * i + 3]);
+            }
+            return dirty(minX, minY, maxX, maxY);
+        }
+        lastTime = curTime;
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        if (!edited.isEmpty()) {
+            minX = edited.getMinX();
+            minY = edited.getMinY();
+            maxX = edited.getMaxX();
+            maxY = edited.getMaxY();
+            edited.setRect(0, 0, 0, 0);
+        }
+        int kept = 0;
+        for (int k = 0; k < activeCount; ++k) {
+            int i = active[k];
+            minX = Math.min(minX, bounds[4 * i]);
+            minY = Math.min(minY, bounds[4 * i + 1]);
+            maxX = Math.max(maxX, bounds[4 * i + 2]);
+            maxY = Math.max(maxY, bounds[4 * i + 3]);
+            scene.evaluate(curTime, i, i + 1);
+            storeBounds(i);
+            minX = Math.min(minX, bounds[4 * i]);
+            minY = Math.min(minY, bounds[4 * i + 1]);
+            maxX = Math.max(maxX, bounds[4 * i + 2]);
+            maxY = Math.max(maxY, bounds[4 * i + 3]);
+            if (scene.isSettled(i, curTime)) {
+                settled[i] = true;
+            } else {
+                active[kept++] = i;
+            }
+        }
+        activeCount = kept;
+        advanceSettledPrefix();
+        return minX > maxX ? null : dirty(minX, minY, maxX, maxY);
+    }
+
+    private Rectangle dirty(double minX, double minY, double maxX, double maxY) {
+        // Rasterization may touch the pixel around a fractional edge
+        dirty.setBounds((int) Math.floor(minX) - 1, (int) Math.floor(minY) - 1,
+                (int) Math.ceil(maxX - Math.floor(minX)) + 3, (int) Math.ceil(maxY - Math.floor(minY)) + 3);
+        return dirty;
+    }
+
+    private void reset(long curTime) {
+        lastTime = curTime;
+        edited.setRect(0, 0, 0, 0);
+        backgroundEdited.setRect(0, 0, 0, 0);
+        scene.evaluate(curTime);
+        activeCount = 0;
+        for (int i = 0; i < scene.figureCount(); ++i) {
+            storeBounds(i);
+            settled[i] = scene.isSettled(i, curTime);
+            if (!settled[i]) {
+                active[activeCount++] = i;
+            }
+        }
+        settledPrefix = 0;
+        advanceSettledPrefix();
+        background = null;
+    }
+
+    /**
+     * Forgets figure {@code i}, which was just removed from the scene.
+     */
+    void figureRemoved(int i) {
+        int figureCount = scene.figureCount();
+        addEdited(i);
+        System.arraycopy(bounds, 4 * (i + 1), bounds, 4 * i, 4 * (figureCount - i));
+        System.arraycopy(settled, i + 1, settled, i, figureCount - i);
+        int kept = 0;
+        for (int k = 0; k < activeCount; ++k) {
+            if (active[k] != i) {
+                active[kept++] = active[k] > i ? active[k] - 1 : active[k];
+            }
+        }
+        activeCount = kept;
+        if (i < settledPrefix) {
+            --settledPrefix;
+        }
+        if (i < backgroundFigures) {
+            --backgroundFigures;
+        }
+        advanceSettledPrefix();
+    }
+
+    /**
+     * Evaluates figure {@code i}, which was just inserted into the scene, at the time of the last {@link #advance}.
+     */
+    void figureInserted(int i) {
+        int figureCount = scene.figureCount();
+        if (settled.length < figureCount) {
+            int capacity = Math.max(figureCount, settled.length * 2);
+            bounds = Arrays.copyOf(bounds, 4 * capacity);
+            settled = Arrays.copyOf(settled, capacity);
+            active = Arrays.copyOf(active, capacity);
+        }
+        System.arraycopy(bounds, 4 * i, bounds, 4 * (i + 1), 4 * (figureCount - 1 - i));
+        System.arraycopy(settled, i, settled, i + 1, figureCount - 1 - i);
+        for (int k = 0; k < activeCount; ++k) {
+            if (active[k] >= i) {
+                ++active[k];
+            }
+        }
+        if (lastTime == Long.MIN_VALUE) {
+            // The first advance evaluates everything
+            settled[i] = false;
+            return;
+        }
+        scene.evaluate(lastTime, i, i + 1);
+        storeBounds(i);
+        settled[i] = scene.isSettled(i, lastTime);
+        if (!settled[i]) {
+            active[activeCount++] = i;
+            if (i < settledPrefix) {
+                settledPrefix = i;
+                if (i < backgroundFigures) {
+                    // Painted into the background already: start over from the new prefix
+                    background = null;
+                }
+            }
+        } else if (i <= settledPrefix) {
+            ++settledPrefix;
+            advanceSettledPrefix();
+            if (i <= backgroundFigures) {
+                ++backgroundFigures;
+            }
+        }
+        addEdited(i);
+    }
+
+    /**
+     * Adds the bounds of figure {@code i} to the regions to repaint.
+     */
+    private void addEdited(int i) {
+        Rectangle2D.Double figure = figureBounds;
+        figure.setRect(bounds[4 * i], bounds[4 * i + 1], bounds[4 * i + 2] - bounds[4 * i],
+                bounds[4 * i + 3] - bounds[4 * i + 1]);
+        add(edited, figure);
+        if (i < backgroundFigures) {
+            add(backgroundEdited, figure);
+        }
+    }
+
+    private static void add(Rectangle2D.Double region, Rectangle2D figure) {
+        if (region.isEmpty()) {
+            region.setRect(figure);
+        } else {
+            region.add(figure);
+        }
+    }
+
+    private void advanceSettledPrefix() {
+        while (settledPrefix < scene.figureCount() && settled[settledPrefix]) {
+            ++settledPrefix;
+        }
+    }
+
+    private void storeBounds(int i) {
+        scene.bounds(i, figureBounds);
+        bounds[4 * i] = figureBounds.getMinX();
+        bounds[4 * i + 1] = figureBounds.getMinY();
+        bounds[4 * i + 2] = figureBounds.getMaxX();
+        bounds[4 * i + 3] = figureBounds.getMaxY();
+    }
+
+    /**
+     * Paints the state of the last {@link #advance} within the clip of {@code g2d}.
+     */
+    void paint(Graphics2D g2d, AffineTransform base, int width, int height, Color backgroundColor) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (background == null || background.getWidth() != width || background.getHeight() != height
+                || backgroundFigures < settledPrefix) {
+            renderBackground(width, height, backgroundColor);
+        } else if (!backgroundEdited.isEmpty()) {
+            repairBackground(backgroundColor);
+        }
+        g2d.drawImage(background, 0, 0, null);
+
+        Rectangle clip = g2d.getClipBounds();
+        for (int i = backgroundFigures; i < scene.figureCount(); ++i) {
+            if (clip == null || intersects(i, clip)) {
+                scene.draw(i, g2d, base);
+            }
+        }
+        g2d.setTransform(base);
+    }
+
+    private boolean intersects(int i, Rectangle clip) {
+        return bounds[4 * i + 2] >= clip.x - 1 && bounds[4 * i] <= clip.x + clip.width + 1
+                && bounds[4 * i + 3] >= clip.y - 1 && bounds[4 * i + 1] <= clip.y + clip.height + 1;
+    }
+
+    private void renderBackground(int width, int height, Color backgroundColor) {
+        if (background == null || background.getWidth() != width || background.getHeight() != height) {
+            background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = background.createGraphics();
+        try {
+            g.setColor(backgroundColor);
+            g.fillRect(0, 0, background.getWidth(), background.getHeight());
+            for (int i = 0; i < settledPrefix; ++i) {
+                scene.draw(i, g, identity);
+            }
+        } finally {
+            g.dispose();
+        }
+        backgroundFigures = settledPrefix;
+        backgroundEdited.setRect(0, 0, 0, 0);
+    }
+
+    /**
+     * Paints the region of the background that edits changed again.
+     */
+    private void repairBackground(Color backgroundColor) {
+        dirty(backgroundEdited.getMinX(), backgroundEdited.getMinY(), backgroundEdited.getMaxX(),
+                backgroundEdited.getMaxY());
+        backgroundEdited.setRect(0, 0, 0, 0);
+        Graphics2D g = background.createGraphics();
+        try {
+            g.clip(dirty);
+            g.setColor(backgroundColor);
+            g.fill(dirty);
+            for (int i = 0; i < backgroundFigures; ++i) {
+                if (intersects(i, dirty)) {
+                    scene.draw(i, g, identity);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Scene whose figures can be added, replaced and removed one at a time, see {@link SceneUpdateChannel}. Every figure
+ * is a slot that refers to a figure of another scene: initially the loaded scene, later the one-figure scenes that
+ * edits bring, which are built in the configured model off the rendering thread. Applying an edit only rewrites its
+ * slot; adding or removing one in the middle moves the later slots with {@link System#arraycopy}. Nothing is parsed,
+ * evaluated or allocated for the untouched figures, and runs of consecutive figures of one scene are still evaluated
+ * with a single call.
+ * <p>
+ * Edits are applied by the thread that renders, between frames.
+ */
+class EditableScene implements Scene {
+    /**
+     * One change of figure {@code index}, in painting order.
+     */
+    static final class Edit {
+        static final byte ADD = 0;
+        static final byte REPLACE = 1;
+        static final byte REMOVE = 2;
+
+        final byte kind;
+        final int index;
+        // Scene whose only figure is the new one, null for REMOVE
+        final Scene figure;
+
+        Edit(byte kind, int index, Scene figure) {
+            this.kind = kind;
+            this.index = index;
+            this.figure = figure;
+        }
+    }
+
+    private final Scene base;
+    // The scene that the slots are read from: this one, or the source of a drawing view
+    private final EditableScene source;
+    private Scene[] scenes;
+    private int[] indices;
+    private int figureCount;
+
+    // Drawing views of the scenes that the slots refer to, only used by drawing views
+    private final Scene baseView;
+    private final Map<Scene, Scene> views;
+
+    EditableScene(Scene base) {
+        this.base = base;
+        source = this;
+        figureCount = base.figureCount();
+        scenes = new Scene[Math.max(figureCount, 16)];
+        indices = new int[scenes.length];
+        Arrays.fill(scenes, 0, figureCount, base);
+        for (int i = 0; i < figureCount; ++i) {
+            indices[i] = i;
+        }
+        baseView = base;
+        views = null;
+    }
+
+    private EditableScene(EditableScene source) {
+        base = source.base;
+        this.source = source;
+        baseView = base.drawingView();
+        views = new IdentityHashMap<>();
+    }
+
+    /**
+     * Applies {@code edit}. The new figure is evaluated with the next {@link #evaluate} that covers it.
+     */
+    void apply(Edit edit) {
+        int index = edit.index;
+        switch (edit.kind) {
+            case Edit.ADD:
+                if (figureCount == scenes.length) {
+                    scenes = Arrays.copyOf(scenes, figureCount * 2);
+                    indices = Arrays.copyOf(indices, figureCount * 2);
+                }
+                System.arraycopy(scenes, index, scenes, index + 1, figureCount - index);
+                System.arraycopy(indices, index, indices, index + 1, figureCount - index);
+                ++figureCount;
+                scenes[index] = edit.figure;
+                indices[index] = 0;
+                break;
+            case Edit.REPLACE:
+                scenes[index] = edit.figure;
+                indices[index] = 0;
+                break;
+            case Edit.REMOVE:
+                --figureCount;
+                System.arraycopy(scenes, index + 1, scenes, index, figureCount - index);
+                System.arraycopy(indices, index + 1, indices, index, figureCount - index);
+                scenes[figureCount] = null;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown edit " + edit.kind);
+        }
+    }
+
+    @Override
+    public int width() {
+        return base.width();
+    }
+
+    @Override
+    public int height() {
+        return base.height();
+    }
+
+    @Override
+    public int figureCount() {
+        return source.figureCount;
+    }
+
+    @Override
+    public void evaluate(long curTime, int from, int to) {
+        Scene[] scenes = source.scenes;
+        int[] indices = source.indices;
+        // Evaluate runs of consecutive figures of one scene with a single call
+        int runStart = from;
+        for (int i = from + 1; i <= to; ++i) {
+            if (i == to || scenes[i] != scenes[i - 1] || indices[i] != indices[i - 1] + 1) {
+                scene(runStart).evaluate(curTime, indices[runStart], indices[i - 1] + 1);
+                runStart = i;
+            }
+        }
+    }
+
+    @Override
+    public void draw(int figure, Graphics2D g2d, AffineTransform base) {
+        scene(figure).draw(source.indices[figure], g2d, base);
+    }
+
+    @Override
+    public void rasterize(int figure, SoftwareRasterizer rasterizer) {
+        scene(figure).rasterize(source.indices[figure], rasterizer);
+    }
+
+    @Override
+    public void bounds(int figure, Rectangle2D out) {
+        scene(figure).bounds(source.indices[figure], out);
+    }
+
+    /**
+     * @return view that also follows later edits of this scene
+     */
+    @Override
+    public Scene drawingView() {
+        return new EditableScene(source);
+    }
+
+    @Override
+    public boolean isSettled(int figure, long curTime) {
+        return scene(figure).isSettled(source.indices[figure], curTime);
+    }
+
+    @Override
+    public void envelope(int figure, long from, long to, Rectangle2D out) {
+        scene(figure).envelope(source.indices[figure], from, to, out);
+    }
+
+    @Override
+    public boolean outline(int figure, AffineTransform transform, Rectangle2D frame) {
+        return scene(figure).outline(source.indices[figure], transform, frame);
+    }
+
+    @Override
+    public void timing(int figure, AnimationTiming timing) {
+        scene(figure).timing(source.indices[figure], timing);
+    }
+
+    /**
+     * @return the scene that holds the figure, or its drawing view in a view
+     */
+    private Scene scene(int figure) {
+        Scene scene = source.scenes[figure];
+        if (views == null) {
+            return scene;
+        }
+        if (scene == base) {
+            return baseView;
+        }
+        if (views.size() > source.figureCount) {
+            // Most of them belong to figures that were edited again since
+            views.clear();
+        }
+        return views.computeIfAbsent(scene, Scene::drawingView);
+    }
+}
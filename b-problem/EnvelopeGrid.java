@@ -0,0 +1,266 @@
+package bproblem;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the {@linkplain Scene#envelope motion envelopes} of a scene's figures. Cells are stored
+ * compressed: the figures of cell {@code c} are {@code cellFigures[cellStart[c] until cellStart[c + 1]]}.
+ * Envelopes that would cover too many cells, like long moves across the scene, are kept in a separate list and
+ * checked on every query.
+ * <p>
+ * Edited figures are added to short per-cell lists next to the compressed cells, so an edit only touches the cells
+ * of the edited figure. Entries of its old envelope stay behind and are filtered out by the envelope check of every
+ * query; once there are more of them than figures, the owner should build a new grid, see {@link #isWorn}. Adding or
+ * removing a figure renumbers the later figures, which is one pass over the entries without any allocation.
+ */
+class EnvelopeGrid {
+    private static final int MAX_CELLS_PER_FIGURE = 16;
+
+    private int figureCount;
+    // minX, minY, maxX, maxY of every envelope
+    private double[] envelopes;
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    // Entries are figure indices, or -1 for a removed figure
+    private final int[] cellStart;
+    private final int[] cellFigures;
+    private int[] large;
+    private int largeCount;
+    // Figures added to each cell by edits, allocated by the first edit
+    private int[][] extraFigures;
+    private int[] extraCounts;
+    // Entries of old envelopes and removed figures
+    private int staleEntries;
+
+    private int[] stamp;
+    private int queryStamp;
+    private final Rectangle2D.Double envelope = new Rectangle2D.Double();
+
+    EnvelopeGrid(Scene scene) {
+        figureCount = scene.figureCount();
+        envelopes = new double[figureCount * 4];
+        stamp = new int[figureCount];
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int f = 0; f < figureCount; ++f) {
+            scene.envelope(f, envelope);
+            envelopes[4 * f] = envelope.getMinX();
+            envelopes[4 * f + 1] = envelope.getMinY();
+            envelopes[4 * f + 2] = envelope.getMaxX();
+            envelopes[4 * f + 3] = envelope.getMaxY();
+            minX = Math.min(minX, envelope.getMinX());
+            minY = Math.min(minY, envelope.getMinY());
+            maxX = Math.max(maxX, envelope.getMaxX());
+            maxY = Math.max(maxY, envelope.getMaxY());
+        }
+        if (figureCount == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        originX = minX;
+        originY = minY;
+        // About one figure per cell on average
+        double area = Math.max((maxX - minX) * (maxY - minY), 1);
+        cellSize = Math.max(Math.sqrt(area / Math.max(figureCount, 1)), 1);
+        columns = (int) Math.min((maxX - minX) / cellSize, 4096) + 1;
+        rows = (int) Math.min((maxY - minY) / cellSize, 4096) + 1;
+
+        cellStart = new int[columns * rows + 1];
+        int largeFigures = 0;
+        for (int f = 0; f < figureCount; ++f) {
+            if (isLarge(f)) {
+                ++largeFigures;
+                continue;
+            }
+            for (int row = row(envelopes[4 * f + 1]); row <= row(envelopes[4 * f + 3]); ++row) {
+                for (int column = column(envelopes[4 * f]); column <= column(envelopes[4 * f + 2]); ++column) {
+                    ++cellStart[row * columns + column + 1];
+                }
+            }
+        }
+        for (int c = 0; c < columns * rows; ++c) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellFigures = new int[cellStart[columns * rows]];
+        large = new int[Math.max(largeFigures, 4)];
+        int[] fill = Arrays.copyOf(cellStart, columns * rows);
+        for (int f = 0; f < figureCount; ++f) {
+            if (isLarge(f)) {
+                large[largeCount++] = f;
+                continue;
+            }
+            for (int row = row(envelopes[4 * f + 1]); row <= row(envelopes[4 * f + 3]); ++row) {
+                for (int column = column(envelopes[4 * f]); column <= column(envelopes[4 * f + 2]); ++column) {
+                    cellFigures[fill[row * columns + column]++] = f;
+                }
+            }
+        }
+    }
+
+    private boolean isLarge(int f) {
+        long cells = (long) (column(envelopes[4 * f + 2]) - column(envelopes[4 * f]) + 1)
+                * (row(envelopes[4 * f + 3]) - row(envelopes[4 * f + 1]) + 1);
+        return cells > MAX_CELLS_PER_FIGURE;
+    }
+
+    private int column(double x) {
+        return (int) Math.max(0, Math.min((x - originX) / cellSize, columns - 1));
+    }
+
+    private int row(double y) {
+        return (int) Math.max(0, Math.min((y - originY) / cellSize, rows - 1));
+    }
+
+    /**
+     * Stores the figures whose envelope intersects {@code area} into {@code out} in ascending (painting) order.
+     *
+     * @param out array of at least {@code figureCount} elements
+     * @return number of figures found
+     */
+    int query(Rectangle2D area, int[] out) {
+        if (++queryStamp == 0) {
+            Arrays.fill(stamp, 0);
+            queryStamp = 1;
+        }
+        int count = 0;
+        for (int row = row(area.getMinY()); row <= row(area.getMaxY()); ++row) {
+            for (int column = column(area.getMinX()); column <= column(area.getMaxX()); ++column) {
+                int cell = row * columns + column;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                    count = add(cellFigures[i], area, out, count);
+                }
+                if (extraCounts != null) {
+                    for (int i = 0; i < extraCounts[cell]; ++i) {
+                        count = add(extraFigures[cell][i], area, out, count);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < largeCount; ++i) {
+            count = add(large[i], area, out, count);
+        }
+        Arrays.sort(out, 0, count);
+        return count;
+    }
+
+    private int add(int f, Rectangle2D area, int[] out, int count) {
+        if (f >= 0 && stamp[f] != queryStamp && intersects(f, area)) {
+            stamp[f] = queryStamp;
+            out[count++] = f;
+        }
+        return count;
+    }
+
+    private boolean intersects(int f, Rectangle2D area) {
+        return envelopes[4 * f + 2] >= area.getMinX() && envelopes[4 * f] <= area.getMaxX()
+                && envelopes[4 * f + 3] >= area.getMinY() && envelopes[4 * f + 1] <= area.getMaxY();
+    }
+
+    /**
+     * Adds figure {@code f}, which was just inserted into {@code scene}, and renumbers the figures after it.
+     */
+    void inserted(Scene scene, int f) {
+        renumber(f, 1, -1);
+        if (4 * (figureCount + 1) > envelopes.length) {
+            int capacity = Math.max(figureCount * 2, 16);
+            envelopes = Arrays.copyOf(envelopes, 4 * capacity);
+            stamp = Arrays.copyOf(stamp, capacity);
+        }
+        System.arraycopy(envelopes, 4 * f, envelopes, 4 * (f + 1), 4 * (figureCount - f));
+        ++figureCount;
+        addEntries(scene, f);
+    }
+
+    /**
+     * Moves figure {@code f} of {@code scene} to its new envelope.
+     */
+    void replaced(Scene scene, int f) {
+        staleEntries += entryCount(f);
+        addEntries(scene, f);
+    }
+
+    /**
+     * Drops figure {@code f}, which was just removed from the scene, and renumbers the figures after it.
+     */
+    void removed(int f) {
+        staleEntries += entryCount(f);
+        renumber(f + 1, -1, f);
+        --figureCount;
+        System.arraycopy(envelopes, 4 * (f + 1), envelopes, 4 * f, 4 * (figureCount - f));
+    }
+
+    /**
+     * @return true if entries left behind by edits outnumber the figures, so that a new grid would query faster
+     */
+    boolean isWorn() {
+        return staleEntries > Math.max(figureCount, 64);
+    }
+
+    private int entryCount(int f) {
+        if (isLarge(f)) {
+            return 1;
+        }
+        return (column(envelopes[4 * f + 2]) - column(envelopes[4 * f]) + 1)
+                * (row(envelopes[4 * f + 3]) - row(envelopes[4 * f + 1]) + 1);
+    }
+
+    private void addEntries(Scene scene, int f) {
+        scene.envelope(f, envelope);
+        envelopes[4 * f] = envelope.getMinX();
+        envelopes[4 * f + 1] = envelope.getMinY();
+        envelopes[4 * f + 2] = envelope.getMaxX();
+        envelopes[4 * f + 3] = envelope.getMaxY();
+        if (isLarge(f)) {
+            if (largeCount == large.length) {
+                large = Arrays.copyOf(large, largeCount * 2);
+            }
+            large[largeCount++] = f;
+            return;
+        }
+        if (extraCounts == null) {
+            extraFigures = new int[columns * rows][];
+            extraCounts = new int[columns * rows];
+        }
+        for (int row = row(envelopes[4 * f + 1]); row <= row(envelopes[4 * f + 3]); ++row) {
+            for (int column = column(envelopes[4 * f]); column <= column(envelopes[4 * f + 2]); ++column) {
+                int cell = row * columns + column;
+                int[] figures = extraFigures[cell];
+                if (figures == null) {
+                    figures = extraFigures[cell] = new int[4];
+                } else if (extraCounts[cell] == figures.length) {
+                    figures = extraFigures[cell] = Arrays.copyOf(figures, figures.length * 2);
+                }
+                figures[extraCounts[cell]++] = f;
+            }
+        }
+    }
+
+    /**
+     * Adds {@code delta} to every entry from {@code from} on and marks the entries of {@code removed} as removed.
+     */
+    private void renumber(int from, int delta, int removed) {
+        renumber(cellFigures, cellFigures.length, from, delta, removed);
+        renumber(large, largeCount, from, delta, removed);
+        if (extraCounts != null) {
+            for (int cell = 0; cell < extraCounts.length; ++cell) {
+                renumber(extraFigures[cell], extraCounts[cell], from, delta, removed);
+            }
+        }
+    }
+
+    private static void renumber(int[] figures, int count, int from, int delta, int removed) {
+        for (int i = 0; i < count; ++i) {
+            int f = figures[i];
+            if (f == removed) {
+                figures[i] = -1;
+            } else if (f >= from) {
+                figures[i] = f + delta;
+            }
+        }
+    }
+}
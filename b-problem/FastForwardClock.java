@@ -0,0 +1,21 @@
+package bproblem;
+
+/**
+ * Real time multiplied by a constant factor.
+ */
+class FastForwardClock implements SceneClock {
+    private final long startNanos = System.nanoTime();
+    private final double factor;
+
+    FastForwardClock(double factor) {
+        if (factor <= 0) {
+            throw new IllegalArgumentException("Factor must be positive: " + factor);
+        }
+        this.factor = factor;
+    }
+
+    @Override
+    public long now() {
+        return (long) ((System.nanoTime() - startNanos) / 1e6 * factor);
+    }
+}
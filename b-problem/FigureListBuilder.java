@@ -0,0 +1,103 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds the {@link ShapeWrapper} object model used by {@link Foo}.
+ */
+class FigureListBuilder implements SceneBuilder {
+    private static final Comparator<Animation> PRIORITY = new Comparator<Animation>() {
+        private int priority(Animation animation) {
+            if (animation instanceof MoveAnimation) {
+                return 0;
+            }
+            if (animation instanceof RotateAnimation) {
+                return 1;
+            }
+            if (animation instanceof ScaleAnimation) {
+                return 2;
+            }
+            throw new IllegalStateException("Unknown animation: " + animation);
+        }
+
+        @Override
+        public int compare(Animation x, Animation y) {
+            return Integer.compare(priority(x), priority(y));
+        }
+    };
+
+    final List<ShapeWrapper> figures;
+    int width;
+    int height;
+    private ShapeWrapper last;
+    private List<Animation> animations;
+
+    FigureListBuilder(List<ShapeWrapper> figures) {
+        this.figures = figures;
+    }
+
+    @Override
+    public void size(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void rectangle(double centerX, double centerY, double width, double height, double angle, Color color) {
+        int x = (int) centerX;
+        int y = (int) centerY;
+        int w = (int) width;
+        int h = (int) height;
+        addFigure(new ShapeWrapper(color, new Rectangle(x - w / 2, y - h / 2, w, h)));
+    }
+
+    @Override
+    public void circle(double centerX, double centerY, double radius, Color color) {
+        addFigure(new ShapeWrapper(color,
+                new Ellipse2D.Double(centerX - radius, centerY - radius, 2 * radius, 2 * radius)));
+    }
+
+    private void addFigure(ShapeWrapper figure) {
+        last = figure;
+        animations = new ArrayList<>();
+        figures.add(figure);
+    }
+
+    @Override
+    public void move(double destX, double destY, long time, boolean cycle) {
+        MoveAnimation e = new MoveAnimation(last, time, cycle);
+        e.setSource(last.getX(), last.getY());
+        e.setDest(destX, destY);
+        animations.add(e);
+    }
+
+    @Override
+    public void rotate(double angle, long time, boolean cycle) {
+        RotateAnimation e = new RotateAnimation(last, time, cycle);
+        e.setDestAngle(0);
+        e.setSrcAngle(-angle);
+        animations.add(e);
+    }
+
+    @Override
+    public void scale(double destScale, long time, boolean cycle) {
+        ScaleAnimation e = new ScaleAnimation(last, time, cycle);
+        e.setDestScale(destScale);
+        e.srcScale = 1.0;
+        animations.add(e);
+    }
+
+    @Override
+    public void endFigure() {
+        animations.sort(PRIORITY);
+        last.animations = animations;
+    }
+
+    FigureListScene build() {
+        return new FigureListScene(width, height, figures);
+    }
+}
@@ -0,0 +1,106 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RectangularShape;
+import java.util.List;
+
+/**
+ * {@link Scene} over the {@link ShapeWrapper} object model.
+ */
+class FigureListScene implements Scene {
+    private final int width;
+    private final int height;
+    final List<ShapeWrapper> figures;
+
+    FigureListScene(int width, int height, List<ShapeWrapper> figures) {
+        this.width = width;
+        this.height = height;
+        this.figures = figures;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int figureCount() {
+        return figures.size();
+    }
+
+    @Override
+    public void evaluate(long curTime, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            figures.get(i).update(curTime);
+        }
+    }
+
+    @Override
+    public void draw(int figure, Graphics2D g2d, AffineTransform base) {
+        ShapeWrapper wrapper = figures.get(figure);
+        g2d.setTransform(base);
+        g2d.transform(wrapper.transform);
+        g2d.setColor(wrapper.color);
+        g2d.fill(wrapper.shape);
+    }
+
+    @Override
+    public void rasterize(int figure, SoftwareRasterizer rasterizer) {
+        ShapeWrapper wrapper = figures.get(figure);
+        RectangularShape shape = (RectangularShape) wrapper.shape;
+        if (shape instanceof Rectangle) {
+            rasterizer.fillRectangle(wrapper.transform, shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight(),
+                    wrapper.color.getRGB());
+        } else {
+            rasterizer.fillEllipse(wrapper.transform, shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight(),
+                    wrapper.color.getRGB());
+        }
+    }
+
+    @Override
+    public void bounds(int figure, Rectangle2D out) {
+        ShapeWrapper wrapper = figures.get(figure);
+        RectangularShape shape = (RectangularShape) wrapper.shape;
+        Scene.transformedBounds(wrapper.transform, shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight(), out);
+    }
+
+    @Override
+    public Scene drawingView() {
+        // Drawing only reads the figures
+        return this;
+    }
+
+    @Override
+    public boolean isSettled(int figure, long curTime) {
+        return figures.get(figure).isSettled(curTime);
+    }
+
+    @Override
+    public void envelope(int figure, long from, long to, Rectangle2D out) {
+        figures.get(figure).envelope(from, to, out);
+    }
+
+    @Override
+    public boolean outline(int figure, AffineTransform transform, Rectangle2D frame) {
+        ShapeWrapper wrapper = figures.get(figure);
+        RectangularShape shape = (RectangularShape) wrapper.shape;
+        transform.setTransform(wrapper.transform);
+        frame.setRect(shape.getX(), shape.getY(), shape.getWidth(), shape.getHeight());
+        return !(shape instanceof Rectangle);
+    }
+
+    @Override
+    public void timing(int figure, AnimationTiming timing) {
+        List<Animation> animations = figures.get(figure).animations;
+        for (int i = 0; i < animations.size(); ++i) {
+            animations.get(i).timing(timing);
+        }
+    }
+}
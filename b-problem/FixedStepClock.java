@@ -0,0 +1,26 @@
+package bproblem;
+
+/**
+ * Advances by a fixed step per rendered frame regardless of how long the frame took.
+ */
+class FixedStepClock implements SceneClock {
+    private final long step;
+    private long time;
+
+    FixedStepClock(long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Step must be positive: " + step);
+        }
+        this.step = step;
+    }
+
+    @Override
+    public long now() {
+        return time;
+    }
+
+    @Override
+    public void frameRendered() {
+        time += step;
+    }
+}
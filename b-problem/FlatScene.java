@@ -0,0 +1,480 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structure-of-arrays scene. Figure geometry, colors and animation parameters are kept in flat primitive arrays,
+ * so evaluating a frame is a linear sweep over them without any per-figure objects. Renders identically to the
+ * {@link ShapeWrapper} model.
+ * <p>
+ * Animations of figure {@code f} are stored at indices {@code animStart[f] until animStart[f + 1]}, ordered by
+ * kind (move, rotate, scale) like {@link FigureListBuilder} orders them.
+ */
+class FlatScene implements Scene {
+    static final byte RECTANGLE = 0;
+    static final byte CIRCLE = 1;
+
+    // Also the evaluation order of the animations of one figure
+    static final byte MOVE = 0;
+    static final byte ROTATE = 1;
+    static final byte SCALE = 2;
+
+    static final byte ROTATED = 1;
+    static final byte SCALED = 2;
+
+    final int width;
+    final int height;
+    final int figureCount;
+    final Color[] palette;
+
+    // Figures. Coordinates are the top-left corner at scene start
+    final byte[] type;
+    final double[] baseX;
+    final double[] baseY;
+    final double[] w;
+    final double[] h;
+    final byte[] color;
+    final int[] animStart;
+
+    // Animations. Move: from = (fromX, fromY), to = (toX, toY). Rotate and scale use fromX and toX only
+    final byte[] animKind;
+    final long[] animTime;
+    final boolean[] animCycle;
+    final double[] fromX;
+    final double[] fromY;
+    final double[] toX;
+    final double[] toY;
+    final double[] length;
+
+    // Result of the last evaluate call
+    final double[] x;
+    final double[] y;
+    final double[] rotation;
+    final double[] scale;
+    final byte[] flags;
+
+    private final AffineTransform transform = new AffineTransform();
+    private final AffineTransform scaleTransform = new AffineTransform();
+    private final Rectangle rectangle = new Rectangle();
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+
+    FlatScene(int width, int height, int figureCount, Color[] palette,
+              byte[] type, double[] baseX, double[] baseY, double[] w, double[] h, byte[] color, int[] animStart,
+              byte[] animKind, long[] animTime, boolean[] animCycle,
+              double[] fromX, double[] fromY, double[] toX, double[] toY) {
+        this.width = width;
+        this.height = height;
+        this.figureCount = figureCount;
+        this.palette = palette;
+        this.type = type;
+        this.baseX = baseX;
+        this.baseY = baseY;
+        this.w = w;
+        this.h = h;
+        this.color = color;
+        this.animStart = animStart;
+        this.animKind = animKind;
+        this.animTime = animTime;
+        this.animCycle = animCycle;
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.toX = toX;
+        this.toY = toY;
+        int animationCount = animStart[figureCount];
+        length = new double[animationCount];
+        for (int a = 0; a < animationCount; ++a) {
+            if (animKind[a] == MOVE) {
+                double dx = toX[a] - fromX[a];
+                double dy = toY[a] - fromY[a];
+                length[a] = Math.sqrt(dx * dx + dy * dy);
+            }
+        }
+        x = new double[figureCount];
+        y = new double[figureCount];
+        rotation = new double[figureCount];
+        scale = new double[figureCount];
+        flags = new byte[figureCount];
+    }
+
+    /**
+     * Drawing view of {@code source}, see {@link #drawingView}.
+     */
+    private FlatScene(FlatScene source) {
+        width = source.width;
+        height = source.height;
+        figureCount = source.figureCount;
+        palette = source.palette;
+        type = source.type;
+        baseX = source.baseX;
+        baseY = source.baseY;
+        w = source.w;
+        h = source.h;
+        color = source.color;
+        animStart = source.animStart;
+        animKind = source.animKind;
+        animTime = source.animTime;
+        animCycle = source.animCycle;
+        fromX = source.fromX;
+        fromY = source.fromY;
+        toX = source.toX;
+        toY = source.toY;
+        length = source.length;
+        x = source.x;
+        y = source.y;
+        rotation = source.rotation;
+        scale = source.scale;
+        flags = source.flags;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int figureCount() {
+        return figureCount;
+    }
+
+    int animationCount() {
+        return animStart[figureCount];
+    }
+
+    @Override
+    public void evaluate(long curTime, int from, int to) {
+        for (int f = from; f < to; ++f) {
+            double figureX = baseX[f];
+            double figureY = baseY[f];
+            double figureRotation = 0;
+            double figureScale = 1;
+            byte figureFlags = 0;
+            for (int a = animStart[f], end = animStart[f + 1]; a < end; ++a) {
+                long time = animTime[a];
+                boolean cycle = animCycle[a];
+                long passTime = Animation.passTime(time, cycle, curTime);
+                boolean reversed = Animation.isReversed(time, cycle, curTime);
+                double from0 = reversed ? toX[a] : fromX[a];
+                double to0 = reversed ? fromX[a] : toX[a];
+                switch (animKind[a]) {
+                    case MOVE: {
+                        double from1 = reversed ? toY[a] : fromY[a];
+                        double to1 = reversed ? fromY[a] : toY[a];
+                        double centerX;
+                        double centerY;
+                        double len = length[a];
+                        if (passTime >= 0 && len > 0) {
+                            double speed = len / time;
+                            centerX = from0 + (to0 - from0) / len * speed * passTime;
+                            centerY = from1 + (to1 - from1) / len * speed * passTime;
+                        } else {
+                            centerX = passTime >= 0 ? from0 : to0;
+                            centerY = passTime >= 0 ? from1 : to1;
+                        }
+                        if (type[f] == RECTANGLE) {
+                            figureX = (int) (centerX - w[f] / 2);
+                            figureY = (int) (centerY - h[f] / 2);
+                        } else {
+                            figureX = centerX - w[f] / 2;
+                            figureY = centerY - h[f] / 2;
+                        }
+                        break;
+                    }
+                    case ROTATE:
+                        figureRotation += passTime >= 0 ? from0 + (to0 - from0) / time * passTime : to0;
+                        figureFlags |= ROTATED;
+                        break;
+                    case SCALE:
+                        figureScale *= passTime >= 0 ? from0 + (to0 - from0) / time * passTime : to0;
+                        figureFlags |= SCALED;
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown animation kind " + animKind[a]);
+                }
+            }
+            x[f] = figureX;
+            y[f] = figureY;
+            rotation[f] = figureRotation;
+            scale[f] = figureScale;
+            flags[f] = figureFlags;
+        }
+    }
+
+    @Override
+    public void draw(int f, Graphics2D g2d, AffineTransform base) {
+        computeTransform(f, transform);
+        g2d.setTransform(base);
+        g2d.transform(transform);
+        g2d.setColor(palette[color[f] & 0xff]);
+        g2d.fill(shape(f));
+    }
+
+    @Override
+    public void rasterize(int f, SoftwareRasterizer rasterizer) {
+        computeTransform(f, transform);
+        int argb = palette[color[f] & 0xff].getRGB();
+        if (type[f] == RECTANGLE) {
+            rasterizer.fillRectangle(transform, (int) x[f], (int) y[f], (int) w[f], (int) h[f], argb);
+        } else {
+            rasterizer.fillEllipse(transform, x[f], y[f], w[f], h[f], argb);
+        }
+    }
+
+    @Override
+    public void bounds(int f, Rectangle2D out) {
+        computeTransform(f, transform);
+        Scene.transformedBounds(transform, x[f], y[f], w[f], h[f], out);
+    }
+
+    @Override
+    public Scene drawingView() {
+        // Shares every array but not the scratch transforms and shapes
+        return new FlatScene(this);
+    }
+
+    @Override
+    public boolean isSettled(int f, long curTime) {
+        for (int a = animStart[f], end = animStart[f + 1]; a < end; ++a) {
+            if (!Animation.isFinished(animTime[a], animCycle[a], curTime)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void envelope(int f, long from, long to, Rectangle2D out) {
+        MotionEnvelope envelope = new MotionEnvelope();
+        envelope.reset(baseX[f] + w[f] / 2, baseY[f] + h[f] / 2, from, to);
+        for (int a = animStart[f], end = animStart[f + 1]; a < end; ++a) {
+            switch (animKind[a]) {
+                case MOVE:
+                    envelope.move(fromX[a], fromY[a], toX[a], toY[a], animTime[a], animCycle[a]);
+                    break;
+                case ROTATE:
+                    envelope.rotate();
+                    break;
+                case SCALE:
+                    envelope.scale(fromX[a], toX[a], animTime[a], animCycle[a]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown animation kind " + animKind[a]);
+            }
+        }
+        envelope.store(w[f], h[f], out);
+    }
+
+    @Override
+    public boolean outline(int f, AffineTransform tr, Rectangle2D frame) {
+        computeTransform(f, tr);
+        if (type[f] == RECTANGLE) {
+            frame.setRect((int) x[f], (int) y[f], (int) w[f], (int) h[f]);
+            return false;
+        }
+        frame.setRect(x[f], y[f], w[f], h[f]);
+        return true;
+    }
+
+    @Override
+    public void timing(int f, AnimationTiming timing) {
+        for (int a = animStart[f], end = animStart[f + 1]; a < end; ++a) {
+            timing.animation(animKind[a], animTime[a], animCycle[a]);
+        }
+    }
+
+    /**
+     * Same operation order as {@link ShapeWrapper#update}, so both models produce identical pixels.
+     */
+    void computeTransform(int f, AffineTransform tr) {
+        double centerX = x[f] + w[f] / 2;
+        double centerY = y[f] + h[f] / 2;
+        tr.setToIdentity();
+        if ((flags[f] & ROTATED) != 0) {
+            tr.rotate(rotation[f], centerX, centerY);
+        }
+        if ((flags[f] & SCALED) != 0) {
+            scaleTransform.setToTranslation(centerX, centerY);
+            scaleTransform.scale(scale[f], scale[f]);
+            scaleTransform.translate(-centerX, -centerY);
+            tr.concatenate(scaleTransform);
+        }
+    }
+
+    /**
+     * @return untransformed shape of figure {@code f}, reused between calls
+     */
+    Shape shape(int f) {
+        if (type[f] == RECTANGLE) {
+            rectangle.setBounds((int) x[f], (int) y[f], (int) w[f], (int) h[f]);
+            return rectangle;
+        }
+        ellipse.setFrame(x[f], y[f], w[f], h[f]);
+        return ellipse;
+    }
+
+    static class Builder implements SceneBuilder {
+        private int width;
+        private int height;
+        private final List<Color> palette = new ArrayList<>();
+
+        private int figureCount;
+        private byte[] type = new byte[16];
+        private double[] baseX = new double[16];
+        private double[] baseY = new double[16];
+        private double[] w = new double[16];
+        private double[] h = new double[16];
+        private byte[] color = new byte[16];
+        private int[] animStart = new int[17];
+
+        private int animationCount;
+        private byte[] animKind = new byte[16];
+        private long[] animTime = new long[16];
+        private boolean[] animCycle = new boolean[16];
+        private double[] fromX = new double[16];
+        private double[] fromY = new double[16];
+        private double[] toX = new double[16];
+        private double[] toY = new double[16];
+
+        @Override
+        public void size(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void rectangle(double centerX, double centerY, double width, double height, double angle, Color color) {
+            int x = (int) centerX;
+            int y = (int) centerY;
+            int w = (int) width;
+            int h = (int) height;
+            addFigure(RECTANGLE, x - w / 2, y - h / 2, w, h, color);
+        }
+
+        @Override
+        public void circle(double centerX, double centerY, double radius, Color color) {
+            addFigure(CIRCLE, centerX - radius, centerY - radius, 2 * radius, 2 * radius, color);
+        }
+
+        private void addFigure(byte figureType, double x, double y, double width, double height, Color figureColor) {
+            if (figureCount == type.length) {
+                int capacity = figureCount * 2;
+                type = Arrays.copyOf(type, capacity);
+                baseX = Arrays.copyOf(baseX, capacity);
+                baseY = Arrays.copyOf(baseY, capacity);
+                w = Arrays.copyOf(w, capacity);
+                h = Arrays.copyOf(h, capacity);
+                color = Arrays.copyOf(color, capacity);
+                animStart = Arrays.copyOf(animStart, capacity + 1);
+            }
+            int index = palette.indexOf(figureColor);
+            if (index < 0) {
+                if (palette.size() == 256) {
+                    throw new IllegalStateException("Too many colors");
+                }
+                index = palette.size();
+                palette.add(figureColor);
+            }
+            type[figureCount] = figureType;
+            baseX[figureCount] = x;
+            baseY[figureCount] = y;
+            w[figureCount] = width;
+            h[figureCount] = height;
+            color[figureCount] = (byte) index;
+            animStart[figureCount] = animationCount;
+            ++figureCount;
+        }
+
+        @Override
+        public void move(double destX, double destY, long time, boolean cycle) {
+            int f = figureCount - 1;
+            addAnimation(MOVE, time, cycle, baseX[f] + w[f] / 2, baseY[f] + h[f] / 2, destX, destY);
+        }
+
+        @Override
+        public void rotate(double angle, long time, boolean cycle) {
+            // From -angle back to the figure's own angle, like RotateAnimation as set up by FigureListBuilder
+            addAnimation(ROTATE, time, cycle, -angle * Math.PI / 180.0, 0, 0.0, 0);
+        }
+
+        @Override
+        public void scale(double destScale, long time, boolean cycle) {
+            addAnimation(SCALE, time, cycle, 1.0, 0, destScale, 0);
+        }
+
+        private void addAnimation(byte kind, long time, boolean cycle, double x0, double y0, double x1, double y1) {
+            if (animationCount == animKind.length) {
+                int capacity = animationCount * 2;
+                animKind = Arrays.copyOf(animKind, capacity);
+                animTime = Arrays.copyOf(animTime, capacity);
+                animCycle = Arrays.copyOf(animCycle, capacity);
+                fromX = Arrays.copyOf(fromX, capacity);
+                fromY = Arrays.copyOf(fromY, capacity);
+                toX = Arrays.copyOf(toX, capacity);
+                toY = Arrays.copyOf(toY, capacity);
+            }
+            animKind[animationCount] = kind;
+            animTime[animationCount] = time;
+            animCycle[animationCount] = cycle;
+            fromX[animationCount] = x0;
+            fromY[animationCount] = y0;
+            toX[animationCount] = x1;
+            toY[animationCount] = y1;
+            ++animationCount;
+        }
+
+        @Override
+        public void endFigure() {
+            // Stable insertion sort of the figure's animations by kind
+            int start = animStart[figureCount - 1];
+            for (int i = start + 1; i < animationCount; ++i) {
+                for (int j = i; j > start && animKind[j - 1] > animKind[j]; --j) {
+                    swapAnimations(j - 1, j);
+                }
+            }
+        }
+
+        private void swapAnimations(int i, int j) {
+            byte kind = animKind[i];
+            animKind[i] = animKind[j];
+            animKind[j] = kind;
+            long time = animTime[i];
+            animTime[i] = animTime[j];
+            animTime[j] = time;
+            boolean cycle = animCycle[i];
+            animCycle[i] = animCycle[j];
+            animCycle[j] = cycle;
+            swap(fromX, i, j);
+            swap(fromY, i, j);
+            swap(toX, i, j);
+            swap(toY, i, j);
+        }
+
+        private static void swap(double[] array, int i, int j) {
+            double tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+
+        FlatScene build() {
+            animStart[figureCount] = animationCount;
+            return new FlatScene(width, height, figureCount, palette.toArray(new Color[0]),
+                    Arrays.copyOf(type, figureCount), Arrays.copyOf(baseX, figureCount),
+                    Arrays.copyOf(baseY, figureCount), Arrays.copyOf(w, figureCount), Arrays.copyOf(h, figureCount),
+                    Arrays.copyOf(color, figureCount), Arrays.copyOf(animStart, figureCount + 1),
+                    Arrays.copyOf(animKind, animationCount), Arrays.copyOf(animTime, animationCount),
+                    Arrays.copyOf(animCycle, animationCount), Arrays.copyOf(fromX, animationCount),
+                    Arrays.copyOf(fromY, animationCount), Arrays.copyOf(toX, animationCount),
+                    Arrays.copyOf(toY, animationCount));
+        }
+    }
+}
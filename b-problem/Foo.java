@@ -1,286 +1,251 @@
+package bproblem;
+
 import javax.swing.*;
-import javax.swing.Timer;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.geom.AffineTransform;
-import java.awt.geom.Ellipse2D;
-import java.util.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
-
-class ShapeWrapper {
-    final Color color;
-    Shape shape;
-    List<Animation> animations;
-
-    public ShapeWrapper(Color color, Shape shape) {
-        this.color = color;
-        this.shape = shape;
-    }
 
-    double getX() {
-        if (shape instanceof Rectangle) {
-            return ((Rectangle) shape).getX() + ((Rectangle) shape).getWidth() / 2;
-        } else if (shape instanceof Ellipse2D) {
-            return ((Ellipse2D) shape).getX() + ((Ellipse2D) shape).getWidth() / 2;
-        } else {
-            throw new IllegalStateException("Only rectangles and circles are allowed");
-        }
+public class Foo extends JPanel {
+    private static final int RECT_X = 20;
+    private static final int RECT_Y = RECT_X;
+    private final Scene scene;
+    // The same scene restricted to the panel, or null if culling is disabled
+    private final CulledScene culledScene;
+    private final RenderOptions options;
+    // Source of figure edits and the scene they apply to, or null if the scene is fixed
+    private final SceneUpdateChannel updates;
+    private final EditableScene editableScene;
+    private final SceneClock clock;
+
+    private DirtyRegionPainter dirtyRegionPainter;
+    private final FrameMetrics metrics = new FrameMetrics();
+    private final FrameScheduler scheduler;
+    private long fillNanos;
+    private int viewportWidth;
+    private int viewportHeight;
+
+    private FrameCache frameCache;
+    // Fills whole frames on several threads, or null
+    private final TiledRenderer tiledRenderer;
+    // Whole frame rendered offscreen, by the software backend or for the frame cache
+    private BufferedImage frameImage;
+    private int[] framePixels;
+    private boolean showingFrameImage;
+
+    /**
+     * @param updates channel whose edits apply to {@code scene}, which must then come from
+     *                {@link RenderOptions#loadEditable}, or null
+     */
+    public Foo(Scene scene, RenderOptions options, SceneUpdateChannel updates) {
+        this.scene = scene;
+        this.culledScene = scene instanceof CulledScene ? (CulledScene) scene : null;
+        this.options = options;
+        this.updates = updates;
+        editableScene = updates == null ? null
+                : (EditableScene) (culledScene != null ? culledScene.underlying() : scene);
+        this.clock = options.clock;
+        tiledRenderer = options.newTiledRenderer();
+        Dimension size = getPreferredSize();
+        resetViewport(size.width, size.height);
+        metrics.register();
+        scheduler = new FrameScheduler(options.targetFps, options.frameLogSeconds, metrics, this::renderFrame);
+        scheduler.start();
     }
 
-    double getY() {
-        if (shape instanceof Rectangle) {
-            return ((Rectangle) shape).getY() + ((Rectangle) shape).getHeight() / 2;
-        } else if (shape instanceof Ellipse2D) {
-            return ((Ellipse2D) shape).getY() + ((Ellipse2D) shape).getHeight() / 2;
-        } else {
-            throw new IllegalStateException("Only rectangles and circles are allowed");
+    static String colorToText(Color color) {
+        if (color.equals(Color.YELLOW)) {
+            return "yellow";
+        } else if (color.equals(Color.BLACK)) {
+            return "black";
+        } else if (color.equals(Color.RED)) {
+            return "red";
+        } else if (color.equals(Color.WHITE)) {
+            return "white";
         }
+        throw new IllegalArgumentException("Invalid color " + color);
     }
 
-    void move(double x, double y) {
-        if (shape instanceof Rectangle) {
-            ((Rectangle) shape).setLocation((int) (x - ((Rectangle) shape).getWidth() / 2), (int) (y - ((Rectangle) shape).getHeight() / 2));
-        } else if (shape instanceof Ellipse2D) {
-            shape = new Ellipse2D.Double(
-                    x - ((Ellipse2D) shape).getWidth() / 2,
-                    y - ((Ellipse2D) shape).getHeight() / 2,
-                    ((Ellipse2D) shape).getWidth(),
-                    ((Ellipse2D) shape).getHeight());
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2d = (Graphics2D) g;
+        // The scene was evaluated by renderFrame, which also picked the region to repaint
+        long started = System.nanoTime();
+        if (showingFrameImage) {
+            g2d.drawImage(frameImage, 0, 0, null);
+        } else if (dirtyRegionPainter != null) {
+            dirtyRegionPainter.paint(g2d, g2d.getTransform(), getWidth(), getHeight(), getBackground());
         } else {
-            throw new IllegalStateException("Only rectangles and circles are allowed");
+            drawFigures(g2d, g2d.getTransform());
         }
-    }
-}
-
-abstract class Animation {
-    protected ShapeWrapper wrapper;
-    protected long time;
-    protected final boolean cycle;
-
-    public Animation(ShapeWrapper wrapper, long time, boolean cycle) {
-        this.wrapper = wrapper;
-        this.time = time;
-        this.cycle = cycle;
-    }
-
-    abstract AffineTransform draw(Graphics2D g, Long curTime);
-
-}
-
-class MoveAnimation extends Animation {
-    double sourceX;
-    double sourceY;
-
-    double destX;
-    double destY;
-
-    double length;
-    double speed;
-    private long start = 0L;
-
-    public MoveAnimation(ShapeWrapper shape, long time, boolean cycle) {
-        super(shape, time, cycle);
-    }
-
-    void setSource(double x, double y) {
-        sourceX = x;
-        sourceY = y;
-        init();
+        fillNanos += System.nanoTime() - started;
     }
 
-    void setDest(double x, double y) {
-        destX = x;
-        destY = y;
-        init();
+    /**
+     * Paints all figures on top of {@code base} in two phases: every figure is evaluated first (in parallel if
+     * the evaluator is), then all of them are filled sequentially. Does not allocate per figure.
+     *
+     * @param curTime milliseconds since the scene start
+     */
+    private void paintFigures(Graphics2D g2d, AffineTransform base, long curTime) {
+        options.evaluate(scene, curTime);
+        drawFigures(g2d, base);
     }
 
-    void init() {
-        length = Math.sqrt((destX - sourceX) * (destX - sourceX) + (destY - sourceY) * (destY - sourceY));
-        speed = length / time;
+    private void drawFigures(Graphics2D g2d, AffineTransform base) {
+        scene.drawAll(g2d, base);
     }
 
-    @Override
-    AffineTransform draw(Graphics2D g, Long curTime) {
-        if (start == 0L) {
-            start = curTime;
-            wrapper.move(sourceX, sourceY);
+    /**
+     * Restricts the scene to a panel of the given size and evaluates it from scratch.
+     */
+    private void resetViewport(int width, int height) {
+        viewportWidth = width;
+        viewportHeight = height;
+        if (culledScene != null) {
+            culledScene.setViewport(0, 0, width, height);
         }
-
-        if (curTime - start < time) {
-            double normalizedDirectionX = destX - sourceX;
-            double normalizedDirectionY = destY - sourceY;
-            double normilizedDirectionLen = Math.sqrt(normalizedDirectionX * normalizedDirectionX + normalizedDirectionY * normalizedDirectionY);
-            normalizedDirectionX /= normilizedDirectionLen;
-            normalizedDirectionY /= normilizedDirectionLen;
-
-            wrapper.move(
-                    sourceX + normalizedDirectionX * speed * (curTime - start),
-                    sourceY + normalizedDirectionY * speed * (curTime - start));
+        if (options.fullRepaint || rendersWholeFrames()) {
+            options.evaluate(scene, clock.now());
         } else {
-            wrapper.move(destX, destY);
-            if (cycle) {
-                double temp = destY;
-                destY = sourceY;
-                sourceY = temp;
-
-                temp = destX;
-                destX = sourceX;
-                sourceX = temp;
-
-                start += time;
-            }
+            dirtyRegionPainter = new DirtyRegionPainter(scene);
+            dirtyRegionPainter.advance(clock.now());
         }
-        return new AffineTransform();
-    }
-}
-
-class RotateAnimation extends Animation {
-    private double destAngle;
-    private double srcAngle = 0L;
-    private Long start = 0L;
-
-    public RotateAnimation(ShapeWrapper wrapper, long time, boolean cycle) {
-        super(wrapper, time, cycle);
-    }
-
-    void setDestAngle(double destAngle) {
-        this.destAngle = destAngle * Math.PI / 180.0;
+        // Frames are only reused within one scheduler period
+        frameCache = options.newFrameCache(scene, Math.max(1, Math.round(1000 / options.targetFps)));
+        if (frameCache != null || rendersWholeFrames()) {
+            frameImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            framePixels = ((DataBufferInt) frameImage.getRaster().getDataBuffer()).getData();
+        }
+        showingFrameImage = false;
     }
 
-    public void setSrcAngle(double srcAngle) {
-        this.srcAngle = srcAngle * Math.PI / 180.0;
+    /**
+     * @return true if every frame is rendered offscreen by the software backend, tiled or not
+     */
+    private boolean rendersWholeFrames() {
+        return options.softwareBackend;
     }
 
-    @Override
-    AffineTransform draw(Graphics2D g, Long curTime) {
-        if (start == 0L) {
-            start = curTime;
+    private void renderFrameImage(long curTime) {
+        if (tiledRenderer != null) {
+            options.evaluate(scene, curTime);
+            tiledRenderer.render(scene, frameImage, getBackground());
+            return;
         }
-        AffineTransform tr = g.getTransform();
-        if (curTime - start < time) {
-            double speed = (destAngle - srcAngle) / time;
-            tr.rotate(srcAngle + speed * (curTime - start), wrapper.getX(), wrapper.getY());
-        } else {
-            tr.rotate(destAngle, wrapper.getX(), wrapper.getY());
-            if (cycle) {
-                double tmp = this.srcAngle;
-                srcAngle = destAngle;
-                destAngle = tmp;
-                start += time;
-            }
+        if (options.softwareBackend) {
+            SoftwareRasterizer rasterizer = new SoftwareRasterizer(frameImage.getWidth(), frameImage.getHeight(),
+                    framePixels);
+            rasterizer.clear(getBackground().getRGB());
+            options.evaluate(scene, curTime);
+            scene.rasterizeAll(rasterizer);
+            return;
+        }
+        Graphics2D g2d = frameImage.createGraphics();
+        try {
+            g2d.setColor(getBackground());
+            g2d.fillRect(0, 0, frameImage.getWidth(), frameImage.getHeight());
+            paintFigures(g2d, g2d.getTransform(), curTime);
+        } finally {
+            g2d.dispose();
         }
-        return tr;
-    }
-}
-
-class ScaleAnimation extends Animation {
-    double srcScale;
-    private double destScale;
-    private Long start = 0L;
-
-    public ScaleAnimation(ShapeWrapper wrapper, long time, boolean cycle) {
-        super(wrapper, time, cycle);
-    }
-
-    public void setDestScale(double destScale) {
-        this.destScale = destScale;
     }
 
-    @Override
-    AffineTransform draw(Graphics2D g, Long curTime) {
-        if (start == 0L) {
-            start = curTime;
+    /**
+     * Evaluates and paints one frame synchronously, so that the scheduler knows when it is done.
+     */
+    private void renderFrame() {
+        long started = System.nanoTime();
+        List<EditableScene.Edit> edits = updates != null ? updates.poll() : null;
+        if (edits != null) {
+            for (EditableScene.Edit edit : edits) {
+                apply(edit);
+            }
         }
-
-        AffineTransform tr = g.getTransform();
-        if (curTime - start < time) {
-            double speed = (destScale - srcScale) / time;
-            double scaleFactor = srcScale + speed * (curTime - start);
-            tr.translate(wrapper.getX(), wrapper.getY());
-            tr.scale(scaleFactor, scaleFactor);
-            tr.translate(-wrapper.getX(), -wrapper.getY());
-            g.setTransform(tr);
-        } else {
-            tr.translate(wrapper.getX(), wrapper.getY());
-            tr.scale(destScale, destScale);
-            tr.translate(-wrapper.getX(), -wrapper.getY());
-            g.setTransform(tr);
-            if (cycle) {
-                double tmp = this.destScale;
-                destScale = srcScale;
-                srcScale = tmp;
-                start += time;
+        if (getWidth() > 0 && getHeight() > 0 && (getWidth() != viewportWidth || getHeight() != viewportHeight)) {
+            resetViewport(getWidth(), getHeight());
+        }
+        long curTime = clock.now();
+        long key = frameCache != null ? frameCache.key(curTime) : -1;
+        Rectangle dirty;
+        if (key >= 0) {
+            if (!frameCache.get(key, framePixels)) {
+                renderFrameImage(frameCache.time(key));
+                frameCache.put(key, framePixels);
+            }
+            showingFrameImage = true;
+            dirty = getVisibleRect();
+        } else if (rendersWholeFrames()) {
+            renderFrameImage(curTime);
+            showingFrameImage = true;
+            dirty = getVisibleRect();
+        } else if (dirtyRegionPainter != null) {
+            dirty = dirtyRegionPainter.advance(curTime);
+            if (showingFrameImage) {
+                dirty = getVisibleRect();
             }
+            showingFrameImage = false;
+        } else {
+            options.evaluate(scene, curTime);
+            dirty = getVisibleRect();
+            showingFrameImage = false;
         }
-        return tr;
-    }
-}
-
-public class Foo extends JPanel implements ActionListener {
-    private static final int RECT_X = 20;
-    private static final int RECT_Y = RECT_X;
-    private static int RECT_WIDTH = 1000;
-    private static int RECT_HEIGHT = RECT_WIDTH;
-    private static final ArrayList<ShapeWrapper> figures = new ArrayList<>();
-
-    Timer time = new Timer(1, this);
-
-    public Foo() {
-        time.start();
-    }
-
-    static Color textToColor(String name) {
-        switch (name) {
-            case "yellow":
-                return Color.YELLOW;
-            case "black":
-                return Color.BLACK;
-            case "red":
-                return Color.RED;
-            case "white":
-                return Color.WHITE;
-            default:
-                throw new IllegalArgumentException("Invalid color " + name);
+        long evaluated = System.nanoTime();
+        fillNanos = 0;
+        if (dirty != null) {
+            paintImmediately(dirty);
         }
+        clock.frameRendered();
+        metrics.frame(evaluated - started, fillNanos, System.nanoTime() - started);
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-
-        long curTime = System.currentTimeMillis();
-        for (ShapeWrapper figure : figures) {
-            AffineTransform backup = (AffineTransform) g2d.getTransform().clone();
-            AffineTransform tr = new AffineTransform();
-            for (Animation animation : figure.animations) {
-                AffineTransform draw = animation.draw(g2d, curTime);
-                tr.concatenate(draw);
+    /**
+     * Applies one figure edit, whose scene was built off the event thread. Only the edited figure is evaluated, and
+     * only its old and new bounds are repainted.
+     */
+    private void apply(EditableScene.Edit edit) {
+        int before = edit.kind != EditableScene.Edit.ADD ? paintedIndex(edit.index) : -1;
+        editableScene.apply(edit);
+        if (culledScene != null) {
+            culledScene.edited(edit);
+        }
+        int after = edit.kind != EditableScene.Edit.REMOVE ? paintedIndex(edit.index) : -1;
+        if (before < 0 && after < 0) {
+            // Outside of the viewport
+            return;
+        }
+        if (dirtyRegionPainter != null) {
+            if (before >= 0) {
+                dirtyRegionPainter.figureRemoved(before);
+            }
+            if (after >= 0) {
+                dirtyRegionPainter.figureInserted(after);
             }
-            g2d.setTransform(tr);
-            g2d.setColor(figure.color);
-            g2d.fill(figure.shape);
-            g2d.setTransform(backup);
+        }
+        if (frameCache != null && !frameCache.edited(scene, after)) {
+            frameCache = null;
         }
     }
 
-
-    @Override
-    public void actionPerformed(ActionEvent actionEvent) {
-        repaint();
+    /**
+     * @return index of figure {@code figure} of the edited scene among the painted figures, or -1 if it is culled
+     */
+    private int paintedIndex(int figure) {
+        return culledScene != null ? culledScene.visibleIndex(figure) : figure;
     }
 
     @Override
     public Dimension getPreferredSize() {
         // so that our GUI is big enough
-        return new Dimension(RECT_WIDTH + 2 * RECT_X, RECT_HEIGHT + 2 * RECT_Y);
+        return new Dimension(scene.width() + 2 * RECT_X, scene.height() + 2 * RECT_Y);
     }
 
     // create the GUI explicitly on the Swing event thread
-    private static void createAndShowGui() {
-        Foo mainPanel = new Foo();
+    private static void createAndShowGui(Scene scene, RenderOptions options, SceneUpdateChannel updates) {
+        Foo mainPanel = new Foo(scene, options, updates);
 
         JFrame frame = new JFrame("DrawRect");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -290,89 +255,57 @@ public class Foo extends JPanel implements ActionListener {
         frame.setVisible(true);
     }
 
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
-        String line = scanner.nextLine();
-        List<Integer> tempList = Arrays.stream(line.split(" "))
-                .map(it -> Integer.parseInt(it.trim()))
-                .collect(Collectors.toList());
-        RECT_WIDTH = tempList.get(0);
-        RECT_HEIGHT = tempList.get(1);
-        int figureCount = Integer.parseInt(scanner.nextLine().trim());
-        for (int i = 0; i < figureCount; ++i) {
-            String[] input = scanner.nextLine().split(" ");
-            ShapeWrapper last;
-            if (input[0].equals("rectangle")) {
-                // rectangle centerX centerY width height angle color
-                int centerX = (int) Double.parseDouble(input[1]);
-                int centerY = (int) Double.parseDouble(input[2]);
-                int width = (int) Double.parseDouble(input[3]);
-                int height = (int) Double.parseDouble(input[4]);
-
-                Rectangle rect = new Rectangle(centerX - width / 2, centerY - height / 2, width, height);
-
-                last = new ShapeWrapper(textToColor(input[6]), rect);
-                figures.add(last);
-            } else {
-                // circle centerX centerY radius color
+    /**
+     * Usage: {@code java bproblem.Foo [--scene file] [--clock wall|fixed:<stepMillis>|fast:<factor>] [--flat]
+     * [--parallel serial|auto|<threads>] [--tiles auto|<threads>[:<tile height>]] [--full-repaint] [--fps <target>]
+     * [--frame-log <seconds>] [--no-cull] [--frame-cache <megabytes>[:deflate]] [--backend java2d|software]
+     * [--live stdin|<port>] [--headless ...|--export ...] < scene.txt}
+     * <p>
+     * The scene is read from {@code --scene} (memory-mapped) or from stdin. Compiled {@code .bscn} scenes (see
+     * {@link SceneCompiler}) always use the flat scene model. Unless {@code --no-cull} is given, figures that never
+     * enter the visible area are skipped, see {@link CulledScene}. {@code --frame-cache} reuses frames once the
+     * scene is periodic, see {@link FrameCache}. {@code --backend software} fills figures with
+     * {@link SoftwareRasterizer} instead of Java2D. {@code --tiles} fills whole frames of the software backend on
+     * several threads, see {@link TiledRenderer}. {@code --live} lets the window take figure edits from stdin or a
+     * local port while it runs, see {@link SceneUpdateChannel}; the scene must then be a text {@code --scene} file.
+     * {@code --export} streams the scene as video, see {@link VideoExporter}.
+     * {@link BatchRenderer} renders a directory of scenes with the same options.
+     * <p>
+     * Frame statistics are published over JMX as {@value FrameMetrics#OBJECT_NAME} and, with {@code --frame-log},
+     * printed to stderr periodically.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        RenderOptions options = new RenderOptions();
+        int arg = options.parse(args, 0);
+        if (arg < args.length && args[arg].equals("--export")) {
+            VideoExporter.fromArgs(options, args, arg + 1).run();
+            options.shutdown();
+            return;
+        }
+        if (arg < args.length && args[arg].equals("--headless")) {
+            Scene scene = options.load(options.sceneFile);
+            HeadlessRenderer.fromArgs(scene, options, args, arg + 1).run();
+            options.shutdown();
+            return;
+        }
 
-                double centerX = Double.parseDouble(input[1]);
-                double centerY = Double.parseDouble(input[2]);
-                double radius = Double.parseDouble(input[3]);
-                Color color = textToColor(input[4]);
-                Ellipse2D.Double ellipse = new Ellipse2D.Double(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
-                last = new ShapeWrapper(color, ellipse);
-                figures.add(last);
-            }
-            List<Animation> animations = new ArrayList<>();
-            int animationsCount = Integer.parseInt(scanner.nextLine().trim());
-            for (int j = 0; j < animationsCount; ++j) {
-                String[] s = scanner.nextLine().split(" ");
-                if (s[0].equals("move")) {
-                    // move destX destY time [cycle]
-                    MoveAnimation e = new MoveAnimation(last, (long) Double.parseDouble(s[3]), s.length >= 5);
-                    e.setSource(last.getX(), last.getY());
-                    e.setDest(Double.parseDouble(s[1]), Double.parseDouble(s[2]));
-                    animations.add(e);
-                } else if (s[0].equals("rotate")) {
-                    // rotate angle time [cycle]
-                    RotateAnimation e = new RotateAnimation(last, (long) Double.parseDouble(s[2]), s.length >= 4);
-                    double angle = Double.parseDouble(s[1]);
-                    e.setDestAngle(0);
-                    e.setSrcAngle(-angle);
-                    animations.add(e);
-                } else { // scale
-                    // scale destScale time [cycle]
-                    ScaleAnimation e = new ScaleAnimation(last, (long) Double.parseDouble(s[2]), s.length >= 4);
-                    e.setDestScale(Double.parseDouble(s[1]));
-                    e.srcScale = 1.0;
-                    animations.add(e);
-                }
+        Scene scene;
+        SceneUpdateChannel updates = null;
+        if (options.liveUpdates != null) {
+            if (options.sceneFile == null || SceneCompiler.isCompiled(options.sceneFile)) {
+                throw new IllegalArgumentException("--live needs a text scene given with --scene");
             }
-            animations.sort(new Comparator<Animation>() {
-                private int priority(Animation animation) {
-                    if (animation instanceof MoveAnimation) {
-                        return 0;
-                    }
-                    if (animation instanceof RotateAnimation) {
-                        return 1;
-                    }
-                    if (animation instanceof ScaleAnimation) {
-                        return 2;
-                    }
-                    throw new IllegalStateException("Unknown animation: " + animation);
-                }
-
-                @Override
-                public int compare(Animation x, Animation y) {
-                    return Integer.compare(priority(x), priority(y));
-                }
-            });
-            last.animations = animations;
+            SceneRecord record = SceneRecord.read(options.sceneFile);
+            scene = options.loadEditable(record);
+            updates = SceneUpdateChannel.open(options.liveUpdates, record, options);
+            updates.start();
+        } else {
+            scene = options.load(options.sceneFile);
         }
+        SceneUpdateChannel channel = updates;
         SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-                createAndShowGui();
+                createAndShowGui(scene, options, channel);
             }
         });
     }
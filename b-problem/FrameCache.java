@@ -0,0 +1,185 @@
+package bproblem;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Rendered frames of a scene in its steady state, keyed by the phase within the {@link ScenePeriod}. Phases are
+ * quantized to {@code quantum} milliseconds, so a wall clock that never hits the same millisecond twice still
+ * reuses frames; with a quantum of 1 a cached frame is exactly the frame at the requested time.
+ * <p>
+ * Memory is bounded by evicting the least recently used frames. Frames may be stored deflated, which costs some
+ * CPU per hit but typically shrinks the flat-colored frames of these scenes by two orders of magnitude.
+ */
+class FrameCache {
+    private long steadyFrom;
+    private long period;
+    private final long quantum;
+    private final long maxBytes;
+    private final boolean deflate;
+
+    // int[] pixels or byte[] deflated pixels
+    private final LinkedHashMap<Long, Object> frames = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+    private byte[] scratch = new byte[0];
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @return null if the scene never becomes periodic
+     */
+    static FrameCache create(Scene scene, long quantum, long maxBytes, boolean deflate) {
+        ScenePeriod period = ScenePeriod.of(scene);
+        if (!period.isPeriodic()) {
+            return null;
+        }
+        return new FrameCache(period.steadyFrom(), period.period(), quantum, maxBytes, deflate);
+    }
+
+    FrameCache(long steadyFrom, long period, long quantum, long maxBytes, boolean deflate) {
+        if (quantum <= 0) {
+            throw new IllegalArgumentException("Quantum must be positive: " + quantum);
+        }
+        this.steadyFrom = steadyFrom;
+        this.period = period;
+        this.quantum = quantum;
+        this.maxBytes = maxBytes;
+        this.deflate = deflate;
+    }
+
+    /**
+     * Drops the cached frames after figure {@code figure} of {@code scene} was added or replaced, or after a figure
+     * was removed if it is -1. The new figure's animations extend the period; a removed one leaves it a multiple of
+     * the scene's new period, which still holds.
+     *
+     * @return false if the scene is no longer periodic, in which case the cache must not be used anymore
+     */
+    boolean edited(Scene scene, int figure) {
+        if (figure >= 0) {
+            ScenePeriod extended = new ScenePeriod(steadyFrom, period);
+            scene.timing(figure, extended);
+            if (!extended.isPeriodic()) {
+                return false;
+            }
+            steadyFrom = extended.steadyFrom();
+            period = extended.period();
+        }
+        frames.clear();
+        bytes = 0;
+        return true;
+    }
+
+    /**
+     * @return cache key of the frame at {@code curTime} or -1 if the scene is not in its steady state yet
+     */
+    long key(long curTime) {
+        if (curTime < steadyFrom) {
+            return -1;
+        }
+        long phase = (curTime - steadyFrom) % period;
+        return phase - phase % quantum;
+    }
+
+    /**
+     * @return scene time to render the frame of {@code key} at
+     */
+    long time(long key) {
+        return steadyFrom + key;
+    }
+
+    /**
+     * Copies the cached frame into {@code pixels}.
+     *
+     * @return false if the frame is not cached
+     */
+    boolean get(long key, int[] pixels) {
+        Object frame = frames.get(key);
+        if (frame == null) {
+            ++misses;
+            return false;
+        }
+        ++hits;
+        if (frame instanceof int[]) {
+            System.arraycopy((int[]) frame, 0, pixels, 0, pixels.length);
+        } else {
+            inflate((byte[]) frame, pixels);
+        }
+        return true;
+    }
+
+    void put(long key, int[] pixels) {
+        Object frame = deflate ? deflate(pixels) : pixels.clone();
+        long size = size(frame);
+        if (size > maxBytes) {
+            return;
+        }
+        Object old = frames.put(key, frame);
+        bytes += size - (old == null ? 0 : size(old));
+        Iterator<Map.Entry<Long, Object>> eldest = frames.entrySet().iterator();
+        while (bytes > maxBytes) {
+            bytes -= size(eldest.next().getValue());
+            eldest.remove();
+            ++evictions;
+        }
+    }
+
+    private static long size(Object frame) {
+        return frame instanceof int[] ? 4L * ((int[]) frame).length : ((byte[]) frame).length;
+    }
+
+    private Object deflate(int[] pixels) {
+        if (scratch.length < pixels.length * 4) {
+            scratch = new byte[pixels.length * 4];
+        }
+        ByteBuffer.wrap(scratch).asIntBuffer().put(pixels);
+        deflater.reset();
+        deflater.setInput(scratch, 0, pixels.length * 4);
+        deflater.finish();
+        byte[] out = new byte[Math.max(64, pixels.length / 16)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length) {
+                if (out.length >= pixels.length * 4) {
+                    // Does not compress, keep it as is
+                    return pixels.clone();
+                }
+                out = Arrays.copyOf(out, Math.min(out.length * 2, pixels.length * 4));
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    private void inflate(byte[] frame, int[] pixels) {
+        if (scratch.length < pixels.length * 4) {
+            scratch = new byte[pixels.length * 4];
+        }
+        inflater.reset();
+        inflater.setInput(frame);
+        try {
+            int length = 0;
+            while (length < pixels.length * 4 && !inflater.finished()) {
+                length += inflater.inflate(scratch, length, pixels.length * 4 - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted cached frame", e);
+        }
+        ByteBuffer.wrap(scratch).asIntBuffer().get(pixels);
+    }
+
+    String summary() {
+        return String.format("frame cache: period %d ms from %d ms, %d hits, %d misses, %d evictions, %d frames in %.1f MiB",
+                period, steadyFrom, hits, misses, evictions, frames.size(), bytes / (1024.0 * 1024.0));
+    }
+}
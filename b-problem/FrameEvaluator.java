@@ -0,0 +1,100 @@
+package bproblem;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the per-figure evaluation phase of a frame either on the calling thread or chunked over a fork/join pool.
+ * Figures are independent, so any split of the index range gives the same result.
+ */
+class FrameEvaluator {
+    static final int DEFAULT_CHUNK = 512;
+
+    interface RangeAction {
+        void run(int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+    private final int chunk;
+
+    /**
+     * @param parallelism number of worker threads, 1 or less evaluates on the calling thread
+     */
+    FrameEvaluator(int parallelism, int chunk) {
+        if (chunk <= 0) {
+            throw new IllegalArgumentException("Chunk must be positive: " + chunk);
+        }
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.chunk = chunk;
+    }
+
+    static FrameEvaluator serial() {
+        return new FrameEvaluator(1, DEFAULT_CHUNK);
+    }
+
+    /**
+     * Parses {@code serial}, {@code auto} or a thread count.
+     */
+    static FrameEvaluator parse(String spec) {
+        switch (spec) {
+            case "serial":
+                return serial();
+            case "auto":
+                return new FrameEvaluator(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK);
+            default:
+                return new FrameEvaluator(Integer.parseInt(spec), DEFAULT_CHUNK);
+        }
+    }
+
+    boolean isParallel() {
+        return pool != null;
+    }
+
+    int parallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /**
+     * Calls {@code action} on disjoint subranges covering {@code 0 until count} and waits for all of them.
+     */
+    void forEachRange(int count, RangeAction action) {
+        if (pool == null || count <= chunk) {
+            action.run(0, count);
+        } else {
+            pool.invoke(new RangeTask(action, 0, count, chunk));
+        }
+    }
+
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        // RecursiveAction is Serializable, tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final RangeAction action;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        RangeTask(RangeAction action, int from, int to, int chunk) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                action.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(action, from, middle, chunk), new RangeTask(action, middle, to, chunk));
+        }
+    }
+}
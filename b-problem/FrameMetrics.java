@@ -0,0 +1,126 @@
+package bproblem;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Frame time statistics: a histogram of whole frame times with {@value #BUCKET_NANOS} ns buckets, dropped frames
+ * and the split between animation evaluation and filling the figures. Recording does not allocate.
+ */
+class FrameMetrics implements FrameMetricsMBean {
+    static final String OBJECT_NAME = "bproblem:type=FrameMetrics";
+
+    private static final long BUCKET_NANOS = 100_000;
+    // The last bucket collects every frame of 100 ms and more
+    private final long[] histogram = new long[1001];
+
+    private long frames;
+    private long dropped;
+    private long totalNanos;
+    private long maxNanos;
+    private long evaluationNanos;
+    private long fillNanos;
+
+    synchronized void frame(long evaluationNanos, long fillNanos, long frameNanos) {
+        ++frames;
+        this.evaluationNanos += evaluationNanos;
+        this.fillNanos += fillNanos;
+        totalNanos += frameNanos;
+        maxNanos = Math.max(maxNanos, frameNanos);
+        ++histogram[(int) Math.min(frameNanos / BUCKET_NANOS, histogram.length - 1)];
+    }
+
+    synchronized void dropped(long count) {
+        dropped += count;
+    }
+
+    /**
+     * @return upper bound of the histogram bucket holding the {@code quantile} of frame times, in milliseconds
+     */
+    synchronized double percentileMillis(double quantile) {
+        if (frames == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * frames);
+        long seen = 0;
+        for (int i = 0; i < histogram.length - 1; ++i) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return Math.min((i + 1) * BUCKET_NANOS, maxNanos) / 1e6;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    @Override
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public synchronized long getDroppedFrames() {
+        return dropped;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(0.5);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    @Override
+    public synchronized double getMaxMillis() {
+        return maxNanos / 1e6;
+    }
+
+    @Override
+    public synchronized double getMeanMillis() {
+        return frames == 0 ? 0 : totalNanos / 1e6 / frames;
+    }
+
+    @Override
+    public synchronized double getMeanEvaluationMillis() {
+        return frames == 0 ? 0 : evaluationNanos / 1e6 / frames;
+    }
+
+    @Override
+    public synchronized double getMeanFillMillis() {
+        return frames == 0 ? 0 : fillNanos / 1e6 / frames;
+    }
+
+    @Override
+    public synchronized String getSummary() {
+        return String.format("frames %d, dropped %d, p50 %.1f ms, p99 %.1f ms, max %.1f ms, "
+                        + "evaluation %.2f ms + fill %.2f ms per frame",
+                frames, dropped, getP50Millis(), getP99Millis(), getMaxMillis(),
+                getMeanEvaluationMillis(), getMeanFillMillis());
+    }
+
+    @Override
+    public synchronized void reset() {
+        Arrays.fill(histogram, 0);
+        frames = 0;
+        dropped = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        evaluationNanos = 0;
+        fillNanos = 0;
+    }
+
+    /**
+     * Registers this instance with the platform MBean server. A failure is reported but does not stop rendering.
+     */
+    void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("Cannot register frame metrics: " + e);
+        }
+    }
+}
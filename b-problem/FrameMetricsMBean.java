@@ -0,0 +1,26 @@
+package bproblem;
+
+/**
+ * JMX view of {@link FrameMetrics}, registered as {@value FrameMetrics#OBJECT_NAME}. Times are in milliseconds.
+ */
+public interface FrameMetricsMBean {
+    long getFrames();
+
+    long getDroppedFrames();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getMeanMillis();
+
+    double getMeanEvaluationMillis();
+
+    double getMeanFillMillis();
+
+    String getSummary();
+
+    void reset();
+}
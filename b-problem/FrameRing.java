@@ -0,0 +1,105 @@
+package bproblem;
+
+import java.util.Arrays;
+
+/**
+ * Bounded ring of reusable frame buffers between any number of producers and one consumer that takes frames in
+ * order. Frame {@code i} always lives in slot {@code i % capacity}. A producer blocks until the consumer has
+ * released the frame that used the slot before, so the ring never holds more than {@code capacity} frames however
+ * long the stream is.
+ * <p>
+ * A failure on either side, reported with {@link #fail}, wakes up and fails every waiting thread.
+ */
+class FrameRing<T> {
+    private final T[] slots;
+    // Frame published into each slot, -1 while the slot is being filled
+    private final long[] published;
+    private long released;
+    private Throwable failure;
+    private long producerWaits;
+    private long consumerWaits;
+
+    FrameRing(T[] slots) {
+        if (slots.length == 0) {
+            throw new IllegalArgumentException("Ring needs at least one slot");
+        }
+        this.slots = slots;
+        published = new long[slots.length];
+        Arrays.fill(published, -1);
+    }
+
+    /**
+     * Waits until the slot of {@code frame} is free.
+     *
+     * @return buffer to render {@code frame} into, owned by the caller until {@link #publish}
+     */
+    synchronized T acquire(long frame) throws InterruptedException {
+        if (frame >= released + slots.length) {
+            ++producerWaits;
+            while (frame >= released + slots.length && failure == null) {
+                wait();
+            }
+        }
+        checkFailure();
+        return slots[slot(frame)];
+    }
+
+    synchronized void publish(long frame) {
+        published[slot(frame)] = frame;
+        notifyAll();
+    }
+
+    /**
+     * Waits until {@code frame} is published. Frames must be taken in order.
+     *
+     * @return buffer holding {@code frame}, owned by the caller until {@link #release}
+     */
+    synchronized T take(long frame) throws InterruptedException {
+        int slot = slot(frame);
+        if (published[slot] != frame) {
+            ++consumerWaits;
+            while (published[slot] != frame && failure == null) {
+                wait();
+            }
+        }
+        checkFailure();
+        return slots[slot];
+    }
+
+    synchronized void release(long frame) {
+        published[slot(frame)] = -1;
+        released = frame + 1;
+        notifyAll();
+    }
+
+    synchronized void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return times a producer found the ring full
+     */
+    synchronized long producerWaits() {
+        return producerWaits;
+    }
+
+    /**
+     * @return times the consumer found the next frame missing
+     */
+    synchronized long consumerWaits() {
+        return consumerWaits;
+    }
+
+    private int slot(long frame) {
+        return (int) (frame % slots.length);
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Frame stream failed", failure);
+        }
+    }
+}
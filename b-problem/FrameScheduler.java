@@ -0,0 +1,76 @@
+package bproblem;
+
+import javax.swing.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces frames on the Swing event thread at a fixed rate, like vsync. At most one frame is queued at a time: a
+ * slot that comes while the previous frame is still running is coalesced into it, and slots missed because the
+ * scheduler woke up late are skipped rather than rendered back to back. Both count as dropped frames.
+ */
+class FrameScheduler {
+    private final long periodNanos;
+    private final long logIntervalNanos;
+    private final FrameMetrics metrics;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final Runnable runFrame;
+    private final Thread thread;
+
+    /**
+     * @param logIntervalSeconds period of the metrics line on stderr, 0 disables it
+     */
+    FrameScheduler(double fps, double logIntervalSeconds, FrameMetrics metrics, Runnable frame) {
+        if (!(fps > 0)) {
+            throw new IllegalArgumentException("Target FPS must be positive: " + fps);
+        }
+        this.periodNanos = Math.max(1, (long) (1e9 / fps));
+        this.logIntervalNanos = (long) (logIntervalSeconds * 1e9);
+        this.metrics = metrics;
+        this.runFrame = () -> {
+            try {
+                frame.run();
+            } finally {
+                pending.set(false);
+            }
+        };
+        thread = new Thread(this::loop, "frame-scheduler");
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void stop() {
+        thread.interrupt();
+    }
+
+    private void loop() {
+        long deadline = System.nanoTime();
+        long nextLog = deadline + logIntervalNanos;
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                continue;
+            }
+            long missed = (now - deadline) / periodNanos;
+            if (missed > 0) {
+                metrics.dropped(missed);
+                deadline += missed * periodNanos;
+            }
+            if (pending.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(runFrame);
+            } else {
+                metrics.dropped(1);
+            }
+            deadline += periodNanos;
+
+            if (logIntervalNanos > 0 && now >= nextLog) {
+                System.err.println(metrics.getSummary());
+                nextLog = now + logIntervalNanos;
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package bproblem;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+
+/**
+ * Renders a scene into an offscreen image without opening a window.
+ * <p>
+ * Usage: {@code java bproblem.Foo [--flat] --headless --frames 0..10000 step 16 [--format png|raw|none] [--out dir]
+ * < input/10.txt}
+ * <p>
+ * {@code png} writes {@code frame-<time>.png} files into the output directory, {@code raw} writes
+ * {@code width * height * 4} bytes of RGBA per frame to stdout and {@code none} only renders. Timestamps are
+ * milliseconds since scene start.
+ */
+class HeadlessRenderer {
+    static final Color BACKGROUND = new Color(238, 238, 238);
+
+    enum Format {
+        PNG, RAW, NONE
+    }
+
+    private final Scene scene;
+    private final RenderOptions options;
+    private final long from;
+    private final long to;
+    private final long step;
+    private final Format format;
+    private final File outDir;
+
+    private final BufferedImage image;
+    private final Graphics2D g2d;
+    private final AffineTransform identity = new AffineTransform();
+    private final int[] pixels;
+    private byte[] rgba;
+    private final FrameMetrics metrics = new FrameMetrics();
+    private final FrameCache frameCache;
+    private final SoftwareRasterizer rasterizer;
+    private final TiledRenderer tiledRenderer;
+
+    HeadlessRenderer(Scene scene, RenderOptions options, long from, long to, long step, Format format, File outDir) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Frame step must be positive: " + step);
+        }
+        if (to < from) {
+            throw new IllegalArgumentException("Empty frame range: " + from + ".." + to);
+        }
+        this.scene = scene;
+        this.options = options;
+        this.from = from;
+        this.to = to;
+        this.step = step;
+        this.format = format;
+        this.outDir = outDir;
+        frameCache = options.newFrameCache(scene, 1);
+        image = new BufferedImage(scene.width(), scene.height(), BufferedImage.TYPE_INT_ARGB);
+        g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        rasterizer = options.softwareBackend ? new SoftwareRasterizer(image.getWidth(), image.getHeight(), pixels) : null;
+        tiledRenderer = options.newTiledRenderer();
+    }
+
+    static HeadlessRenderer fromArgs(Scene scene, RenderOptions options, String[] args, int offset) {
+        return new HeadlessRenderer(scene, options, Frames.parse(args, offset));
+    }
+
+    HeadlessRenderer(Scene scene, RenderOptions options, Frames frames) {
+        this(scene, options, frames.from, frames.to, frames.step, frames.format, frames.outDir);
+    }
+
+    /**
+     * Frame options of the command line, parsed before there is a scene to render.
+     */
+    static final class Frames {
+        long from = 0;
+        long to = 10000;
+        long step = 16;
+        Format format = Format.PNG;
+        File outDir = new File("frames");
+
+        static Frames parse(String[] args, int offset) {
+            Frames frames = new Frames();
+            for (int i = offset; i < args.length; ++i) {
+                switch (args[i]) {
+                    case "--frames":
+                        // --frames from..to [step N]
+                        String[] range = args[++i].split("\\.\\.");
+                        if (range.length != 2) {
+                            throw new IllegalArgumentException("Invalid frame range " + args[i]);
+                        }
+                        frames.from = Long.parseLong(range[0].trim());
+                        frames.to = Long.parseLong(range[1].trim());
+                        if (i + 2 < args.length && args[i + 1].equals("step")) {
+                            frames.step = Long.parseLong(args[i + 2]);
+                            i += 2;
+                        }
+                        break;
+                    case "--format":
+                        try {
+                            frames.format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException e) {
+                            throw new IllegalArgumentException("Invalid format " + args[i]);
+                        }
+                        break;
+                    case "--out":
+                        frames.outDir = new File(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            return frames;
+        }
+    }
+
+    /**
+     * Renders every frame into the output directory or to stdout and prints statistics to stderr, then shuts down.
+     */
+    void run() throws IOException {
+        OutputStream out = format == Format.RAW ? new BufferedOutputStream(System.out, 1 << 16) : null;
+        long started = System.nanoTime();
+        long frames;
+        try {
+            frames = render(outDir, out);
+        } finally {
+            shutdown();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.err.printf("Rendered %d frames of %dx%d in %.3f s (%.1f fps)%n",
+                frames, image.getWidth(), image.getHeight(), seconds, frames / seconds);
+        System.err.println(metrics.getSummary());
+        if (frameCache != null) {
+            System.err.println(frameCache.summary());
+        }
+    }
+
+    /**
+     * Renders every frame, writing PNG files into {@code pngDir} or raw frames to {@code rawOut} depending on the
+     * format. Flushes but does not close {@code rawOut}.
+     *
+     * @return number of rendered frames
+     */
+    long render(File pngDir, OutputStream rawOut) throws IOException {
+        if (format == Format.PNG && !pngDir.isDirectory() && !pngDir.mkdirs()) {
+            throw new IOException("Cannot create " + pngDir);
+        }
+        long frames = 0;
+        for (long t = from; t <= to; t += step) {
+            renderFrame(t);
+            if (format == Format.RAW) {
+                writeRgba(rawOut);
+            } else if (format == Format.PNG) {
+                ImageIO.write(image, "png", new File(pngDir, String.format("frame-%06d.png", t)));
+            }
+            ++frames;
+        }
+        if (rawOut != null) {
+            rawOut.flush();
+        }
+        return frames;
+    }
+
+    /**
+     * Stops the worker threads of the tiled renderer, if any.
+     */
+    void shutdown() {
+        if (tiledRenderer != null) {
+            tiledRenderer.shutdown();
+        }
+    }
+
+    FrameMetrics metrics() {
+        return metrics;
+    }
+
+    FrameCache frameCache() {
+        return frameCache;
+    }
+
+    /**
+     * @return bytes held by the renderer besides the scene: frame buffers and the frame cache budget
+     */
+    long footprintBytes() {
+        long bytes = (long) pixels.length * (format == Format.RAW ? 8 : 4);
+        return frameCache != null ? bytes + options.frameCacheBytes : bytes;
+    }
+
+    /**
+     * @return upper bound of {@link #footprintBytes()} for a {@code width} x {@code height} scene, known before the
+     * scene is loaded
+     */
+    static long footprintBytes(int width, int height, Format format, RenderOptions options) {
+        long bytes = (long) width * height * (format == Format.RAW ? 8 : 4);
+        return options.frameCacheBytes > 0 ? bytes + options.frameCacheBytes : bytes;
+    }
+
+    private void renderFrame(long curTime) {
+        long started = System.nanoTime();
+        long key = frameCache != null ? frameCache.key(curTime) : -1;
+        if (key >= 0 && frameCache.get(key, pixels)) {
+            metrics.frame(0, 0, System.nanoTime() - started);
+            return;
+        }
+        options.evaluate(scene, curTime);
+        long evaluated = System.nanoTime();
+        if (tiledRenderer != null) {
+            tiledRenderer.render(scene, image, BACKGROUND);
+        } else if (rasterizer != null) {
+            rasterizer.clear(BACKGROUND.getRGB());
+            scene.rasterizeAll(rasterizer);
+        } else {
+            g2d.setTransform(identity);
+            g2d.setColor(BACKGROUND);
+            g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+            scene.drawAll(g2d, identity);
+        }
+        long filled = System.nanoTime();
+        if (key >= 0) {
+            frameCache.put(key, pixels);
+        }
+        metrics.frame(evaluated - started, filled - evaluated, filled - started);
+    }
+
+    private void writeRgba(OutputStream out) throws IOException {
+        if (rgba == null) {
+            rgba = new byte[pixels.length * 4];
+        }
+        for (int i = 0, j = 0; i < pixels.length; ++i) {
+            int argb = pixels[i];
+            rgba[j++] = (byte) (argb >> 16);
+            rgba[j++] = (byte) (argb >> 8);
+            rgba[j++] = (byte) argb;
+            rgba[j++] = (byte) (argb >>> 24);
+        }
+        out.write(rgba);
+    }
+}
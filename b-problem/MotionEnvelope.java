@@ -0,0 +1,144 @@
+package bproblem;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Accumulates the box a figure can occupy over the whole scene or a window of it: the range of its center, whether
+ * it rotates and the largest scale factor. Figures are rotated and scaled about their center, so the center range
+ * grown by the (possibly rotated) scaled half extents contains every frame.
+ */
+class MotionEnvelope {
+    // Rectangle centers are truncated to whole pixels, and rasterization may touch the pixel around an edge
+    private static final double MARGIN = 2;
+
+    private double minCenterX;
+    private double minCenterY;
+    private double maxCenterX;
+    private double maxCenterY;
+    private double maxScale;
+    private boolean rotated;
+    private boolean moved;
+    private long windowFrom;
+    private long windowTo;
+    private double minProgress;
+    private double maxProgress;
+
+    /**
+     * Starts the envelope over the whole scene.
+     */
+    void reset(double centerX, double centerY) {
+        reset(centerX, centerY, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * Starts the envelope over the scene times {@code from} until {@code to}.
+     */
+    void reset(double centerX, double centerY, long from, long to) {
+        minCenterX = maxCenterX = centerX;
+        minCenterY = maxCenterY = centerY;
+        maxScale = 1;
+        rotated = false;
+        moved = false;
+        windowFrom = from;
+        windowTo = to;
+    }
+
+    /**
+     * Adds the part of a move from {@code (sourceX, sourceY)} to {@code (destX, destY)} that falls into the
+     * window, see {@link Animation#passTime}.
+     */
+    void move(double sourceX, double sourceY, double destX, double destY, long time, boolean cycle) {
+        progress(time, cycle);
+        move(interpolate(sourceX, destX, minProgress), interpolate(sourceY, destY, minProgress),
+                interpolate(sourceX, destX, maxProgress), interpolate(sourceY, destY, maxProgress));
+    }
+
+    /**
+     * Any point of the segment from {@code (fromX, fromY)} to {@code (toX, toY)} may be the center. A move always
+     * places the figure, so the first one replaces the center the envelope was reset to.
+     */
+    void move(double fromX, double fromY, double toX, double toY) {
+        if (!moved) {
+            minCenterX = maxCenterX = fromX;
+            minCenterY = maxCenterY = fromY;
+            moved = true;
+        }
+        minCenterX = Math.min(minCenterX, Math.min(fromX, toX));
+        minCenterY = Math.min(minCenterY, Math.min(fromY, toY));
+        maxCenterX = Math.max(maxCenterX, Math.max(fromX, toX));
+        maxCenterY = Math.max(maxCenterY, Math.max(fromY, toY));
+    }
+
+    void rotate() {
+        rotated = true;
+    }
+
+    /**
+     * The figure may be scaled by any factor between {@code from} and {@code to}.
+     */
+    void scale(double from, double to) {
+        maxScale *= Math.max(Math.abs(from), Math.abs(to));
+    }
+
+    /**
+     * Adds the part of a scale from {@code source} to {@code dest} that falls into the window.
+     */
+    void scale(double source, double dest, long time, boolean cycle) {
+        progress(time, cycle);
+        scale(interpolate(source, dest, minProgress), interpolate(source, dest, maxProgress));
+    }
+
+    /**
+     * Stores the range of the fraction of the way from source to destination within the window. The fraction
+     * moves monotonically within one pass and covers all of 0..1 across a pass boundary.
+     */
+    private void progress(long time, boolean cycle) {
+        if (time <= 0) {
+            // Finished from the start
+            minProgress = maxProgress = 1;
+            return;
+        }
+        long from = Math.max(windowFrom, 0);
+        long to = Math.max(windowTo, 0);
+        if (cycle && from / time != to / time) {
+            minProgress = 0;
+            maxProgress = 1;
+            return;
+        }
+        double first = progress(time, cycle, from);
+        double last = progress(time, cycle, to);
+        minProgress = Math.min(first, last);
+        maxProgress = Math.max(first, last);
+    }
+
+    private static double progress(long time, boolean cycle, long curTime) {
+        long passTime = Animation.passTime(time, cycle, curTime);
+        if (passTime < 0) {
+            return 1;
+        }
+        double fraction = (double) passTime / time;
+        return Animation.isReversed(time, cycle, curTime) ? 1 - fraction : fraction;
+    }
+
+    private static double interpolate(double source, double dest, double progress) {
+        if (progress == 0) {
+            return source;
+        }
+        return progress == 1 ? dest : source + (dest - source) * progress;
+    }
+
+    void store(double width, double height, Rectangle2D out) {
+        double halfWidth;
+        double halfHeight;
+        if (rotated) {
+            halfWidth = halfHeight = Math.sqrt(width * width + height * height) / 2;
+        } else {
+            halfWidth = width / 2;
+            halfHeight = height / 2;
+        }
+        halfWidth = halfWidth * maxScale + MARGIN;
+        halfHeight = halfHeight * maxScale + MARGIN;
+        out.setRect(minCenterX - halfWidth, minCenterY - halfHeight,
+                maxCenterX - minCenterX + 2 * halfWidth, maxCenterY - minCenterY + 2 * halfHeight);
+    }
+}
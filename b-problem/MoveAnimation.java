@@ -0,0 +1,64 @@
+package bproblem;
+
+class MoveAnimation extends Animation {
+    double sourceX;
+    double sourceY;
+
+    double destX;
+    double destY;
+
+    double length;
+    double speed;
+
+    public MoveAnimation(ShapeWrapper shape, long time, boolean cycle) {
+        super(shape, time, cycle);
+    }
+
+    void setSource(double x, double y) {
+        sourceX = x;
+        sourceY = y;
+        init();
+    }
+
+    void setDest(double x, double y) {
+        destX = x;
+        destY = y;
+        init();
+    }
+
+    void init() {
+        length = Math.sqrt((destX - sourceX) * (destX - sourceX) + (destY - sourceY) * (destY - sourceY));
+        speed = length / time;
+    }
+
+    @Override
+    void apply(long curTime) {
+        boolean reversed = isReversed(curTime);
+        double fromX = reversed ? destX : sourceX;
+        double fromY = reversed ? destY : sourceY;
+        double toX = reversed ? sourceX : destX;
+        double toY = reversed ? sourceY : destY;
+
+        long passTime = passTime(curTime);
+        if (passTime >= 0 && length > 0) {
+            double normalizedDirectionX = (toX - fromX) / length;
+            double normalizedDirectionY = (toY - fromY) / length;
+
+            wrapper.move(
+                    fromX + normalizedDirectionX * speed * passTime,
+                    fromY + normalizedDirectionY * speed * passTime);
+        } else {
+            wrapper.move(passTime >= 0 ? fromX : toX, passTime >= 0 ? fromY : toY);
+        }
+    }
+
+    @Override
+    void envelope(MotionEnvelope envelope) {
+        envelope.move(sourceX, sourceY, destX, destY, time, cycle);
+    }
+
+    @Override
+    byte kind() {
+        return FlatScene.MOVE;
+    }
+}
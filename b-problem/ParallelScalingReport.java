@@ -0,0 +1,80 @@
+package bproblem;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Measures the evaluation phase of a frame on synthetic scenes for 1..N threads and prints a speedup table.
+ * <p>
+ * Usage: {@code java bproblem.ParallelScalingReport [maxThreads [frames [figureCount...]]]}
+ */
+class ParallelScalingReport {
+    private static final long FRAME_STEP = 16;
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int frames = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int[] figureCounts = {100_000, 1_000_000};
+        if (args.length > 2) {
+            figureCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; ++i) {
+                figureCounts[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("model    figures  threads  ms/frame  speedup");
+        for (int figureCount : figureCounts) {
+            FlatScene.Builder flatBuilder = new FlatScene.Builder();
+            SceneGenerator.generate(flatBuilder, 1300, 400, figureCount, 42);
+            FlatScene flat = flatBuilder.build();
+
+            FigureListBuilder objectBuilder = new FigureListBuilder(new ArrayList<>());
+            SceneGenerator.generate(objectBuilder, 1300, 400, figureCount, 42);
+            Scene objects = objectBuilder.build();
+
+            double flatBaseline = 0;
+            double objectBaseline = 0;
+            for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+                FrameEvaluator evaluator = new FrameEvaluator(threads, FrameEvaluator.DEFAULT_CHUNK);
+                double flatMillis = measure(frames, curTime ->
+                        evaluator.forEachRange(flat.figureCount, (from, to) -> flat.evaluate(curTime, from, to)));
+                double objectMillis = measure(frames, curTime ->
+                        evaluator.forEachRange(objects.figureCount(), (from, to) -> objects.evaluate(curTime, from, to)));
+                evaluator.shutdown();
+                if (threads == 1) {
+                    flatBaseline = flatMillis;
+                    objectBaseline = objectMillis;
+                }
+                print("flat", figureCount, threads, flatMillis, flatBaseline);
+                print("object", figureCount, threads, objectMillis, objectBaseline);
+            }
+        }
+    }
+
+    private interface Frame {
+        void evaluate(long curTime);
+    }
+
+    private static double measure(int frames, Frame frame) {
+        // Warm up with the same timestamps so the JIT sees every branch
+        for (int i = 0; i < frames; ++i) {
+            frame.evaluate(i * FRAME_STEP);
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < frames; ++i) {
+            frame.evaluate(i * FRAME_STEP);
+        }
+        return (System.nanoTime() - started) / 1e6 / frames;
+    }
+
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) {
+            return maxThreads + 1;
+        }
+        return Math.min(threads * 2, maxThreads);
+    }
+
+    private static void print(String model, int figureCount, int threads, double millis, double baseline) {
+        System.out.printf(Locale.ROOT, "%-6s %9d %8d %9.3f %8.2f%n", model, figureCount, threads, millis, baseline / millis);
+    }
+}
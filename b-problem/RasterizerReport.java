@@ -0,0 +1,87 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Compares the fill phase of a frame between Java2D and {@link SoftwareRasterizer}: milliseconds per frame and the
+ * share of pixels that differ, for the given text scenes and for synthetic scenes.
+ * <p>
+ * Usage: {@code java bproblem.RasterizerReport [frames [scene.txt...]]}
+ */
+class RasterizerReport {
+    private static final long FRAME_STEP = 16;
+    private static final int[] GENERATED_FIGURE_COUNTS = {1_000, 10_000, 100_000};
+
+    public static void main(String[] args) throws IOException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+        System.out.println("scene                figures  java2d ms  software ms  speedup  differing pixels");
+        for (int i = 1; i < args.length; ++i) {
+            FlatScene.Builder builder = new FlatScene.Builder();
+            SceneParser.parse(Paths.get(args[i]), builder);
+            report(args[i], builder.build(), frames);
+        }
+        for (int figureCount : GENERATED_FIGURE_COUNTS) {
+            FlatScene.Builder builder = new FlatScene.Builder();
+            SceneGenerator.generate(builder, 1300, 400, figureCount, 42);
+            report("generated", builder.build(), frames);
+        }
+    }
+
+    private static void report(String name, Scene scene, int frames) {
+        BufferedImage java2dImage = new BufferedImage(scene.width(), scene.height(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage softwareImage = new BufferedImage(scene.width(), scene.height(), BufferedImage.TYPE_INT_RGB);
+        int[] java2dPixels = ((DataBufferInt) java2dImage.getRaster().getDataBuffer()).getData();
+        int[] softwarePixels = ((DataBufferInt) softwareImage.getRaster().getDataBuffer()).getData();
+        Graphics2D g2d = java2dImage.createGraphics();
+        AffineTransform identity = new AffineTransform();
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(scene.width(), scene.height(), softwarePixels);
+        int background = HeadlessRenderer.BACKGROUND.getRGB();
+
+        long differing = 0;
+        long java2dNanos = 0;
+        long softwareNanos = 0;
+        try {
+            // The first pass warms up both backends, the second one is measured
+            for (int pass = 0; pass < 2; ++pass) {
+                differing = 0;
+                java2dNanos = 0;
+                softwareNanos = 0;
+                for (int frame = 0; frame < frames; ++frame) {
+                    scene.evaluate(frame * FRAME_STEP);
+
+                    long started = System.nanoTime();
+                    g2d.setTransform(identity);
+                    g2d.setColor(HeadlessRenderer.BACKGROUND);
+                    g2d.fillRect(0, 0, scene.width(), scene.height());
+                    scene.drawAll(g2d, identity);
+                    long drawn = System.nanoTime();
+                    rasterizer.clear(background);
+                    scene.rasterizeAll(rasterizer);
+                    long rasterized = System.nanoTime();
+
+                    java2dNanos += drawn - started;
+                    softwareNanos += rasterized - drawn;
+                    for (int p = 0; p < java2dPixels.length; ++p) {
+                        if (java2dPixels[p] != softwarePixels[p]) {
+                            ++differing;
+                        }
+                    }
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        double java2dMillis = java2dNanos / 1e6 / frames;
+        double softwareMillis = softwareNanos / 1e6 / frames;
+        System.out.printf(Locale.ROOT, "%-18s %9d %10.3f %12.3f %8.2f %16.5f%%%n", name, scene.figureCount(),
+                java2dMillis, softwareMillis, java2dMillis / softwareMillis,
+                100.0 * differing / ((long) frames * java2dPixels.length));
+    }
+}
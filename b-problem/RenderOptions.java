@@ -0,0 +1,215 @@
+package bproblem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Rendering options shared by {@link Foo}, {@link HeadlessRenderer} and {@link BatchRenderer}. Options hold no scene
+ * state, so one instance can configure any number of scenes rendered side by side.
+ */
+class RenderOptions {
+    Path sceneFile;
+    SceneClock clock = new WallClock();
+    FrameEvaluator evaluator = FrameEvaluator.serial();
+    // Threads and tile height of the TiledRenderer of every renderer, 0 threads to fill frames on the calling thread
+    int tileThreads;
+    int tileHeight = TiledRenderer.DEFAULT_TILE_HEIGHT;
+    boolean flat;
+    boolean cull = true;
+    boolean fullRepaint;
+    boolean softwareBackend;
+    double targetFps = 60;
+    double frameLogSeconds;
+    // "stdin" or a local port to read scene updates from, see SceneUpdateChannel, or null
+    String liveUpdates;
+    long frameCacheBytes;
+    boolean frameCacheDeflate;
+
+    /**
+     * Parses the options starting at {@code args[arg]}, see {@link Foo#main}.
+     *
+     * @return index of the first argument that is not an option
+     */
+    int parse(String[] args, int arg) {
+        while (arg < args.length) {
+            if (args[arg].equals("--scene")) {
+                sceneFile = Paths.get(args[arg + 1]);
+                arg += 2;
+            } else if (args[arg].equals("--clock")) {
+                clock = SceneClock.parse(args[arg + 1]);
+                arg += 2;
+            } else if (args[arg].equals("--flat")) {
+                flat = true;
+                ++arg;
+            } else if (args[arg].equals("--parallel")) {
+                evaluator = FrameEvaluator.parse(args[arg + 1]);
+                arg += 2;
+            } else if (args[arg].equals("--tiles")) {
+                // auto or a thread count, optionally followed by :<tile height>
+                String[] spec = args[arg + 1].split(":");
+                tileThreads = spec[0].equals("auto") ? Runtime.getRuntime().availableProcessors()
+                        : Integer.parseInt(spec[0]);
+                tileHeight = spec.length > 1 ? Integer.parseInt(spec[1]) : TiledRenderer.DEFAULT_TILE_HEIGHT;
+                if (tileThreads <= 0 || tileHeight <= 0) {
+                    throw new IllegalArgumentException("Invalid tiles " + args[arg + 1]);
+                }
+                arg += 2;
+            } else if (args[arg].equals("--full-repaint")) {
+                fullRepaint = true;
+                ++arg;
+            } else if (args[arg].equals("--no-cull")) {
+                cull = false;
+                ++arg;
+            } else if (args[arg].equals("--frame-cache")) {
+                String[] spec = args[arg + 1].split(":");
+                frameCacheBytes = Long.parseLong(spec[0]) << 20;
+                frameCacheDeflate = spec.length > 1 && spec[1].equals("deflate");
+                arg += 2;
+            } else if (args[arg].equals("--backend")) {
+                if (args[arg + 1].equals("software")) {
+                    softwareBackend = true;
+                } else if (args[arg + 1].equals("java2d")) {
+                    softwareBackend = false;
+                } else {
+                    throw new IllegalArgumentException("Invalid backend " + args[arg + 1]);
+                }
+                arg += 2;
+            } else if (args[arg].equals("--fps")) {
+                targetFps = Double.parseDouble(args[arg + 1]);
+                arg += 2;
+            } else if (args[arg].equals("--live")) {
+                liveUpdates = args[arg + 1];
+                arg += 2;
+            } else if (args[arg].equals("--frame-log")) {
+                frameLogSeconds = Double.parseDouble(args[arg + 1]);
+                arg += 2;
+            } else {
+                break;
+            }
+        }
+        if (tileThreads > 0 && !softwareBackend) {
+            throw new IllegalArgumentException("--tiles needs --backend software, see TiledRenderer");
+        }
+        return arg;
+    }
+
+    /**
+     * Reads {@code file}, or stdin if it is null, into the configured scene model.
+     *
+     * @return the scene wrapped in a {@link CulledScene} unless culling is disabled
+     */
+    Scene load(Path file) throws IOException {
+        Scene scene;
+        if (file != null && SceneCompiler.isCompiled(file)) {
+            scene = SceneCompiler.load(file);
+        } else if (flat) {
+            FlatScene.Builder builder = new FlatScene.Builder();
+            parse(file, builder);
+            scene = builder.build();
+        } else {
+            FigureListBuilder builder = new FigureListBuilder(new ArrayList<>());
+            parse(file, builder);
+            scene = builder.build();
+        }
+        return cull ? new CulledScene(scene) : scene;
+    }
+
+    /**
+     * Parses a text scene into the configured scene model, see {@link #load(Path)}.
+     */
+    Scene load(byte[] text) {
+        return build(builder -> SceneParser.parse(text, builder));
+    }
+
+    /**
+     * Replays a recorded scene into the configured scene model, see {@link #load(Path)}.
+     */
+    Scene load(SceneRecord record) {
+        return build(record::replay);
+    }
+
+    /**
+     * Replays a recorded scene into the configured scene model wrapped in an {@link EditableScene}, see
+     * {@link #load(Path)}. Edits for it are built with {@link #buildFigure}.
+     */
+    Scene loadEditable(SceneRecord record) {
+        Scene scene = new EditableScene(buildModel(record::replay));
+        return cull ? new CulledScene(scene) : scene;
+    }
+
+    /**
+     * @return scene of the configured model whose only figure is {@code figure}, not culled
+     */
+    Scene buildFigure(SceneRecord record, SceneRecord.Figure figure) {
+        return buildModel(builder -> {
+            builder.size(record.width(), record.height());
+            figure.replay(builder);
+        });
+    }
+
+    private Scene build(Consumer<SceneBuilder> source) {
+        Scene scene = buildModel(source);
+        return cull ? new CulledScene(scene) : scene;
+    }
+
+    private Scene buildModel(Consumer<SceneBuilder> source) {
+        if (flat) {
+            FlatScene.Builder builder = new FlatScene.Builder();
+            source.accept(builder);
+            return builder.build();
+        }
+        FigureListBuilder builder = new FigureListBuilder(new ArrayList<>());
+        source.accept(builder);
+        return builder.build();
+    }
+
+    private static void parse(Path file, SceneBuilder builder) throws IOException {
+        if (file != null) {
+            SceneParser.parse(file, builder);
+        } else {
+            SceneParser.parse(System.in, builder);
+        }
+    }
+
+    /**
+     * @param quantum milliseconds, see {@link FrameCache}
+     * @return null unless enabled with {@code --frame-cache} and the scene becomes periodic
+     */
+    FrameCache newFrameCache(Scene scene, long quantum) {
+        if (frameCacheBytes <= 0) {
+            return null;
+        }
+        return FrameCache.create(scene, quantum, frameCacheBytes, frameCacheDeflate);
+    }
+
+    /**
+     * @return a renderer for one caller at a time, to be shut down by it, or null unless enabled with {@code --tiles}
+     */
+    TiledRenderer newTiledRenderer() {
+        if (tileThreads <= 0) {
+            return null;
+        }
+        return new TiledRenderer(tileThreads, tileHeight);
+    }
+
+    /**
+     * Stops the worker threads of the evaluator.
+     */
+    void shutdown() {
+        evaluator.shutdown();
+    }
+
+    /**
+     * Evaluates all figures of {@code scene}, in parallel if the evaluator is.
+     */
+    void evaluate(Scene scene, long curTime) {
+        if (evaluator.isParallel()) {
+            evaluator.forEachRange(scene.figureCount(), (from, to) -> scene.evaluate(curTime, from, to));
+        } else {
+            scene.evaluate(curTime);
+        }
+    }
+}
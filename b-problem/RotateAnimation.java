@@ -0,0 +1,44 @@
+package bproblem;
+
+class RotateAnimation extends Animation {
+    private double destAngle;
+    private double srcAngle = 0L;
+
+    public RotateAnimation(ShapeWrapper wrapper, long time, boolean cycle) {
+        super(wrapper, time, cycle);
+    }
+
+    void setDestAngle(double destAngle) {
+        this.destAngle = destAngle * Math.PI / 180.0;
+    }
+
+    public void setSrcAngle(double srcAngle) {
+        this.srcAngle = srcAngle * Math.PI / 180.0;
+    }
+
+    @Override
+    void apply(long curTime) {
+        boolean reversed = isReversed(curTime);
+        double from = reversed ? destAngle : srcAngle;
+        double to = reversed ? srcAngle : destAngle;
+
+        long passTime = passTime(curTime);
+        if (passTime >= 0) {
+            double speed = (to - from) / time;
+            wrapper.rotation += from + speed * passTime;
+        } else {
+            wrapper.rotation += to;
+        }
+        wrapper.rotated = true;
+    }
+
+    @Override
+    void envelope(MotionEnvelope envelope) {
+        envelope.rotate();
+    }
+
+    @Override
+    byte kind() {
+        return FlatScene.ROTATE;
+    }
+}
@@ -0,0 +1,42 @@
+package bproblem;
+
+class ScaleAnimation extends Animation {
+    double srcScale;
+    private double destScale;
+
+    public ScaleAnimation(ShapeWrapper wrapper, long time, boolean cycle) {
+        super(wrapper, time, cycle);
+    }
+
+    public void setDestScale(double destScale) {
+        this.destScale = destScale;
+    }
+
+    @Override
+    void apply(long curTime) {
+        boolean reversed = isReversed(curTime);
+        double from = reversed ? destScale : srcScale;
+        double to = reversed ? srcScale : destScale;
+
+        long passTime = passTime(curTime);
+        double scaleFactor;
+        if (passTime >= 0) {
+            double speed = (to - from) / time;
+            scaleFactor = from + speed * passTime;
+        } else {
+            scaleFactor = to;
+        }
+        wrapper.scaleFactor *= scaleFactor;
+        wrapper.scaled = true;
+    }
+
+    @Override
+    void envelope(MotionEnvelope envelope) {
+        envelope.scale(srcScale, destScale, time, cycle);
+    }
+
+    @Override
+    byte kind() {
+        return FlatScene.SCALE;
+    }
+}
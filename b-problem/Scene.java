@@ -0,0 +1,128 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Parsed scene as seen by the renderers. Figures are indexed in painting order; {@link #draw} and {@link #bounds}
+ * use the state of the figure's last {@link #evaluate}.
+ */
+interface Scene {
+    int width();
+
+    int height();
+
+    int figureCount();
+
+    /**
+     * Evaluates figures {@code from until to} at {@code curTime}. Disjoint ranges may be evaluated concurrently.
+     *
+     * @param curTime milliseconds since the scene start
+     */
+    void evaluate(long curTime, int from, int to);
+
+    default void evaluate(long curTime) {
+        evaluate(curTime, 0, figureCount());
+    }
+
+    /**
+     * Fills one figure on top of {@code base}. Leaves an arbitrary transform in {@code g2d}.
+     */
+    void draw(int figure, Graphics2D g2d, AffineTransform base);
+
+    default void drawAll(Graphics2D g2d, AffineTransform base) {
+        for (int i = 0; i < figureCount(); ++i) {
+            draw(i, g2d, base);
+        }
+        g2d.setTransform(base);
+    }
+
+    /**
+     * Fills one figure with the software backend, in scene coordinates.
+     */
+    void rasterize(int figure, SoftwareRasterizer rasterizer);
+
+    default void rasterizeAll(SoftwareRasterizer rasterizer) {
+        for (int i = 0; i < figureCount(); ++i) {
+            rasterize(i, rasterizer);
+        }
+    }
+
+    default void paint(Graphics2D g2d, AffineTransform base, long curTime) {
+        evaluate(curTime);
+        drawAll(g2d, base);
+    }
+
+    /**
+     * Stores the bounding box of the transformed figure in scene coordinates into {@code out}.
+     */
+    void bounds(int figure, Rectangle2D out);
+
+    /**
+     * A scene may reuse scratch objects in {@link #draw}, {@link #rasterize} and {@link #bounds}, so these are not
+     * safe to call from several threads at once.
+     *
+     * @return scene that shares the figures and the evaluated state of this one, and whose {@link #draw},
+     * {@link #rasterize} and {@link #bounds} may run concurrently with those of this scene and its other views. It
+     * follows later evaluations of this scene, so it can be kept for every frame
+     */
+    Scene drawingView();
+
+    /**
+     * @return true if the figure looks the same at any time from {@code curTime} on
+     */
+    boolean isSettled(int figure, long curTime);
+
+    /**
+     * Stores a box that contains the figure at any time from the scene start on into {@code out}.
+     */
+    default void envelope(int figure, Rectangle2D out) {
+        envelope(figure, 0, Long.MAX_VALUE, out);
+    }
+
+    /**
+     * Stores a box that contains the figure at any time from {@code from} until {@code to} into {@code out}.
+     */
+    void envelope(int figure, long from, long to, Rectangle2D out);
+
+    /**
+     * Stores the evaluated transform of the figure into {@code transform} and its untransformed frame, in scene
+     * coordinates, into {@code frame}.
+     *
+     * @return true if the figure is an ellipse, false if it is a rectangle
+     */
+    boolean outline(int figure, AffineTransform transform, Rectangle2D frame);
+
+    /**
+     * Reports every animation of the figure to {@code timing}.
+     */
+    void timing(int figure, AnimationTiming timing);
+
+    /**
+     * Bounding box of the rectangle {@code (x, y, w, h)} transformed by {@code tr}.
+     */
+    static void transformedBounds(AffineTransform tr, double x, double y, double w, double h, Rectangle2D out) {
+        double m00 = tr.getScaleX();
+        double m01 = tr.getShearX();
+        double m10 = tr.getShearY();
+        double m11 = tr.getScaleY();
+        double m02 = tr.getTranslateX();
+        double m12 = tr.getTranslateY();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 4; ++corner) {
+            double cx = (corner & 1) == 0 ? x : x + w;
+            double cy = (corner & 2) == 0 ? y : y + h;
+            double px = m00 * cx + m01 * cy + m02;
+            double py = m10 * cx + m11 * cy + m12;
+            minX = Math.min(minX, px);
+            minY = Math.min(minY, py);
+            maxX = Math.max(maxX, px);
+            maxY = Math.max(maxY, py);
+        }
+        out.setRect(minX, minY, maxX - minX, maxY - minY);
+    }
+}
@@ -0,0 +1,23 @@
+package bproblem;
+
+import java.awt.*;
+
+/**
+ * Receives the contents of a scene file. Animations belong to the last added figure,
+ * {@link #endFigure()} is called after the last animation of every figure.
+ */
+interface SceneBuilder {
+    void size(int width, int height);
+
+    void rectangle(double centerX, double centerY, double width, double height, double angle, Color color);
+
+    void circle(double centerX, double centerY, double radius, Color color);
+
+    void move(double destX, double destY, long time, boolean cycle);
+
+    void rotate(double angle, long time, boolean cycle);
+
+    void scale(double destScale, long time, boolean cycle);
+
+    void endFigure();
+}
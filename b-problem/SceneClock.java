@@ -0,0 +1,36 @@
+package bproblem;
+
+/**
+ * Source of scene time for the animation engine. All animations are evaluated as a pure function of
+ * the value returned by {@link #now()}, so any clock can seek to an arbitrary point of the scene.
+ */
+interface SceneClock {
+    /**
+     * @return milliseconds elapsed since the scene start
+     */
+    long now();
+
+    /**
+     * Called by the renderer after every painted frame.
+     */
+    default void frameRendered() {
+        // no-op
+    }
+
+    /**
+     * Parses {@code wall}, {@code fixed:<stepMillis>} or {@code fast:<factor>}.
+     */
+    static SceneClock parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "wall":
+                return new WallClock();
+            case "fixed":
+                return new FixedStepClock(parts.length > 1 ? Long.parseLong(parts[1]) : 16);
+            case "fast":
+                return new FastForwardClock(parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+            default:
+                throw new IllegalArgumentException("Invalid clock " + spec);
+        }
+    }
+}
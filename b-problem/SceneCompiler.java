@@ -0,0 +1,276 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compiles text scenes into a binary format that loads into a {@link FlatScene} without parsing.
+ * <p>
+ * Usage: {@code java bproblem.SceneCompiler compile scene.txt scene.bscn} or
+ * {@code java bproblem.SceneCompiler verify scene.txt...} to check that text and compiled scenes render identical
+ * frames.
+ * <p>
+ * Layout, little-endian:
+ * <pre>
+ * header      32 bytes: magic "BSCN", version, width, height, figureCount, animationCount, paletteSize, 0
+ * palette     paletteSize ARGB ints, padded to 8 bytes
+ * figures     figureCount records of 40 bytes: type, color index, 2 padding bytes, first animation index,
+ *             x, y, width, height (top-left corner at scene start)
+ * animations  animationCount records of 48 bytes: kind, cycle, 6 padding bytes, time, fromX, fromY, toX, toY
+ * </pre>
+ * Animations are stored per figure in evaluation order (move, rotate, scale).
+ */
+class SceneCompiler {
+    static final int MAGIC = 'B' | 'S' << 8 | 'C' << 16 | 'N' << 24;
+    static final int VERSION = 1;
+    static final String EXTENSION = ".bscn";
+
+    private static final int HEADER_SIZE = 32;
+    private static final int FIGURE_SIZE = 40;
+    private static final int ANIMATION_SIZE = 48;
+
+    static void write(FlatScene scene, Path file) throws IOException {
+        int paletteSize = (scene.palette.length * 4 + 7) & ~7;
+        long size = HEADER_SIZE + paletteSize
+                + (long) scene.figureCount * FIGURE_SIZE + (long) scene.animationCount() * ANIMATION_SIZE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).putInt(scene.width).putInt(scene.height)
+                    .putInt(scene.figureCount).putInt(scene.animationCount()).putInt(scene.palette.length).putInt(0);
+            for (Color color : scene.palette) {
+                out.putInt(color.getRGB());
+            }
+            out.position(HEADER_SIZE + paletteSize);
+            for (int f = 0; f < scene.figureCount; ++f) {
+                out.put(scene.type[f]).put(scene.color[f]).putShort((short) 0).putInt(scene.animStart[f])
+                        .putDouble(scene.baseX[f]).putDouble(scene.baseY[f])
+                        .putDouble(scene.w[f]).putDouble(scene.h[f]);
+            }
+            for (int a = 0; a < scene.animationCount(); ++a) {
+                out.put(scene.animKind[a]).put((byte) (scene.animCycle[a] ? 1 : 0))
+                        .putShort((short) 0).putInt(0).putLong(scene.animTime[a])
+                        .putDouble(scene.fromX[a]).putDouble(scene.fromY[a])
+                        .putDouble(scene.toX[a]).putDouble(scene.toY[a]);
+            }
+            out.force();
+        }
+    }
+
+    static FlatScene load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return load(in);
+        }
+    }
+
+    /**
+     * Reads the scene size and the figure count from the header of {@code file}, without the figures.
+     */
+    static SceneHeader readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), HEADER_SIZE));
+            in.order(ByteOrder.LITTLE_ENDIAN);
+            checkHeader(in);
+            return new SceneHeader(in.getInt(), in.getInt(), in.getInt());
+        }
+    }
+
+    static boolean isCompiled(Path file) {
+        return file.getFileName().toString().endsWith(EXTENSION);
+    }
+
+    private static FlatScene load(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        checkHeader(in);
+        int width = in.getInt();
+        int height = in.getInt();
+        int figureCount = in.getInt();
+        int animationCount = in.getInt();
+        int paletteLength = in.getInt();
+        in.getInt();
+        long expected = HEADER_SIZE + ((paletteLength * 4 + 7) & ~7)
+                + (long) figureCount * FIGURE_SIZE + (long) animationCount * ANIMATION_SIZE;
+        if (figureCount < 0 || animationCount < 0 || paletteLength < 0 || in.capacity() != expected) {
+            throw new IllegalArgumentException("Corrupted compiled scene: expected " + expected
+                    + " bytes but found " + in.capacity());
+        }
+
+        Color[] palette = new Color[paletteLength];
+        for (int i = 0; i < paletteLength; ++i) {
+            palette[i] = new Color(in.getInt(), true);
+        }
+        in.position(HEADER_SIZE + ((paletteLength * 4 + 7) & ~7));
+
+        byte[] type = new byte[figureCount];
+        byte[] color = new byte[figureCount];
+        int[] animStart = new int[figureCount + 1];
+        double[] baseX = new double[figureCount];
+        double[] baseY = new double[figureCount];
+        double[] w = new double[figureCount];
+        double[] h = new double[figureCount];
+        for (int f = 0; f < figureCount; ++f) {
+            int offset = in.position();
+            type[f] = in.get();
+            if (type[f] != FlatScene.RECTANGLE && type[f] != FlatScene.CIRCLE) {
+                throw corrupted("unknown figure type " + type[f], offset);
+            }
+            color[f] = in.get();
+            if ((color[f] & 0xff) >= paletteLength) {
+                throw corrupted("color index " + (color[f] & 0xff) + " outside the palette of " + paletteLength,
+                        offset + 1);
+            }
+            in.getShort();
+            animStart[f] = in.getInt();
+            // Each figure's animations follow the previous figure's
+            int previous = f == 0 ? 0 : animStart[f - 1];
+            if (animStart[f] < previous || animStart[f] > animationCount) {
+                throw corrupted("first animation index " + animStart[f] + " outside " + previous + ".."
+                        + animationCount, offset + 4);
+            }
+            baseX[f] = in.getDouble();
+            baseY[f] = in.getDouble();
+            w[f] = in.getDouble();
+            h[f] = in.getDouble();
+        }
+        animStart[figureCount] = animationCount;
+
+        byte[] animKind = new byte[animationCount];
+        boolean[] animCycle = new boolean[animationCount];
+        long[] animTime = new long[animationCount];
+        double[] fromX = new double[animationCount];
+        double[] fromY = new double[animationCount];
+        double[] toX = new double[animationCount];
+        double[] toY = new double[animationCount];
+        for (int a = 0; a < animationCount; ++a) {
+            int offset = in.position();
+            animKind[a] = in.get();
+            if (animKind[a] != FlatScene.MOVE && animKind[a] != FlatScene.ROTATE && animKind[a] != FlatScene.SCALE) {
+                throw corrupted("unknown animation kind " + animKind[a], offset);
+            }
+            animCycle[a] = in.get() != 0;
+            in.getShort();
+            in.getInt();
+            animTime[a] = in.getLong();
+            fromX[a] = in.getDouble();
+            fromY[a] = in.getDouble();
+            toX[a] = in.getDouble();
+            toY[a] = in.getDouble();
+        }
+        return new FlatScene(width, height, figureCount, palette, type, baseX, baseY, w, h, color, animStart,
+                animKind, animTime, animCycle, fromX, fromY, toX, toY);
+    }
+
+    /**
+     * Reads the magic and the version, leaving {@code in} at the scene size.
+     */
+    private static void checkHeader(ByteBuffer in) {
+        if (in.remaining() < HEADER_SIZE || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a compiled scene");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported compiled scene version " + version);
+        }
+    }
+
+    private static IllegalArgumentException corrupted(String message, int offset) {
+        return new IllegalArgumentException("Corrupted compiled scene: " + message + " at offset " + offset);
+    }
+
+    /**
+     * Compiles {@code text} to a temporary file, loads it back and compares every frame of the first 25 seconds
+     * with the {@link ShapeWrapper} model parsed from the same text.
+     */
+    static boolean verify(Path text) throws IOException {
+        long t = firstDifferentFrame(text);
+        if (t >= 0) {
+            System.out.println(text + ": frame at " + t + " ms differs");
+            return false;
+        }
+        System.out.println(text + ": ok");
+        return true;
+    }
+
+    /**
+     * @return time in ms of the first frame where the compiled {@code text} renders differently from the
+     * {@link ShapeWrapper} model, or -1 if all frames of the first 25 seconds match
+     */
+    static long firstDifferentFrame(Path text) throws IOException {
+        FlatScene.Builder builder = new FlatScene.Builder();
+        SceneParser.parse(text, builder);
+        FigureListBuilder figures = new FigureListBuilder(new ArrayList<>());
+        SceneParser.parse(text, figures);
+        Scene expected = figures.build();
+
+        Path compiled = Files.createTempFile("scene", EXTENSION);
+        try {
+            write(builder.build(), compiled);
+            FlatScene actual = load(compiled);
+            BufferedImage expectedImage = new BufferedImage(actual.width, actual.height, BufferedImage.TYPE_INT_ARGB);
+            BufferedImage actualImage = new BufferedImage(actual.width, actual.height, BufferedImage.TYPE_INT_ARGB);
+            int[] expectedPixels = ((DataBufferInt) expectedImage.getRaster().getDataBuffer()).getData();
+            int[] actualPixels = ((DataBufferInt) actualImage.getRaster().getDataBuffer()).getData();
+            Graphics2D expectedGraphics = expectedImage.createGraphics();
+            Graphics2D actualGraphics = actualImage.createGraphics();
+            AffineTransform identity = new AffineTransform();
+            try {
+                for (long t = 0; t <= 25000; t += 16) {
+                    clear(expectedGraphics, identity, actual);
+                    expected.paint(expectedGraphics, identity, t);
+                    clear(actualGraphics, identity, actual);
+                    actual.paint(actualGraphics, identity, t);
+                    if (!Arrays.equals(expectedPixels, actualPixels)) {
+                        return t;
+                    }
+                }
+            } finally {
+                expectedGraphics.dispose();
+                actualGraphics.dispose();
+            }
+        } finally {
+            Files.deleteIfExists(compiled);
+        }
+        return -1;
+    }
+
+    private static void clear(Graphics2D g2d, AffineTransform identity, FlatScene scene) {
+        g2d.setTransform(identity);
+        g2d.setColor(HeadlessRenderer.BACKGROUND);
+        g2d.fillRect(0, 0, scene.width, scene.height);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("compile")) {
+            FlatScene.Builder builder = new FlatScene.Builder();
+            SceneParser.parse(Paths.get(args[1]), builder);
+            write(builder.build(), Paths.get(args[2]));
+        } else if (args.length >= 2 && args[0].equals("verify")) {
+            boolean ok = true;
+            for (int i = 1; i < args.length; ++i) {
+                ok &= verify(Paths.get(args[i]));
+            }
+            if (!ok) {
+                System.exit(1);
+            }
+        } else {
+            System.err.println("Usage: SceneCompiler compile scene.txt scene" + EXTENSION
+                    + " | SceneCompiler verify scene.txt...");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package bproblem;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+/**
+ * Generates random scenes of arbitrary size for benchmarks. The same seed always produces the same scene.
+ * <p>
+ * Usage: {@code java bproblem.SceneGenerator figureCount [width height [seed]] > scene.txt}
+ */
+class SceneGenerator {
+    private static final Color[] COLORS = {Color.YELLOW, Color.BLACK, Color.RED, Color.WHITE};
+
+    static void generate(SceneBuilder builder, int width, int height, int figureCount, long seed) {
+        Random random = new Random(seed);
+        builder.size(width, height);
+        for (int i = 0; i < figureCount; ++i) {
+            double x = random.nextInt(width);
+            double y = random.nextInt(height);
+            Color color = COLORS[random.nextInt(COLORS.length)];
+            if (random.nextInt(4) == 0) {
+                builder.circle(x, y, 2 + random.nextInt(20) + random.nextInt(1000) / 1000.0, color);
+            } else {
+                builder.rectangle(x, y, 12 * (1 + random.nextInt(6)), 12 * (1 + random.nextInt(6)), 0, color);
+            }
+            // Every animation kind appears at most once per figure, like in the contest scenes
+            if (random.nextBoolean()) {
+                builder.move(random.nextInt(width), random.nextInt(height),
+                        1000 * (1 + random.nextInt(15)), random.nextBoolean());
+            }
+            if (random.nextBoolean()) {
+                builder.rotate(random.nextInt(720) - 360, 1000 * (1 + random.nextInt(15)), random.nextBoolean());
+            }
+            if (random.nextInt(3) == 0) {
+                builder.scale(0.25 + random.nextInt(3000) / 1000.0, 1000 * (1 + random.nextInt(15)),
+                        random.nextBoolean());
+            }
+            builder.endFigure();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int figureCount = Integer.parseInt(args[0]);
+        int width = args.length > 2 ? Integer.parseInt(args[1]) : 1300;
+        int height = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16)) {
+            SceneWriter writer = new SceneWriter(out);
+            writer.setFigureCount(figureCount);
+            generate(writer, width, height, figureCount, seed);
+        }
+    }
+}
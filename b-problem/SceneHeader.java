@@ -0,0 +1,16 @@
+package bproblem;
+
+/**
+ * Size and figure count of a scene, read from the start of its file before the figures are loaded.
+ */
+final class SceneHeader {
+    final int width;
+    final int height;
+    final int figureCount;
+
+    SceneHeader(int width, int height, int figureCount) {
+        this.width = width;
+        this.height = height;
+        this.figureCount = figureCount;
+    }
+}
@@ -0,0 +1,351 @@
+package bproblem;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Byte-level parser of the text scene format. Reads straight from a memory-mapped file or a buffered stream and
+ * feeds a {@link SceneBuilder} without creating intermediate strings. Malformed input is reported as an
+ * {@link IllegalArgumentException} with the line number.
+ * <pre>
+ * width height
+ * figureCount
+ * rectangle centerX centerY width height angle color | circle centerX centerY radius color
+ * animationCount
+ * move destX destY time [cycle] | rotate angle time [cycle] | scale destScale time [cycle]
+ * ...
+ * </pre>
+ */
+class SceneParser {
+    private static final byte[] RECTANGLE = ascii("rectangle");
+    private static final byte[] CIRCLE = ascii("circle");
+    private static final byte[] MOVE = ascii("move");
+    private static final byte[] ROTATE = ascii("rotate");
+    private static final byte[] SCALE = ascii("scale");
+    private static final byte[] CYCLE = ascii("cycle");
+    private static final byte[][] COLOR_NAMES = {ascii("yellow"), ascii("black"), ascii("red"), ascii("white")};
+    private static final Color[] COLORS = {Color.YELLOW, Color.BLACK, Color.RED, Color.WHITE};
+
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; ++i) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final InputStream in;
+    private final ByteBuffer buffer;
+    private final byte[] token = new byte[64];
+    private int tokenLength;
+    private int line = 1;
+
+    private SceneParser(InputStream in, ByteBuffer buffer) {
+        this.in = in;
+        this.buffer = buffer;
+    }
+
+    static void parse(Path file, SceneBuilder builder) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            new SceneParser(null, mapped).parseScene(builder);
+        }
+    }
+
+    static void parse(InputStream in, SceneBuilder builder) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        buffer.limit(0);
+        new SceneParser(in, buffer).parseScene(builder);
+    }
+
+    static void parse(byte[] text, SceneBuilder builder) {
+        new SceneParser(null, ByteBuffer.wrap(text)).parseScene(builder);
+    }
+
+    /**
+     * Reads the scene size and the figure count from the first lines of {@code file}, without the figures.
+     */
+    static SceneHeader parseHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SceneParser(null, mapped).parseHeader();
+        }
+    }
+
+    private SceneHeader parseHeader() {
+        skipBlankLines();
+        int width = readInt("scene width");
+        int height = readInt("scene height");
+        endOfLine();
+
+        skipBlankLines();
+        int figureCount = readInt("figure count");
+        endOfLine();
+        return new SceneHeader(width, height, figureCount);
+    }
+
+    private void parseScene(SceneBuilder builder) {
+        SceneHeader header = parseHeader();
+        builder.size(header.width, header.height);
+        for (int i = 0; i < header.figureCount; ++i) {
+            parseFigure(builder);
+        }
+    }
+
+    /**
+     * Parses a single figure line followed by its animations, as in a scene file.
+     */
+    static void parseFigure(byte[] text, SceneBuilder builder) {
+        new SceneParser(null, ByteBuffer.wrap(text)).parseFigure(builder);
+    }
+
+    /**
+     * Parses an animation count followed by the animations, as in a scene file, for the figure that
+     * {@code builder} is recording.
+     */
+    static void parseAnimations(byte[] text, SceneBuilder builder) {
+        new SceneParser(null, ByteBuffer.wrap(text)).parseAnimations(builder);
+    }
+
+    private void parseFigure(SceneBuilder builder) {
+        skipBlankLines();
+        readWord("figure");
+        if (tokenIs(RECTANGLE)) {
+            double centerX = readDouble("rectangle center x");
+            double centerY = readDouble("rectangle center y");
+            double rectWidth = readDouble("rectangle width");
+            double rectHeight = readDouble("rectangle height");
+            double angle = readDouble("rectangle angle");
+            builder.rectangle(centerX, centerY, rectWidth, rectHeight, angle, readColor());
+        } else if (tokenIs(CIRCLE)) {
+            double centerX = readDouble("circle center x");
+            double centerY = readDouble("circle center y");
+            double radius = readDouble("circle radius");
+            builder.circle(centerX, centerY, radius, readColor());
+        } else {
+            throw error("expected rectangle or circle but found '" + tokenText() + "'");
+        }
+        endOfLine();
+        parseAnimations(builder);
+    }
+
+    private void parseAnimations(SceneBuilder builder) {
+        skipBlankLines();
+        int animationCount = readInt("animation count");
+        endOfLine();
+        for (int j = 0; j < animationCount; ++j) {
+            skipBlankLines();
+            readWord("animation");
+            if (tokenIs(MOVE)) {
+                double destX = readDouble("move destination x");
+                double destY = readDouble("move destination y");
+                long time = (long) readDouble("move time");
+                builder.move(destX, destY, time, readCycle());
+            } else if (tokenIs(ROTATE)) {
+                double angle = readDouble("rotate angle");
+                long time = (long) readDouble("rotate time");
+                builder.rotate(angle, time, readCycle());
+            } else if (tokenIs(SCALE)) {
+                double destScale = readDouble("scale factor");
+                long time = (long) readDouble("scale time");
+                builder.scale(destScale, time, readCycle());
+            } else {
+                throw error("expected move, rotate or scale but found '" + tokenText() + "'");
+            }
+            endOfLine();
+        }
+        builder.endFigure();
+    }
+
+    private int peek() {
+        if (!buffer.hasRemaining() && !refill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    private int read() {
+        if (!buffer.hasRemaining() && !refill()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    private boolean refill() {
+        if (in == null) {
+            return false;
+        }
+        try {
+            int read = in.read(buffer.array());
+            if (read <= 0) {
+                return false;
+            }
+            buffer.position(0);
+            buffer.limit(read);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void skipSpaces() {
+        int c = peek();
+        while (c == ' ' || c == '\t') {
+            read();
+            c = peek();
+        }
+    }
+
+    private void skipBlankLines() {
+        while (true) {
+            skipSpaces();
+            int c = peek();
+            if (c == '\r') {
+                read();
+            } else if (c == '\n') {
+                read();
+                ++line;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void endOfLine() {
+        skipSpaces();
+        int c = read();
+        if (c == '\r') {
+            c = read();
+        }
+        if (c == '\n') {
+            ++line;
+        } else if (c != -1) {
+            throw error("unexpected '" + (char) c + "' at the end of the line");
+        }
+    }
+
+    /**
+     * Reads the next space separated token into {@link #token}.
+     */
+    private void readWord() {
+        skipSpaces();
+        tokenLength = 0;
+        int c = peek();
+        while (c != -1 && c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+            if (tokenLength == token.length) {
+                throw error("token is too long: '" + tokenText() + "...'");
+            }
+            token[tokenLength++] = (byte) read();
+            c = peek();
+        }
+    }
+
+    private void readWord(String what) {
+        readWord();
+        if (tokenLength == 0) {
+            throw error("missing " + what);
+        }
+    }
+
+    private boolean tokenIs(byte[] word) {
+        if (tokenLength != word.length) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; ++i) {
+            if (token[i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String tokenText() {
+        return new String(token, 0, tokenLength, StandardCharsets.US_ASCII);
+    }
+
+    private Color readColor() {
+        readWord("color");
+        for (int i = 0; i < COLOR_NAMES.length; ++i) {
+            if (tokenIs(COLOR_NAMES[i])) {
+                return COLORS[i];
+            }
+        }
+        throw error("invalid color '" + tokenText() + "'");
+    }
+
+    private boolean readCycle() {
+        skipSpaces();
+        int c = peek();
+        if (c == -1 || c == '\r' || c == '\n') {
+            return false;
+        }
+        readWord();
+        if (!tokenIs(CYCLE)) {
+            throw error("expected cycle but found '" + tokenText() + "'");
+        }
+        return true;
+    }
+
+    private int readInt(String what) {
+        double value = readDouble(what);
+        if (value != (int) value) {
+            throw error("expected integer " + what + " but found '" + tokenText() + "'");
+        }
+        return (int) value;
+    }
+
+    private double readDouble(String what) {
+        readWord(what);
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            ++i;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean dot = false;
+        for (; i < tokenLength; ++i) {
+            int c = token[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                ++digits;
+                if (dot) {
+                    ++fractionDigits;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i == tokenLength && digits > 0 && digits <= 15 && fractionDigits < POW10.length) {
+            // Both operands are exact doubles, so the correctly rounded quotient equals Double.parseDouble
+            double value = fractionDigits == 0 ? mantissa : mantissa / POW10[fractionDigits];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(tokenText());
+        } catch (NumberFormatException e) {
+            throw error("expected " + what + " but found '" + tokenText() + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Line " + line + ": " + message);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,79 @@
+package bproblem;
+
+/**
+ * Steady-state period of a scene. A one-shot animation of length {@code time} is constant from {@code time} on,
+ * and a cycle animation repeats every {@code 2 * time} (there and back), so from {@link #steadyFrom()} on the
+ * scene looks the same at {@code t} and {@code t + period()}.
+ */
+class ScenePeriod implements AnimationTiming {
+    private long steadyFrom;
+    private long period = 1;
+    private boolean periodic = true;
+
+    ScenePeriod() {
+    }
+
+    /**
+     * Period of a scene that is known to repeat every {@code period} milliseconds from {@code steadyFrom} on, which
+     * further {@linkplain #animation animations} extend.
+     */
+    ScenePeriod(long steadyFrom, long period) {
+        this.steadyFrom = steadyFrom;
+        this.period = period;
+    }
+
+    static ScenePeriod of(Scene scene) {
+        ScenePeriod period = new ScenePeriod();
+        for (int i = 0; i < scene.figureCount(); ++i) {
+            scene.timing(i, period);
+        }
+        return period;
+    }
+
+    @Override
+    public void animation(byte kind, long time, boolean cycle) {
+        if (time <= 0) {
+            // Finished from the start
+            return;
+        }
+        if (!cycle) {
+            steadyFrom = Math.max(steadyFrom, time);
+            return;
+        }
+        long pass = 2 * time;
+        long gcd = gcd(period, pass);
+        long lcm = period / gcd * pass;
+        if (lcm / pass != period / gcd) {
+            periodic = false;
+        } else {
+            period = lcm;
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+
+    /**
+     * @return false if the period does not fit in a long
+     */
+    boolean isPeriodic() {
+        return periodic;
+    }
+
+    long steadyFrom() {
+        return steadyFrom;
+    }
+
+    /**
+     * @return period in milliseconds, 1 if the scene is static from {@link #steadyFrom()} on
+     */
+    long period() {
+        return period;
+    }
+}
@@ -0,0 +1,553 @@
+package bproblem;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Answers timing and overlap questions about a scene without rendering it.
+ * <p>
+ * Usage: {@code java bproblem.SceneQuery [render options] motion|settle|overlaps [--from <millis>]
+ * [--to <millis>] [--step <millis>] < scene.txt}
+ * <p>
+ * {@code motion} prints one line per animation: figure, kind, start and end, or {@code inf cycle} and the pass
+ * length. {@code settle} prints the time from which every one-shot animation has finished. {@code overlaps} prints
+ * every pair of figures whose interiors intersect at some time of the window, sampled every {@code --step}
+ * milliseconds (one frame at {@code --fps} by default), with the first and last sample that saw them overlap. The
+ * window defaults to the scene start until it settles.
+ * <p>
+ * Overlaps are found in two sweep-and-prune passes. The first sweeps the motion envelopes over the window, which
+ * for figures that are already settled are their actual bounds, and keeps only figures whose envelope meets
+ * another one. The second sweeps the bounds of those figures at every sample and tests the boxes that meet
+ * exactly. Pairs of settled figures cannot change and are only tested at the first sample.
+ */
+class SceneQuery {
+    private static final String[] KINDS = {"move", "rotate", "scale"};
+    // Intersections thinner than this are edges that touch
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * One animation, which changes its figure from the scene start until {@link #end()}.
+     */
+    static final class Motion {
+        final int figure;
+        final byte kind;
+        // Length of one pass in milliseconds
+        final long time;
+        final boolean cycle;
+
+        Motion(int figure, byte kind, long time, boolean cycle) {
+            this.figure = figure;
+            this.kind = kind;
+            this.time = time;
+            this.cycle = cycle;
+        }
+
+        /**
+         * @return end of the motion, Long.MAX_VALUE for cycle animations
+         */
+        long end() {
+            return cycle ? Long.MAX_VALUE : time;
+        }
+    }
+
+    /**
+     * Figures {@code first < second} whose interiors intersect at the sampled times {@code firstTime} and
+     * {@code lastTime}, and possibly in between.
+     */
+    static final class Overlap {
+        final int first;
+        final int second;
+        final long firstTime;
+        final long lastTime;
+
+        Overlap(int first, int second, long firstTime, long lastTime) {
+            this.first = first;
+            this.second = second;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+    }
+
+    private final Scene scene;
+    private final int figureCount;
+
+    // Result of the last outline call per figure: minX, minY, maxX, maxY
+    private final double[] boxes;
+    // Rectangle: the four transformed corners. Circle: center and radius
+    private final double[] geometry;
+    private final boolean[] circle;
+    private final boolean[] settled;
+
+    private final AffineTransform transform = new AffineTransform();
+    private final Rectangle2D.Double frame = new Rectangle2D.Double();
+    private final double[] corners = new double[8];
+
+    SceneQuery(Scene scene) {
+        this.scene = scene;
+        figureCount = scene.figureCount();
+        boxes = new double[4 * figureCount];
+        geometry = new double[8 * figureCount];
+        circle = new boolean[figureCount];
+        settled = new boolean[figureCount];
+    }
+
+    List<Motion> motions(int figure) {
+        List<Motion> motions = new ArrayList<>();
+        scene.timing(figure, (kind, time, cycle) -> {
+            if (time > 0) {
+                motions.add(new Motion(figure, kind, time, cycle));
+            }
+        });
+        return motions;
+    }
+
+    /**
+     * @return earliest time from which no one-shot animation changes its figure; cycle animations never finish
+     * and are ignored
+     */
+    long settledTime() {
+        return ScenePeriod.of(scene).steadyFrom();
+    }
+
+    /**
+     * @return number of figures that change at any time because of a cycle animation
+     */
+    int cyclingFigures() {
+        long settledTime = settledTime();
+        int count = 0;
+        for (int f = 0; f < figureCount; ++f) {
+            if (!scene.isSettled(f, settledTime)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Evaluates the scene at the sampled times, leaving it in an arbitrary state.
+     *
+     * @param step milliseconds between samples; {@code to} is always sampled
+     * @return overlapping pairs ordered by first and second figure
+     */
+    List<Overlap> overlaps(long from, long to, long step) {
+        if (to < from || step <= 0) {
+            throw new IllegalArgumentException("Invalid window " + from + ".." + to + " step " + step);
+        }
+        scene.evaluate(from);
+        int[] involved = broadPhase(from, to);
+
+        PairTimes found = new PairTimes();
+        int[] moving = new int[involved.length];
+        int movingCount = 0;
+        for (int f : involved) {
+            if (!settled[f]) {
+                moving[movingCount++] = f;
+            }
+        }
+        long[] order = new long[involved.length];
+        for (long t = from; ; t = Math.min(t + step, to)) {
+            if (t > from) {
+                for (int k = 0; k < movingCount; ++k) {
+                    int f = moving[k];
+                    scene.evaluate(t, f, f + 1);
+                    outline(f);
+                }
+            }
+            // Pairs of settled figures cannot change after the first sample
+            boolean first = t == from;
+            sweep(involved, order, (a, b) -> {
+                if ((first || !settled[a] || !settled[b]) && intersect(a, b)) {
+                    found.add(a, b);
+                }
+            });
+            found.endSample(t, first ? to : t);
+            if (t >= to) {
+                break;
+            }
+        }
+
+        List<Overlap> overlaps = new ArrayList<>(found.count);
+        for (int i = 0; i < found.count; ++i) {
+            long key = found.pairs[i];
+            overlaps.add(new Overlap((int) (key >>> 32), (int) key, found.firstTimes[i], found.lastTimes[i]));
+        }
+        return overlaps;
+    }
+
+    /**
+     * Sorted set of figure pairs with the first and last sample that saw them. Pairs of one sample are buffered
+     * and merged in at its end into a second set of arrays, which then swaps places with the first, so a pair costs
+     * no allocation however often it is seen and the arrays only grow when the set outgrows them.
+     */
+    private final class PairTimes {
+        long[] pairs = new long[0];
+        long[] firstTimes = new long[0];
+        long[] lastTimes = new long[0];
+        int count;
+        private long[] sparePairs = new long[0];
+        private long[] spareFirstTimes = new long[0];
+        private long[] spareLastTimes = new long[0];
+        private long[] sample = new long[1024];
+        private int sampleCount;
+
+        void add(int a, int b) {
+            if (sampleCount == sample.length) {
+                sample = Arrays.copyOf(sample, sampleCount * 2);
+            }
+            sample[sampleCount++] = (long) a << 32 | b;
+        }
+
+        /**
+         * @param settledUntil last time of the pairs of settled figures in this sample
+         */
+        void endSample(long time, long settledUntil) {
+            Arrays.sort(sample, 0, sampleCount);
+            if (sparePairs.length < count + sampleCount) {
+                int capacity = Math.max(count + sampleCount, 2 * sparePairs.length);
+                sparePairs = new long[capacity];
+                spareFirstTimes = new long[capacity];
+                spareLastTimes = new long[capacity];
+            }
+            long[] mergedPairs = sparePairs;
+            long[] mergedFirst = spareFirstTimes;
+            long[] mergedLast = spareLastTimes;
+            int merged = 0;
+            int i = 0;
+            int j = 0;
+            while (i < count || j < sampleCount) {
+                if (j == sampleCount || (i < count && pairs[i] < sample[j])) {
+                    mergedPairs[merged] = pairs[i];
+                    mergedFirst[merged] = firstTimes[i];
+                    mergedLast[merged++] = lastTimes[i++];
+                    continue;
+                }
+                long key = sample[j++];
+                boolean settledPair = settled[(int) (key >>> 32)] && settled[(int) key];
+                mergedPairs[merged] = key;
+                mergedLast[merged] = settledPair ? settledUntil : time;
+                if (i < count && pairs[i] == key) {
+                    mergedFirst[merged++] = firstTimes[i++];
+                } else {
+                    mergedFirst[merged++] = time;
+                }
+            }
+            sparePairs = pairs;
+            spareFirstTimes = firstTimes;
+            spareLastTimes = lastTimes;
+            pairs = mergedPairs;
+            firstTimes = mergedFirst;
+            lastTimes = mergedLast;
+            count = merged;
+            sampleCount = 0;
+        }
+    }
+
+    /**
+     * Computes the outline of every figure at {@code from} and sweeps the window envelopes.
+     *
+     * @return figures whose envelope meets another one, in index order
+     */
+    private int[] broadPhase(long from, long to) {
+        double[] envelopes = new double[4 * figureCount];
+        Rectangle2D.Double envelope = new Rectangle2D.Double();
+        int[] all = new int[figureCount];
+        for (int f = 0; f < figureCount; ++f) {
+            all[f] = f;
+            outline(f);
+            settled[f] = scene.isSettled(f, from);
+            if (settled[f]) {
+                System.arraycopy(boxes, 4 * f, envelopes, 4 * f, 4);
+            } else {
+                scene.envelope(f, from, to, envelope);
+                envelopes[4 * f] = envelope.getMinX();
+                envelopes[4 * f + 1] = envelope.getMinY();
+                envelopes[4 * f + 2] = envelope.getMaxX();
+                envelopes[4 * f + 3] = envelope.getMaxY();
+            }
+        }
+        boolean[] candidate = new boolean[figureCount];
+        sweep(envelopes, all, new long[figureCount], (a, b) -> {
+            candidate[a] = true;
+            candidate[b] = true;
+        });
+        int count = 0;
+        for (int f = 0; f < figureCount; ++f) {
+            if (candidate[f]) {
+                all[count++] = f;
+            }
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    private interface PairConsumer {
+        void accept(int a, int b);
+    }
+
+    private void sweep(int[] figures, long[] order, PairConsumer pairs) {
+        sweep(boxes, figures, order, pairs);
+    }
+
+    /**
+     * Sorts {@code figures} by the lower edge of their box along the axis where the boxes are spread wider, and
+     * reports every pair whose boxes intersect with positive area.
+     *
+     * @param order scratch array as long as {@code figures}
+     */
+    private static void sweep(double[] boxes, int[] figures, long[] order, PairConsumer pairs) {
+        int n = figures.length;
+        // Sweeping a tall scene along x would find every figure in the same column
+        double sumX = 0;
+        double sumY = 0;
+        double sumSquaresX = 0;
+        double sumSquaresY = 0;
+        for (int k = 0; k < n; ++k) {
+            int f = figures[k];
+            double x = boxes[4 * f] + boxes[4 * f + 2];
+            double y = boxes[4 * f + 1] + boxes[4 * f + 3];
+            sumX += x;
+            sumY += y;
+            sumSquaresX += x * x;
+            sumSquaresY += y * y;
+        }
+        int axis = sumSquaresY - sumY * sumY / n > sumSquaresX - sumX * sumX / n ? 1 : 0;
+        int other = 1 - axis;
+
+        for (int k = 0; k < n; ++k) {
+            order[k] = (long) sortKey(boxes[4 * figures[k] + axis]) << 32 | figures[k];
+        }
+        Arrays.sort(order, 0, n);
+        for (int k = 0; k < n; ++k) {
+            int a = (int) order[k];
+            double max = boxes[4 * a + 2 + axis];
+            double otherMin = boxes[4 * a + other];
+            double otherMax = boxes[4 * a + 2 + other];
+            // Keys never exceed the lower edge, so no later box starts before a key that is past max
+            for (int m = k + 1; m < n && keyValue((int) (order[m] >> 32)) < max; ++m) {
+                int b = (int) order[m];
+                if (boxes[4 * b + axis] < max && boxes[4 * a + axis] < boxes[4 * b + 2 + axis]
+                        && boxes[4 * b + other] < otherMax && otherMin < boxes[4 * b + 2 + other]) {
+                    pairs.accept(Math.min(a, b), Math.max(a, b));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return int that orders like {@code x} rounded down to a float
+     */
+    private static int sortKey(double x) {
+        float rounded = (float) x;
+        if (rounded > x) {
+            rounded = Math.nextDown(rounded);
+        }
+        int bits = Float.floatToIntBits(rounded);
+        return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+    }
+
+    private static float keyValue(int key) {
+        return Float.intBitsToFloat(key ^ ((key >> 31) & 0x7FFFFFFF));
+    }
+
+    /**
+     * Stores the evaluated geometry and bounding box of figure {@code f}.
+     */
+    private void outline(int f) {
+        boolean ellipse = scene.outline(f, transform, frame);
+        circle[f] = ellipse;
+        int g = 8 * f;
+        if (ellipse) {
+            // Figures are only rotated and scaled uniformly about their center, so circles stay circles
+            corners[0] = frame.getCenterX();
+            corners[1] = frame.getCenterY();
+            transform.transform(corners, 0, geometry, g, 1);
+            double radius = frame.getWidth() / 2 * Math.sqrt(Math.abs(transform.getDeterminant()));
+            geometry[g + 2] = radius;
+            boxes[4 * f] = geometry[g] - radius;
+            boxes[4 * f + 1] = geometry[g + 1] - radius;
+            boxes[4 * f + 2] = geometry[g] + radius;
+            boxes[4 * f + 3] = geometry[g + 1] + radius;
+            return;
+        }
+        double x = frame.getX();
+        double y = frame.getY();
+        corners[0] = x;
+        corners[1] = y;
+        corners[2] = x + frame.getWidth();
+        corners[3] = y;
+        corners[4] = x + frame.getWidth();
+        corners[5] = y + frame.getHeight();
+        corners[6] = x;
+        corners[7] = y + frame.getHeight();
+        transform.transform(corners, 0, geometry, g, 4);
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 4; ++i) {
+            minX = Math.min(minX, geometry[g + 2 * i]);
+            minY = Math.min(minY, geometry[g + 2 * i + 1]);
+            maxX = Math.max(maxX, geometry[g + 2 * i]);
+            maxY = Math.max(maxY, geometry[g + 2 * i + 1]);
+        }
+        boxes[4 * f] = minX;
+        boxes[4 * f + 1] = minY;
+        boxes[4 * f + 2] = maxX;
+        boxes[4 * f + 3] = maxY;
+    }
+
+    /**
+     * Separating axis test on the outlines of two figures. Figures that only touch do not intersect.
+     */
+    private boolean intersect(int a, int b) {
+        if (circle[a] && circle[b]) {
+            double dx = geometry[8 * b] - geometry[8 * a];
+            double dy = geometry[8 * b + 1] - geometry[8 * a + 1];
+            double reach = geometry[8 * a + 2] + geometry[8 * b + 2] - EPSILON;
+            return reach > 0 && dx * dx + dy * dy < reach * reach;
+        }
+        if (circle[a]) {
+            return intersectCircle(b, a);
+        }
+        if (circle[b]) {
+            return intersectCircle(a, b);
+        }
+        return !separatedByEdges(a, b) && !separatedByEdges(b, a);
+    }
+
+    /**
+     * @return true if an edge normal of rectangle {@code r} separates it from rectangle {@code other}
+     */
+    private boolean separatedByEdges(int r, int other) {
+        int g = 8 * r;
+        for (int edge = 0; edge < 2; ++edge) {
+            double axisX = -(geometry[g + 2 * edge + 3] - geometry[g + 2 * edge + 1]);
+            double axisY = geometry[g + 2 * edge + 2] - geometry[g + 2 * edge];
+            if (separated(axisX, axisY, project(r, axisX, axisY, true), project(r, axisX, axisY, false),
+                    project(other, axisX, axisY, true), project(other, axisX, axisY, false))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean intersectCircle(int r, int c) {
+        if (separatedByEdges(r, c)) {
+            return false;
+        }
+        // The remaining candidate axis points from the center to the closest corner, unless that is the center
+        double centerX = geometry[8 * c];
+        double centerY = geometry[8 * c + 1];
+        double bestX = 0;
+        double bestY = 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < 4; ++i) {
+            double dx = geometry[8 * r + 2 * i] - centerX;
+            double dy = geometry[8 * r + 2 * i + 1] - centerY;
+            if (dx * dx + dy * dy < best) {
+                best = dx * dx + dy * dy;
+                bestX = dx;
+                bestY = dy;
+            }
+        }
+        if (best < EPSILON * EPSILON) {
+            return geometry[8 * c + 2] > 0;
+        }
+        return !separated(bestX, bestY, project(r, bestX, bestY, true), project(r, bestX, bestY, false),
+                project(c, bestX, bestY, true), project(c, bestX, bestY, false));
+    }
+
+    /**
+     * @return smallest or largest projection of the outline of {@code f} on the axis
+     */
+    private double project(int f, double axisX, double axisY, boolean min) {
+        int g = 8 * f;
+        if (circle[f]) {
+            double center = geometry[g] * axisX + geometry[g + 1] * axisY;
+            double extent = geometry[g + 2] * Math.sqrt(axisX * axisX + axisY * axisY);
+            return min ? center - extent : center + extent;
+        }
+        double result = min ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 4; ++i) {
+            double p = geometry[g + 2 * i] * axisX + geometry[g + 2 * i + 1] * axisY;
+            result = min ? Math.min(result, p) : Math.max(result, p);
+        }
+        return result;
+    }
+
+    private static boolean separated(double axisX, double axisY, double minA, double maxA, double minB, double maxB) {
+        double tolerance = EPSILON * Math.sqrt(axisX * axisX + axisY * axisY);
+        return Math.min(maxA, maxB) - Math.max(minA, minB) <= tolerance;
+    }
+
+    public static void main(String[] args) throws IOException {
+        RenderOptions options = new RenderOptions();
+        int arg = options.parse(args, 0);
+        // Figure indices refer to the scene file
+        options.cull = false;
+        if (arg == args.length) {
+            throw new IllegalArgumentException("Expected motion, settle or overlaps");
+        }
+        String query = args[arg++];
+        Long from = null;
+        Long to = null;
+        long step = Math.max(1, Math.round(1000 / options.targetFps));
+        for (; arg < args.length; ++arg) {
+            switch (args[arg]) {
+                case "--from":
+                    from = Long.parseLong(args[++arg]);
+                    break;
+                case "--to":
+                    to = Long.parseLong(args[++arg]);
+                    break;
+                case "--step":
+                    step = Long.parseLong(args[++arg]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[arg]);
+            }
+        }
+        Scene scene = options.load(options.sceneFile);
+        SceneQuery sceneQuery = new SceneQuery(scene);
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        switch (query) {
+            case "motion":
+                for (int f = 0; f < scene.figureCount(); ++f) {
+                    for (Motion motion : sceneQuery.motions(f)) {
+                        out.println(motion.figure + " " + KINDS[motion.kind] + " 0 "
+                                + (motion.cycle ? "inf cycle " + motion.time : String.valueOf(motion.end())));
+                    }
+                }
+                break;
+            case "settle":
+                out.println("Settled from " + sceneQuery.settledTime() + " ms except " + sceneQuery.cyclingFigures()
+                        + " cycling figures");
+                break;
+            case "overlaps": {
+                long start = from != null ? from : 0;
+                long end = to != null ? to : Math.max(start, sceneQuery.settledTime());
+                long started = System.nanoTime();
+                List<Overlap> overlaps = sceneQuery.overlaps(start, end, step);
+                for (Overlap overlap : overlaps) {
+                    out.println(overlap.first + " " + overlap.second + " " + overlap.firstTime + " "
+                            + overlap.lastTime);
+                }
+                System.err.printf(Locale.ROOT, "%d overlapping pairs among %d figures in %d..%d ms, step %d ms, in %.1f ms%n",
+                        overlaps.size(), scene.figureCount(), start, end, step, (System.nanoTime() - started) / 1e6);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown query " + query);
+        }
+        out.flush();
+        options.shutdown();
+    }
+}
@@ -0,0 +1,203 @@
+package bproblem;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Text scene kept as one immutable record per figure, which can be replayed into any {@link SceneBuilder} without
+ * parsing. Figures can be added, replaced and removed in place, see {@link SceneUpdateChannel}.
+ * <p>
+ * As a {@link SceneBuilder}, appends the figures it receives.
+ */
+class SceneRecord implements SceneBuilder {
+    /**
+     * Figure line and animations exactly as they were given to the builder.
+     */
+    static final class Figure {
+        private final byte type;
+        // centerX, centerY, width, height, angle or centerX, centerY, radius
+        private final double[] shape;
+        private final Color color;
+        private final byte[] animKind;
+        // destX, destY or angle or destScale, two slots per animation
+        private final double[] animArgs;
+        private final long[] animTime;
+        private final boolean[] animCycle;
+
+        private Figure(byte type, double[] shape, Color color, byte[] animKind, double[] animArgs, long[] animTime,
+                       boolean[] animCycle) {
+            this.type = type;
+            this.shape = shape;
+            this.color = color;
+            this.animKind = animKind;
+            this.animArgs = animArgs;
+            this.animTime = animTime;
+            this.animCycle = animCycle;
+        }
+
+        void replay(SceneBuilder builder) {
+            if (type == FlatScene.RECTANGLE) {
+                builder.rectangle(shape[0], shape[1], shape[2], shape[3], shape[4], color);
+            } else {
+                builder.circle(shape[0], shape[1], shape[2], color);
+            }
+            for (int a = 0; a < animKind.length; ++a) {
+                if (animKind[a] == FlatScene.MOVE) {
+                    builder.move(animArgs[2 * a], animArgs[2 * a + 1], animTime[a], animCycle[a]);
+                } else if (animKind[a] == FlatScene.ROTATE) {
+                    builder.rotate(animArgs[2 * a], animTime[a], animCycle[a]);
+                } else {
+                    builder.scale(animArgs[2 * a], animTime[a], animCycle[a]);
+                }
+            }
+            builder.endFigure();
+        }
+    }
+
+    private int width;
+    private int height;
+    private final List<Figure> figures;
+
+    // Figure being recorded
+    private byte type;
+    private double[] shape;
+    private Color color;
+    private int animationCount;
+    private byte[] animKind = new byte[4];
+    private double[] animArgs = new double[8];
+    private long[] animTime = new long[4];
+    private boolean[] animCycle = new boolean[4];
+
+    SceneRecord() {
+        figures = new ArrayList<>();
+    }
+
+    static SceneRecord read(Path file) throws IOException {
+        SceneRecord record = new SceneRecord();
+        SceneParser.parse(file, record);
+        return record;
+    }
+
+    /**
+     * @return a single figure in scene file syntax
+     */
+    static Figure parseFigure(byte[] text) {
+        SceneRecord record = new SceneRecord();
+        SceneParser.parseFigure(text, record);
+        return record.figures.get(0);
+    }
+
+    /**
+     * @param text animation count and animations in scene file syntax
+     * @return {@code figure} with its animations replaced
+     */
+    static Figure parseAnimations(Figure figure, byte[] text) {
+        SceneRecord record = new SceneRecord();
+        record.type = figure.type;
+        record.shape = figure.shape;
+        record.color = figure.color;
+        SceneParser.parseAnimations(text, record);
+        return record.figures.get(0);
+    }
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int figureCount() {
+        return figures.size();
+    }
+
+    Figure figure(int index) {
+        return figures.get(index);
+    }
+
+    void add(int index, Figure figure) {
+        figures.add(index, figure);
+    }
+
+    void set(int index, Figure figure) {
+        figures.set(index, figure);
+    }
+
+    void remove(int index) {
+        figures.remove(index);
+    }
+
+    /**
+     * Feeds the whole scene to {@code builder}.
+     */
+    void replay(SceneBuilder builder) {
+        builder.size(width, height);
+        for (int i = 0; i < figures.size(); ++i) {
+            figures.get(i).replay(builder);
+        }
+    }
+
+    @Override
+    public void size(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public void rectangle(double centerX, double centerY, double width, double height, double angle, Color color) {
+        type = FlatScene.RECTANGLE;
+        shape = new double[]{centerX, centerY, width, height, angle};
+        this.color = color;
+    }
+
+    @Override
+    public void circle(double centerX, double centerY, double radius, Color color) {
+        type = FlatScene.CIRCLE;
+        shape = new double[]{centerX, centerY, radius};
+        this.color = color;
+    }
+
+    @Override
+    public void move(double destX, double destY, long time, boolean cycle) {
+        addAnimation(FlatScene.MOVE, destX, destY, time, cycle);
+    }
+
+    @Override
+    public void rotate(double angle, long time, boolean cycle) {
+        addAnimation(FlatScene.ROTATE, angle, 0, time, cycle);
+    }
+
+    @Override
+    public void scale(double destScale, long time, boolean cycle) {
+        addAnimation(FlatScene.SCALE, destScale, 0, time, cycle);
+    }
+
+    private void addAnimation(byte kind, double arg0, double arg1, long time, boolean cycle) {
+        if (animationCount == animKind.length) {
+            int capacity = animationCount * 2;
+            animKind = Arrays.copyOf(animKind, capacity);
+            animArgs = Arrays.copyOf(animArgs, 2 * capacity);
+            animTime = Arrays.copyOf(animTime, capacity);
+            animCycle = Arrays.copyOf(animCycle, capacity);
+        }
+        animKind[animationCount] = kind;
+        animArgs[2 * animationCount] = arg0;
+        animArgs[2 * animationCount + 1] = arg1;
+        animTime[animationCount] = time;
+        animCycle[animationCount] = cycle;
+        ++animationCount;
+    }
+
+    @Override
+    public void endFigure() {
+        figures.add(new Figure(type, shape, color, Arrays.copyOf(animKind, animationCount),
+                Arrays.copyOf(animArgs, 2 * animationCount), Arrays.copyOf(animTime, animationCount),
+                Arrays.copyOf(animCycle, animationCount)));
+        animationCount = 0;
+    }
+}
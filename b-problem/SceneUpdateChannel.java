@@ -0,0 +1,322 @@
+package bproblem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Edits the figures of a running scene without reloading it. Commands are read line by line from stdin or from
+ * connections to a local port, one connection at a time:
+ * <pre>
+ * add [index]       followed by a figure and its animations in scene file syntax, appended unless index is given
+ * replace index     followed by a figure and its animations
+ * animate index     followed by an animation count and the animations, which replace those of the figure
+ * remove index
+ * begin ... commit  applies the commands in between as one update
+ * </pre>
+ * Indices are positions in painting order. Each command edits the {@link SceneRecord} in place and becomes an
+ * {@link EditableScene.Edit} of one figure, whose scene is built on the channel's thread; nothing else is parsed or
+ * built again. The renderer takes the edits published since its last call with {@link #poll} between frames and
+ * applies them to the running scene, so it never waits for the channel. Every update is answered with
+ * {@code ok <figure count>} or {@code error <message>}, on stderr when reading stdin. A group with a failed command
+ * is discarded as a whole: the commands it applied to the record are undone and none of its edits are published.
+ * When the animation count of a command is malformed, the end of its lines is unknown, so the whole command is
+ * rejected and the lines up to the next command are skipped.
+ */
+class SceneUpdateChannel {
+    private static final String[] COMMANDS = {"add", "replace", "animate", "remove", "begin", "commit"};
+
+    private final RenderOptions options;
+    // Listening socket, or null to read stdin
+    private final ServerSocket server;
+    private final ConcurrentLinkedQueue<List<EditableScene.Edit>> published = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    // Record of the scene with every applied command, only used by the channel thread
+    private final SceneRecord record;
+    // Restores the record before each command of the current group, latest last
+    private final List<Runnable> undo = new ArrayList<>();
+
+    private SceneUpdateChannel(SceneRecord record, RenderOptions options, ServerSocket server) {
+        this.record = record;
+        this.options = options;
+        this.server = server;
+        thread = new Thread(server != null ? this::serveSocket : this::serveStdin, "scene-updates");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * @param spec {@code stdin} or a port on the loopback interface
+     * @param record text of the scene being rendered
+     */
+    static SceneUpdateChannel open(String spec, SceneRecord record, RenderOptions options) throws IOException {
+        if (spec.equals("stdin")) {
+            return new SceneUpdateChannel(record, options, null);
+        }
+        int port;
+        try {
+            port = Integer.parseInt(spec);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected stdin or a port but found " + spec);
+        }
+        return new SceneUpdateChannel(record, options, new ServerSocket(port, 1, InetAddress.getLoopbackAddress()));
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Never blocks.
+     *
+     * @return the edits published since the last call in the order to apply them, or null if there are none
+     */
+    List<EditableScene.Edit> poll() {
+        List<EditableScene.Edit> edits = published.poll();
+        if (edits == null) {
+            return null;
+        }
+        List<EditableScene.Edit> more;
+        while ((more = published.poll()) != null) {
+            edits.addAll(more);
+        }
+        return edits;
+    }
+
+    private void serveStdin() {
+        PrintWriter replies = new PrintWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8), true);
+        try {
+            process(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)), replies);
+        } catch (IOException e) {
+            replies.println("error reading stdin: " + e.getMessage());
+        }
+    }
+
+    private void serveSocket() {
+        System.err.println("Listening for scene updates on " + server.getLocalSocketAddress());
+        while (!server.isClosed()) {
+            try (Socket socket = server.accept()) {
+                process(new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)),
+                        new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                                true));
+            } catch (IOException e) {
+                System.err.println("Scene update connection failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Applies commands from {@code in} until it ends. A group that is still open at the end is discarded.
+     */
+    void process(BufferedReader in, PrintWriter replies) throws IOException {
+        // Edits of the commands inside begin ... commit, or null outside of a group
+        List<EditableScene.Edit> group = null;
+        boolean groupFailed = false;
+        // First line of the next command, read while skipping a malformed one
+        String pending = null;
+        String line;
+        while ((line = pending != null ? pending : nextLine(in)) != null) {
+            pending = null;
+            String[] words = line.trim().split("\\s+");
+            try {
+                if (words[0].equals("begin")) {
+                    if (group != null) {
+                        throw new IllegalArgumentException("begin inside begin");
+                    }
+                    group = new ArrayList<>();
+                    groupFailed = false;
+                } else if (words[0].equals("commit")) {
+                    if (group == null) {
+                        throw new IllegalArgumentException("commit without begin");
+                    }
+                    List<EditableScene.Edit> edits = group;
+                    group = null;
+                    if (groupFailed) {
+                        rollBack();
+                        throw new IllegalArgumentException("group discarded");
+                    }
+                    publish(edits, replies);
+                } else if (group != null) {
+                    try {
+                        group.add(apply(words, in));
+                    } catch (IllegalArgumentException e) {
+                        groupFailed = true;
+                        throw e;
+                    }
+                } else {
+                    List<EditableScene.Edit> edits = new ArrayList<>(1);
+                    edits.add(apply(words, in));
+                    publish(edits, replies);
+                }
+            } catch (MalformedCommandException e) {
+                replies.println("error " + e.getMessage());
+                pending = skipToCommand(in);
+            } catch (IllegalArgumentException e) {
+                replies.println("error " + e.getMessage());
+            }
+        }
+        if (group != null) {
+            rollBack();
+        }
+    }
+
+    /**
+     * Thrown when the lines of a command cannot be told apart from the commands that follow it.
+     */
+    private static final class MalformedCommandException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        MalformedCommandException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @return next line that starts with a command, or null at the end of input
+     */
+    private static String skipToCommand(BufferedReader in) throws IOException {
+        String line;
+        while ((line = nextLine(in)) != null) {
+            String word = line.trim().split("\\s+")[0];
+            for (String command : COMMANDS) {
+                if (word.equals(command)) {
+                    return line;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the rest of one command from {@code in} and applies it to the record. Leaves the record unchanged if the
+     * command fails.
+     *
+     * @return the edit of the running scene
+     */
+    private EditableScene.Edit apply(String[] words, BufferedReader in) throws IOException {
+        switch (words[0]) {
+            case "add": {
+                SceneRecord.Figure figure = SceneRecord.parseFigure(readFigure(in));
+                int index = words.length > 1 ? index(words, record.figureCount()) : record.figureCount();
+                Scene scene = options.buildFigure(record, figure);
+                record.add(index, figure);
+                undo.add(() -> record.remove(index));
+                return new EditableScene.Edit(EditableScene.Edit.ADD, index, scene);
+            }
+            case "replace": {
+                SceneRecord.Figure figure = SceneRecord.parseFigure(readFigure(in));
+                return replace(index(words, record.figureCount() - 1), figure);
+            }
+            case "animate": {
+                byte[] animations = readAnimations(in, new StringBuilder());
+                int index = index(words, record.figureCount() - 1);
+                return replace(index, SceneRecord.parseAnimations(record.figure(index), animations));
+            }
+            case "remove": {
+                int index = index(words, record.figureCount() - 1);
+                SceneRecord.Figure old = record.figure(index);
+                record.remove(index);
+                undo.add(() -> record.add(index, old));
+                return new EditableScene.Edit(EditableScene.Edit.REMOVE, index, null);
+            }
+            default:
+                throw new IllegalArgumentException("expected add, replace, animate, remove, begin or commit but found '"
+                        + words[0] + "'");
+        }
+    }
+
+    private EditableScene.Edit replace(int index, SceneRecord.Figure figure) {
+        Scene scene = options.buildFigure(record, figure);
+        SceneRecord.Figure old = record.figure(index);
+        record.set(index, figure);
+        undo.add(() -> record.set(index, old));
+        return new EditableScene.Edit(EditableScene.Edit.REPLACE, index, scene);
+    }
+
+    private void publish(List<EditableScene.Edit> edits, PrintWriter replies) {
+        undo.clear();
+        published.add(edits);
+        replies.println("ok " + record.figureCount());
+    }
+
+    /**
+     * Undoes the commands applied since the last {@link #publish}, latest first.
+     */
+    private void rollBack() {
+        for (int i = undo.size() - 1; i >= 0; --i) {
+            undo.get(i).run();
+        }
+        undo.clear();
+    }
+
+    private static int index(String[] words, int max) {
+        if (words.length != 2) {
+            throw new IllegalArgumentException(words[0] + " takes one figure index");
+        }
+        int index;
+        try {
+            index = Integer.parseInt(words[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("expected figure index but found '" + words[1] + "'");
+        }
+        if (index < 0 || index > max) {
+            throw new IllegalArgumentException("figure index " + index + " is not in 0.." + max);
+        }
+        return index;
+    }
+
+    /**
+     * @return figure line, animation count and animation lines
+     */
+    private static byte[] readFigure(BufferedReader in) throws IOException {
+        StringBuilder text = new StringBuilder();
+        text.append(requireLine(in)).append('\n');
+        return readAnimations(in, text);
+    }
+
+    private static byte[] readAnimations(BufferedReader in, StringBuilder text) throws IOException {
+        String countLine = requireLine(in);
+        text.append(countLine).append('\n');
+        int count;
+        try {
+            double value = Double.parseDouble(countLine.trim());
+            count = (int) value;
+            if (count != value || count < 0) {
+                throw new NumberFormatException();
+            }
+        } catch (NumberFormatException e) {
+            throw new MalformedCommandException("expected animation count but found '" + countLine.trim() + "'");
+        }
+        for (int i = 0; i < count; ++i) {
+            text.append(requireLine(in)).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String requireLine(BufferedReader in) throws IOException {
+        String line = nextLine(in);
+        if (line == null) {
+            throw new IllegalArgumentException("unexpected end of input");
+        }
+        return line;
+    }
+
+    /**
+     * @return next line that is not blank, or null at the end of input
+     */
+    private static String nextLine(BufferedReader in) throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+        } while (line != null && line.trim().isEmpty());
+        return line;
+    }
+}
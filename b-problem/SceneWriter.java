@@ -0,0 +1,82 @@
+package bproblem;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes a scene in the text format read by {@link SceneParser}.
+ */
+class SceneWriter implements SceneBuilder {
+    private final Writer out;
+    private final List<String> animations = new ArrayList<>();
+    private String figure;
+    private int figureCount = -1;
+
+    SceneWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * The format puts the figure count right after the size line, so it has to be known before {@link #size}.
+     */
+    void setFigureCount(int figureCount) {
+        this.figureCount = figureCount;
+    }
+
+    @Override
+    public void size(int width, int height) {
+        write(width + " " + height + "\n");
+        if (figureCount >= 0) {
+            write(figureCount + "\n");
+        }
+    }
+
+    @Override
+    public void rectangle(double centerX, double centerY, double width, double height, double angle, Color color) {
+        figure = String.format(Locale.ROOT, "rectangle %.3f %.3f %.3f %.3f %.3f %s",
+                centerX, centerY, width, height, angle, Foo.colorToText(color));
+    }
+
+    @Override
+    public void circle(double centerX, double centerY, double radius, Color color) {
+        figure = String.format(Locale.ROOT, "circle %.3f %.3f %.3f %s", centerX, centerY, radius, Foo.colorToText(color));
+    }
+
+    @Override
+    public void move(double destX, double destY, long time, boolean cycle) {
+        animations.add(String.format(Locale.ROOT, "move %.3f %.3f %d%s", destX, destY, time, cycle ? " cycle" : ""));
+    }
+
+    @Override
+    public void rotate(double angle, long time, boolean cycle) {
+        animations.add(String.format(Locale.ROOT, "rotate %.3f %d%s", angle, time, cycle ? " cycle" : ""));
+    }
+
+    @Override
+    public void scale(double destScale, long time, boolean cycle) {
+        animations.add(String.format(Locale.ROOT, "scale %.3f %d%s", destScale, time, cycle ? " cycle" : ""));
+    }
+
+    @Override
+    public void endFigure() {
+        StringBuilder sb = new StringBuilder(figure).append('\n').append(animations.size()).append('\n');
+        for (String animation : animations) {
+            sb.append(animation).append('\n');
+        }
+        animations.clear();
+        write(sb.toString());
+    }
+
+    private void write(String s) {
+        try {
+            out.write(s);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
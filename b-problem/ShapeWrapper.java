@@ -0,0 +1,110 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RectangularShape;
+import java.util.List;
+
+class ShapeWrapper {
+    final Color color;
+    final Shape shape;
+    List<Animation> animations;
+
+    // Per-frame state written by the animations, reused across frames
+    final AffineTransform transform = new AffineTransform();
+    private final AffineTransform scaleTransform = new AffineTransform();
+    double rotation;
+    double scaleFactor;
+    boolean rotated;
+    boolean scaled;
+
+    public ShapeWrapper(Color color, Shape shape) {
+        this.color = color;
+        this.shape = shape;
+    }
+
+    double getX() {
+        if (shape instanceof Rectangle) {
+            return ((Rectangle) shape).getX() + ((Rectangle) shape).getWidth() / 2;
+        } else if (shape instanceof Ellipse2D) {
+            return ((Ellipse2D) shape).getX() + ((Ellipse2D) shape).getWidth() / 2;
+        } else {
+            throw new IllegalStateException("Only rectangles and circles are allowed");
+        }
+    }
+
+    double getY() {
+        if (shape instanceof Rectangle) {
+            return ((Rectangle) shape).getY() + ((Rectangle) shape).getHeight() / 2;
+        } else if (shape instanceof Ellipse2D) {
+            return ((Ellipse2D) shape).getY() + ((Ellipse2D) shape).getHeight() / 2;
+        } else {
+            throw new IllegalStateException("Only rectangles and circles are allowed");
+        }
+    }
+
+    void move(double x, double y) {
+        if (shape instanceof Rectangle) {
+            ((Rectangle) shape).setLocation((int) (x - ((Rectangle) shape).getWidth() / 2), (int) (y - ((Rectangle) shape).getHeight() / 2));
+        } else if (shape instanceof Ellipse2D) {
+            Ellipse2D ellipse = (Ellipse2D) shape;
+            ellipse.setFrame(
+                    x - ellipse.getWidth() / 2,
+                    y - ellipse.getHeight() / 2,
+                    ellipse.getWidth(),
+                    ellipse.getHeight());
+        } else {
+            throw new IllegalStateException("Only rectangles and circles are allowed");
+        }
+    }
+
+    /**
+     * Evaluates all animations at {@code curTime} and stores the result in {@link #shape} and {@link #transform}.
+     */
+    void update(long curTime) {
+        rotation = 0;
+        scaleFactor = 1;
+        rotated = false;
+        scaled = false;
+        for (int i = 0; i < animations.size(); ++i) {
+            animations.get(i).apply(curTime);
+        }
+        transform.setToIdentity();
+        if (rotated) {
+            transform.rotate(rotation, getX(), getY());
+        }
+        if (scaled) {
+            scaleTransform.setToTranslation(getX(), getY());
+            scaleTransform.scale(scaleFactor, scaleFactor);
+            scaleTransform.translate(-getX(), -getY());
+            transform.concatenate(scaleTransform);
+        }
+    }
+
+    /**
+     * Stores a box that contains the figure at any time from {@code from} until {@code to} into {@code out}.
+     */
+    void envelope(long from, long to, Rectangle2D out) {
+        MotionEnvelope envelope = new MotionEnvelope();
+        envelope.reset(getX(), getY(), from, to);
+        for (int i = 0; i < animations.size(); ++i) {
+            animations.get(i).envelope(envelope);
+        }
+        RectangularShape bounds = (RectangularShape) shape;
+        envelope.store(bounds.getWidth(), bounds.getHeight(), out);
+    }
+
+    /**
+     * @return true if no animation changes the figure from {@code curTime} on
+     */
+    boolean isSettled(long curTime) {
+        for (int i = 0; i < animations.size(); ++i) {
+            if (!animations.get(i).isFinished(curTime)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,240 @@
+package bproblem;
+
+import java.awt.geom.AffineTransform;
+import java.util.Arrays;
+
+/**
+ * Pure-Java renderer that fills figures straight into an {@code int[]} ARGB buffer, as an alternative to
+ * {@link java.awt.Graphics2D#fill}. It mimics how non-antialiased Java2D fills these shapes, so frames match the
+ * Java2D backend up to single pixels along some edges:
+ * <ul>
+ * <li>a rectangle becomes a parallelogram whose origin and two adjacent corners are normalized to
+ * {@code floor(v + 0.25) + 0.25}, as with the default stroke control hint; a pixel is filled if its center is
+ * inside, left and top edges inclusive;</li>
+ * <li>a circle is the same four cubic curves as {@link java.awt.geom.Ellipse2D}, flattened into 8 segments per
+ * curve (more for large curves) and sampled at pixel corners instead of centers, like the Java2D path filler.</li>
+ * </ul>
+ * Figures are convex, so every scanline is a single span written with {@link Arrays#fill}.
+ */
+class SoftwareRasterizer {
+    // Control point offsets of a quarter circle approximated by a cubic curve, for a unit box
+    private static final double CTRL = 0.5522847498307933;
+    private static final double PCV = 0.5 + CTRL * 0.5;
+    private static final double NCV = 0.5 - CTRL * 0.5;
+    private static final double[][] ELLIPSE = {
+            {1.0, PCV, PCV, 1.0, 0.5, 1.0},
+            {NCV, 1.0, 0.0, PCV, 0.0, 0.5},
+            {0.0, NCV, NCV, 0.0, 0.5, 0.0},
+            {PCV, 0.0, 1.0, NCV, 1.0, 0.5},
+    };
+    private static final int CURVE_SEGMENTS = 8;
+    private static final int MAX_CURVE_SEGMENTS = 64;
+    // Largest second difference of a curve's control points that is still split into CURVE_SEGMENTS
+    private static final double CURVE_BEND = 47.2;
+
+    final int width;
+    final int height;
+    final int[] pixels;
+    // Pixels outside of clipMinX until clipMaxX and clipMinY until clipMaxY are never written
+    private int clipMinX;
+    private int clipMinY;
+    private int clipMaxX;
+    private int clipMaxY;
+
+    // Polygon being filled
+    private final double[] xs = new double[ELLIPSE.length * MAX_CURVE_SEGMENTS];
+    private final double[] ys = new double[ELLIPSE.length * MAX_CURVE_SEGMENTS];
+    private final double[] point = new double[8];
+
+    SoftwareRasterizer(int width, int height, int[] pixels) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel buffer is smaller than " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+        setClip(0, 0, width, height);
+    }
+
+    /**
+     * Restricts all fills to the rectangle {@code (x, y, w, h)} within the buffer.
+     */
+    void setClip(int x, int y, int w, int h) {
+        clipMinX = Math.max(0, x);
+        clipMinY = Math.max(0, y);
+        clipMaxX = Math.max(clipMinX, Math.min(width, x + w));
+        clipMaxY = Math.max(clipMinY, Math.min(height, y + h));
+    }
+
+    /**
+     * Fills the clip with {@code argb}.
+     */
+    void clear(int argb) {
+        if (clipMinX == 0 && clipMaxX == width) {
+            Arrays.fill(pixels, clipMinY * width, clipMaxY * width, argb);
+            return;
+        }
+        for (int row = clipMinY; row < clipMaxY; ++row) {
+            Arrays.fill(pixels, row * width + clipMinX, row * width + clipMaxX, argb);
+        }
+    }
+
+    /**
+     * Fills the rectangle {@code (x, y, w, h)} transformed by {@code tr}.
+     */
+    void fillRectangle(AffineTransform tr, double x, double y, double w, double h, int argb) {
+        if (tr.getShearX() == 0 && tr.getShearY() == 0) {
+            double x0 = normalize(tr.getScaleX() * x + tr.getTranslateX());
+            double x1 = normalize(tr.getScaleX() * (x + w) + tr.getTranslateX());
+            double y0 = normalize(tr.getScaleY() * y + tr.getTranslateY());
+            double y1 = normalize(tr.getScaleY() * (y + h) + tr.getTranslateY());
+            fillBox(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1), argb);
+            return;
+        }
+        point[0] = x;
+        point[1] = y;
+        point[2] = x + w;
+        point[3] = y;
+        point[4] = x;
+        point[5] = y + h;
+        tr.transform(point, 0, point, 0, 3);
+        xs[0] = normalize(point[0]);
+        ys[0] = normalize(point[1]);
+        xs[1] = normalize(point[2]);
+        ys[1] = normalize(point[3]);
+        xs[3] = normalize(point[4]);
+        ys[3] = normalize(point[5]);
+        xs[2] = xs[1] + xs[3] - xs[0];
+        ys[2] = ys[1] + ys[3] - ys[0];
+        fillConvex(4, argb, 0.5);
+    }
+
+    /**
+     * Fills the ellipse inscribed in {@code (x, y, w, h)} transformed by {@code tr}.
+     */
+    void fillEllipse(AffineTransform tr, double x, double y, double w, double h, int argb) {
+        point[0] = x + w;
+        point[1] = y + h / 2;
+        tr.transform(point, 0, point, 0, 1);
+        double lastX = point[0];
+        double lastY = point[1];
+        int n = 0;
+        for (double[] curve : ELLIPSE) {
+            for (int i = 0; i < 3; ++i) {
+                point[2 * i] = x + curve[2 * i] * w;
+                point[2 * i + 1] = y + curve[2 * i + 1] * h;
+            }
+            tr.transform(point, 0, point, 0, 3);
+            double x1 = point[0];
+            double y1 = point[1];
+            double x2 = point[2];
+            double y2 = point[3];
+            double endX = point[4];
+            double endY = point[5];
+            // Every halving of the step quarters the second differences
+            double bend = Math.max(
+                    Math.max(Math.abs(lastX - 2 * x1 + x2), Math.abs(lastY - 2 * y1 + y2)),
+                    Math.max(Math.abs(x1 - 2 * x2 + endX), Math.abs(y1 - 2 * y2 + endY)));
+            int segments = CURVE_SEGMENTS;
+            while (bend > CURVE_BEND && segments < MAX_CURVE_SEGMENTS) {
+                bend /= 4;
+                segments *= 2;
+            }
+            for (int s = 0; s < segments; ++s) {
+                double t = (double) s / segments;
+                double u = 1 - t;
+                xs[n] = u * u * u * lastX + 3 * u * u * t * x1 + 3 * u * t * t * x2 + t * t * t * endX;
+                ys[n] = u * u * u * lastY + 3 * u * u * t * y1 + 3 * u * t * t * y2 + t * t * t * endY;
+                ++n;
+            }
+            lastX = endX;
+            lastY = endY;
+        }
+        fillConvex(n, argb, 0);
+    }
+
+    private static double normalize(double v) {
+        return Math.floor(v + 0.25) + 0.25;
+    }
+
+    private void fillBox(double minX, double minY, double maxX, double maxY, int argb) {
+        int fromX = Math.max(clipMinX, (int) Math.ceil(minX - 0.5));
+        int toX = Math.min(clipMaxX, (int) Math.ceil(maxX - 0.5));
+        int fromY = Math.max(clipMinY, (int) Math.ceil(minY - 0.5));
+        int toY = Math.min(clipMaxY, (int) Math.ceil(maxY - 0.5));
+        if (fromX >= toX) {
+            return;
+        }
+        for (int row = fromY; row < toY; ++row) {
+            Arrays.fill(pixels, row * width + fromX, row * width + toX, argb);
+        }
+    }
+
+    /**
+     * Fills the convex polygon {@code xs, ys} of {@code n} vertices in either orientation by walking its two
+     * chains from the top vertex down.
+     *
+     * @param sample offset of the sampled point within a pixel, 0.5 for the center
+     */
+    private void fillConvex(int n, int argb, double sample) {
+        int top = 0;
+        int bottom = 0;
+        for (int i = 1; i < n; ++i) {
+            if (ys[i] < ys[top]) {
+                top = i;
+            }
+            if (ys[i] > ys[bottom]) {
+                bottom = i;
+            }
+        }
+        int fromY = Math.max(clipMinY, (int) Math.ceil(ys[top] - sample));
+        int toY = Math.min(clipMaxY, (int) Math.ceil(ys[bottom] - sample));
+        // Current edge of each chain goes from vertex a0 to a1 (forward) and b0 to b1 (backward)
+        int a0 = top;
+        int a1 = next(top, n);
+        int b0 = top;
+        int b1 = previous(top, n);
+        double slopeA = slope(a0, a1);
+        double slopeB = slope(b0, b1);
+        for (int row = fromY; row < toY; ++row) {
+            double sampleY = row + sample;
+            if (ys[a1] <= sampleY && a1 != bottom) {
+                do {
+                    a0 = a1;
+                    a1 = next(a1, n);
+                } while (ys[a1] <= sampleY && a1 != bottom);
+                slopeA = slope(a0, a1);
+            }
+            if (ys[b1] <= sampleY && b1 != bottom) {
+                do {
+                    b0 = b1;
+                    b1 = previous(b1, n);
+                } while (ys[b1] <= sampleY && b1 != bottom);
+                slopeB = slope(b0, b1);
+            }
+            double xa = xs[a0] + (sampleY - ys[a0]) * slopeA;
+            double xb = xs[b0] + (sampleY - ys[b0]) * slopeB;
+            int fromX = Math.max(clipMinX, (int) Math.ceil(Math.min(xa, xb) - sample));
+            int toX = Math.min(clipMaxX, (int) Math.ceil(Math.max(xa, xb) - sample));
+            if (fromX < toX) {
+                Arrays.fill(pixels, row * width + fromX, row * width + toX, argb);
+            }
+        }
+    }
+
+    /**
+     * @return dx/dy of the edge, 0 for a horizontal one
+     */
+    private double slope(int from, int to) {
+        double dy = ys[to] - ys[from];
+        return dy <= 0 ? 0 : (xs[to] - xs[from]) / dy;
+    }
+
+    private static int next(int i, int n) {
+        return i + 1 == n ? 0 : i + 1;
+    }
+
+    private static int previous(int i, int n) {
+        return i == 0 ? n - 1 : i - 1;
+    }
+}
@@ -0,0 +1,186 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills one frame with {@link SoftwareRasterizer} on several threads. The frame is cut into full-width bands of rows,
+ * the tiles, and every figure is binned, in painting order, into the tiles its bounds touch. Each tile is painted
+ * by one thread with the rasterizer clipped to it. The rasterizer clips spans exactly and figures within a tile keep
+ * their order, so the frame is identical to a sequential {@link Scene#rasterizeAll} over the whole image.
+ * <p>
+ * Rows outside the clip are skipped before any edge is walked, so a figure that spans several bands only repeats
+ * its setup, not its scanlines, which column tiles would. Java2D has no such exact clip: a clip or a translated
+ * tile buffer moves edges by an ulp and flips single pixels, and painting each tile unclipped into a private frame
+ * fills a figure once per tile, which is slower than one thread. The Java2D backend is therefore not tiled.
+ * <p>
+ * Threads take tiles one at a time from a shared counter, so a crowded tile does not hold up the others. The
+ * calling thread paints as well. An instance is not thread-safe: everything that renders frames concurrently owns
+ * one, see {@link RenderOptions#newTiledRenderer}.
+ */
+class TiledRenderer {
+    static final int DEFAULT_TILE_HEIGHT = 64;
+
+    private final int threads;
+    private final int tileHeight;
+    // threads - 1 workers, or null if the caller paints alone
+    private final ExecutorService pool;
+
+    private int tileCount;
+    // Figures of tile t are binFigures[binStart[t] until binStart[t + 1]]
+    private int[] binStart = new int[1];
+    private int[] binFigures = new int[0];
+    private int[] binFill = new int[0];
+    // First and last tile of every figure, -1 if it is outside the frame
+    private int[] figureTiles = new int[0];
+    private final Rectangle2D.Double bounds = new Rectangle2D.Double();
+    private final AtomicInteger nextTile = new AtomicInteger();
+    private final SoftwareRasterizer[] rasterizers;
+    // Drawing views of viewSource, one per worker, taken once per scene
+    private Scene viewSource;
+    private final Scene[] views;
+
+    TiledRenderer(int threads, int tileHeight) {
+        if (threads <= 0 || tileHeight <= 0) {
+            throw new IllegalArgumentException("Thread count and tile height must be positive: " + threads + ", "
+                    + tileHeight);
+        }
+        this.threads = threads;
+        this.tileHeight = tileHeight;
+        rasterizers = new SoftwareRasterizer[threads];
+        views = new Scene[threads];
+        if (threads > 1) {
+            AtomicInteger created = new AtomicInteger();
+            pool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "tile-renderer-" + created.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            pool = null;
+        }
+    }
+
+    int threads() {
+        return threads;
+    }
+
+    /**
+     * Fills {@code image}, an image of the scene size backed by an {@code int[]}, with {@code background} and the
+     * evaluated figures of {@code scene}.
+     */
+    void render(Scene scene, BufferedImage image, Color background) {
+        bin(scene, image.getHeight());
+        nextTile.set(0);
+        if (pool == null) {
+            paintTiles(0, scene, image, background);
+            return;
+        }
+        if (scene != viewSource) {
+            for (int worker = 1; worker < threads; ++worker) {
+                views[worker] = scene.drawingView();
+            }
+            viewSource = scene;
+        }
+        List<Future<?>> futures = new ArrayList<>(threads - 1);
+        for (int worker = 1; worker < threads; ++worker) {
+            int w = worker;
+            futures.add(pool.submit(() -> paintTiles(w, views[w], image, background)));
+        }
+        try {
+            paintTiles(0, scene, image, background);
+        } finally {
+            // Never leave workers painting into the image after returning
+            RuntimeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failure = new IllegalStateException("Tile rendering failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = new IllegalStateException("Interrupted while rendering tiles", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void bin(Scene scene, int height) {
+        tileCount = (height + tileHeight - 1) / tileHeight;
+        int figureCount = scene.figureCount();
+        if (binStart.length < tileCount + 1) {
+            binStart = new int[tileCount + 1];
+            binFill = new int[tileCount];
+        }
+        if (figureTiles.length < figureCount * 2) {
+            figureTiles = new int[figureCount * 2];
+        }
+
+        Arrays.fill(binStart, 0, tileCount + 1, 0);
+        for (int i = 0; i < figureCount; ++i) {
+            scene.bounds(i, bounds);
+            // Rasterization may touch the pixel around a fractional edge
+            int minY = Math.max(0, (int) Math.floor(bounds.getMinY()) - 1);
+            int maxY = Math.min(height - 1, (int) Math.floor(bounds.getMaxY()) + 1);
+            if (minY > maxY) {
+                figureTiles[2 * i] = -1;
+                continue;
+            }
+            figureTiles[2 * i] = minY / tileHeight;
+            figureTiles[2 * i + 1] = maxY / tileHeight;
+            for (int tile = minY / tileHeight; tile <= maxY / tileHeight; ++tile) {
+                ++binStart[tile + 1];
+            }
+        }
+        for (int tile = 0; tile < tileCount; ++tile) {
+            binStart[tile + 1] += binStart[tile];
+        }
+        if (binFigures.length < binStart[tileCount]) {
+            binFigures = new int[binStart[tileCount]];
+        }
+        System.arraycopy(binStart, 0, binFill, 0, tileCount);
+        for (int i = 0; i < figureCount; ++i) {
+            for (int tile = figureTiles[2 * i]; tile >= 0 && tile <= figureTiles[2 * i + 1]; ++tile) {
+                binFigures[binFill[tile]++] = i;
+            }
+        }
+    }
+
+    private void paintTiles(int worker, Scene scene, BufferedImage image, Color background) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        SoftwareRasterizer rasterizer = rasterizers[worker];
+        if (rasterizer == null || rasterizer.pixels != pixels || rasterizer.width != width) {
+            rasterizer = new SoftwareRasterizer(width, height, pixels);
+            rasterizers[worker] = rasterizer;
+        }
+        int argb = background.getRGB();
+        for (int tile = nextTile.getAndIncrement(); tile < tileCount; tile = nextTile.getAndIncrement()) {
+            rasterizer.setClip(0, tile * tileHeight, width, tileHeight);
+            rasterizer.clear(argb);
+            for (int k = binStart[tile]; k < binStart[tile + 1]; ++k) {
+                scene.rasterize(binFigures[k], rasterizer);
+            }
+        }
+    }
+
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package bproblem;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Exports a scene as an uncompressed video stream without holding the clip in memory.
+ * <p>
+ * Usage: {@code java bproblem.Foo [render options] --export [--format y4m|rgb] [--start <millis>]
+ * [--duration <millis>] [--producers N] [--buffers N] [--out file] < scene.txt}
+ * <p>
+ * Frames are {@code 1000 / --fps} milliseconds of scene time apart. {@code y4m} is YUV4MPEG2 with 4:4:4 chroma,
+ * which ffmpeg and mpv play as is; {@code rgb} is packed 24-bit RGB, e.g.
+ * {@code ffplay -f rawvideo -pixel_format rgb24 -video_size 1300x400 -framerate 60 -}. The stream goes to stdout
+ * unless {@code --out} names a file.
+ * <p>
+ * Each of the {@code --producers} threads owns a copy of the scene, renders every N-th frame into a
+ * {@link FrameRing} of {@code --buffers} reusable frames and converts it to the output pixel format. The calling
+ * thread writes frames in order. A full ring stalls the producers, so memory stays at
+ * {@code buffers * width * height * 7} bytes plus one scene per producer for any clip length.
+ */
+class VideoExporter {
+    enum Format {
+        Y4M, RGB
+    }
+
+    private static final byte[] FRAME_HEADER = "FRAME\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Reusable frame: the rendered image and its pixels in the output format.
+     */
+    private static class Frame {
+        final BufferedImage image;
+        final int[] pixels;
+        final byte[] bytes;
+        Graphics2D g2d;
+        SoftwareRasterizer rasterizer;
+
+        Frame(int width, int height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            bytes = new byte[pixels.length * 3];
+        }
+    }
+
+    private final RenderOptions options;
+    private final Format format;
+    private final long start;
+    private final long duration;
+    private final int producers;
+    private final int buffers;
+    private final String out;
+    private final FrameMetrics metrics = new FrameMetrics();
+    private final AffineTransform identity = new AffineTransform();
+
+    VideoExporter(RenderOptions options, Format format, long start, long duration, int producers, int buffers,
+                  String out) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Negative duration: " + duration);
+        }
+        if (producers <= 0 || buffers < producers) {
+            throw new IllegalArgumentException("Need at least one producer and a buffer per producer: "
+                    + producers + " producers, " + buffers + " buffers");
+        }
+        if (options.targetFps <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + options.targetFps);
+        }
+        this.options = options;
+        this.format = format;
+        this.start = start;
+        this.duration = duration;
+        this.producers = producers;
+        this.buffers = buffers;
+        this.out = out;
+    }
+
+    static VideoExporter fromArgs(RenderOptions options, String[] args, int offset) {
+        Format format = Format.Y4M;
+        long start = 0;
+        long duration = 10000;
+        int producers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        int buffers = -1;
+        String out = null;
+        for (int i = offset; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--format":
+                    try {
+                        format = Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Invalid format " + args[i]);
+                    }
+                    break;
+                case "--start":
+                    start = Long.parseLong(args[++i]);
+                    break;
+                case "--duration":
+                    duration = Long.parseLong(args[++i]);
+                    break;
+                case "--producers":
+                    producers = Integer.parseInt(args[++i]);
+                    break;
+                case "--buffers":
+                    buffers = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    out = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        return new VideoExporter(options, format, start, duration, producers,
+                buffers > 0 ? buffers : 2 * producers, out);
+    }
+
+    long frameCount() {
+        return (long) Math.floor(duration * options.targetFps / 1000) + 1;
+    }
+
+    long frameTime(long frame) {
+        return start + Math.round(frame * 1000 / options.targetFps);
+    }
+
+    /**
+     * Loads the scene once per producer, streams all frames and prints statistics to stderr.
+     */
+    void run() throws IOException, InterruptedException {
+        Scene[] scenes = loadScenes();
+        int width = scenes[0].width();
+        int height = scenes[0].height();
+        Frame[] frames = new Frame[buffers];
+        for (int i = 0; i < buffers; ++i) {
+            frames[i] = new Frame(width, height);
+        }
+        FrameRing<Frame> ring = new FrameRing<>(frames);
+        long frameCount = frameCount();
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; ++p) {
+            int producer = p;
+            threads[p] = new Thread(() -> produce(ring, scenes[producer], producer, frameCount),
+                    "export-producer-" + p);
+            threads[p].setDaemon(true);
+            threads[p].start();
+        }
+
+        long started = System.nanoTime();
+        OutputStream stream = new BufferedOutputStream(out != null ? new FileOutputStream(out) : System.out, 1 << 16);
+        try {
+            if (format == Format.Y4M) {
+                stream.write(y4mHeader(width, height).getBytes(StandardCharsets.US_ASCII));
+            }
+            for (long frame = 0; frame < frameCount; ++frame) {
+                Frame buffer = ring.take(frame);
+                if (format == Format.Y4M) {
+                    stream.write(FRAME_HEADER);
+                }
+                stream.write(buffer.bytes);
+                ring.release(frame);
+            }
+            stream.flush();
+        } catch (IOException | RuntimeException | InterruptedException e) {
+            ring.fail(e);
+            throw e;
+        } finally {
+            if (out != null) {
+                stream.close();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Frame frame : frames) {
+            if (frame.g2d != null) {
+                frame.g2d.dispose();
+            }
+        }
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.err.printf(Locale.ROOT, "Exported %d frames of %dx%d in %.3f s (%.1f fps) with %d producers and %d "
+                        + "buffers, %d producer stalls, %d consumer stalls%n", frameCount, width, height, seconds,
+                frameCount / seconds, producers, buffers, ring.producerWaits(), ring.consumerWaits());
+        System.err.println(metrics.getSummary());
+    }
+
+    private Scene[] loadScenes() throws IOException {
+        Scene[] scenes = new Scene[producers];
+        if (options.sceneFile != null) {
+            for (int p = 0; p < producers; ++p) {
+                scenes[p] = options.load(options.sceneFile);
+            }
+        } else {
+            // stdin can only be read once
+            byte[] text = readAll(System.in);
+            for (int p = 0; p < producers; ++p) {
+                scenes[p] = options.load(text);
+            }
+        }
+        return scenes;
+    }
+
+    private void produce(FrameRing<Frame> ring, Scene scene, int producer, long frameCount) {
+        // Producers render side by side, so each needs its own tiled renderer
+        TiledRenderer tiledRenderer = options.newTiledRenderer();
+        try {
+            for (long frame = producer; frame < frameCount; frame += producers) {
+                Frame buffer = ring.acquire(frame);
+                render(scene, buffer, frameTime(frame), tiledRenderer);
+                ring.publish(frame);
+            }
+        } catch (Throwable e) {
+            ring.fail(e);
+        } finally {
+            if (tiledRenderer != null) {
+                tiledRenderer.shutdown();
+            }
+        }
+    }
+
+    /**
+     * @param tiledRenderer renderer of the calling producer, or null
+     */
+    private void render(Scene scene, Frame frame, long curTime, TiledRenderer tiledRenderer) {
+        long started = System.nanoTime();
+        options.evaluate(scene, curTime);
+        long evaluated = System.nanoTime();
+        if (tiledRenderer != null) {
+            tiledRenderer.render(scene, frame.image, HeadlessRenderer.BACKGROUND);
+        } else if (options.softwareBackend) {
+            if (frame.rasterizer == null) {
+                frame.rasterizer = new SoftwareRasterizer(scene.width(), scene.height(), frame.pixels);
+            }
+            frame.rasterizer.clear(HeadlessRenderer.BACKGROUND.getRGB());
+            scene.rasterizeAll(frame.rasterizer);
+        } else {
+            if (frame.g2d == null) {
+                frame.g2d = frame.image.createGraphics();
+                frame.g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            }
+            frame.g2d.setTransform(identity);
+            frame.g2d.setColor(HeadlessRenderer.BACKGROUND);
+            frame.g2d.fillRect(0, 0, scene.width(), scene.height());
+            scene.drawAll(frame.g2d, identity);
+        }
+        long filled = System.nanoTime();
+        if (format == Format.Y4M) {
+            toYuv444(frame.pixels, frame.bytes);
+        } else {
+            toRgb(frame.pixels, frame.bytes);
+        }
+        metrics.frame(evaluated - started, filled - evaluated, System.nanoTime() - started);
+    }
+
+    private String y4mHeader(int width, int height) {
+        double fps = options.targetFps;
+        String rate = fps == Math.rint(fps) ? (long) fps + ":1" : Math.round(fps * 1000) + ":1000";
+        return "YUV4MPEG2 W" + width + " H" + height + " F" + rate + " Ip A1:1 C444\n";
+    }
+
+    /**
+     * Converts ARGB pixels into Y, U and V planes with BT.601 limited range coefficients.
+     */
+    static void toYuv444(int[] pixels, byte[] out) {
+        int n = pixels.length;
+        for (int i = 0; i < n; ++i) {
+            int argb = pixels[i];
+            int r = (argb >> 16) & 0xFF;
+            int g = (argb >> 8) & 0xFF;
+            int b = argb & 0xFF;
+            out[i] = (byte) (((66 * r + 129 * g + 25 * b + 128) >> 8) + 16);
+            out[n + i] = (byte) (((-38 * r - 74 * g + 112 * b + 128) >> 8) + 128);
+            out[2 * n + i] = (byte) (((112 * r - 94 * g - 18 * b + 128) >> 8) + 128);
+        }
+    }
+
+    static void toRgb(int[] pixels, byte[] out) {
+        for (int i = 0, j = 0; i < pixels.length; ++i) {
+            int argb = pixels[i];
+            out[j++] = (byte) (argb >> 16);
+            out[j++] = (byte) (argb >> 8);
+            out[j++] = (byte) argb;
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,13 @@
+package bproblem;
+
+/**
+ * Real time, anchored at the moment the clock was created.
+ */
+class WallClock implements SceneClock {
+    private final long startNanos = System.nanoTime();
+
+    @Override
+    public long now() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
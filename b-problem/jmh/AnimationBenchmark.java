@@ -0,0 +1,54 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of a single figure with one animation of every kind.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnimationBenchmark {
+    @Param({"move", "rotate", "scale"})
+    public String kind;
+
+    @Param({"false", "true"})
+    public boolean cycle;
+
+    private ShapeWrapper figure;
+    private long curTime;
+
+    @Setup
+    public void setUp() {
+        List<ShapeWrapper> figures = new ArrayList<>();
+        FigureListBuilder builder = new FigureListBuilder(figures);
+        builder.size(1000, 1000);
+        builder.rectangle(100, 100, 24, 48, 0, Color.RED);
+        switch (kind) {
+            case "move":
+                builder.move(900, 700, 10000, cycle);
+                break;
+            case "rotate":
+                builder.rotate(270, 10000, cycle);
+                break;
+            default:
+                builder.scale(2.5, 10000, cycle);
+                break;
+        }
+        builder.endFigure();
+        figure = figures.get(0);
+    }
+
+    @Benchmark
+    public double update() {
+        // Sweep the whole timeline so both directions of cycle animations and the finished state are covered
+        curTime = (curTime + 16) % 40000;
+        figure.update(curTime);
+        return figure.transform.getTranslateX() + figure.getX();
+    }
+}
@@ -0,0 +1,50 @@
+package bproblem;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Scene sources for the benchmarks: {@code <n>} is {@code input/<n>.txt}, {@code gen:<count>} is a generated scene.
+ */
+final class BenchmarkScenes {
+    private BenchmarkScenes() {
+    }
+
+    static byte[] text(String scene) throws IOException {
+        if (scene.startsWith("gen:")) {
+            int figureCount = Integer.parseInt(scene.substring(4));
+            StringWriter out = new StringWriter();
+            SceneWriter writer = new SceneWriter(out);
+            writer.setFigureCount(figureCount);
+            SceneGenerator.generate(writer, 1300, 400, figureCount, 42);
+            return out.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        return Files.readAllBytes(Paths.get(System.getProperty("scene.dir", "input"), scene + ".txt"));
+    }
+
+    /**
+     * @param model {@code object} for the {@link ShapeWrapper} model or {@code flat} for {@link FlatScene}
+     */
+    static Scene load(String scene, String model) throws IOException {
+        if (model.equals("flat")) {
+            FlatScene.Builder builder = new FlatScene.Builder();
+            build(scene, builder);
+            return builder.build();
+        }
+        FigureListBuilder builder = new FigureListBuilder(new ArrayList<>());
+        build(scene, builder);
+        return builder.build();
+    }
+
+    static void build(String scene, SceneBuilder builder) throws IOException {
+        if (scene.startsWith("gen:")) {
+            SceneGenerator.generate(builder, 1300, 400, Integer.parseInt(scene.substring(4)), 42);
+        } else {
+            SceneParser.parse(text(scene), builder);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full frame of a sparse scene that is much taller than the 1300x400 viewport, with and without
+ * {@link CulledScene}. Every 400 pixel band of the scene holds 1000 figures.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CullingBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int figureCount;
+
+    @Param({"true", "false"})
+    public boolean cull;
+
+    private final AffineTransform identity = new AffineTransform();
+    private Scene scene;
+    private BufferedImage image;
+    private Graphics2D g2d;
+    private long curTime;
+
+    @Setup
+    public void setUp() {
+        FlatScene.Builder builder = new FlatScene.Builder();
+        SceneGenerator.generate(builder, 1300, 400 * (figureCount / 1000), figureCount, 42);
+        scene = builder.build();
+        if (cull) {
+            CulledScene culled = new CulledScene(scene);
+            culled.setViewport(0, 0, 1300, 400);
+            scene = culled;
+        }
+        image = new BufferedImage(1300, 400, BufferedImage.TYPE_INT_ARGB);
+        g2d = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        curTime = (curTime + 16) % 40000;
+        g2d.setTransform(identity);
+        g2d.setColor(HeadlessRenderer.BACKGROUND);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        scene.paint(g2d, identity, curTime);
+        return image;
+    }
+}
@@ -0,0 +1,51 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full frame: evaluation and Java2D fill of every figure into an offscreen image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameBenchmark {
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "gen:10000", "gen:100000"})
+    public String scene;
+
+    @Param({"object", "flat"})
+    public String model;
+
+    private final AffineTransform identity = new AffineTransform();
+    private Scene sceneModel;
+    private BufferedImage image;
+    private Graphics2D g2d;
+    private long curTime;
+
+    @Setup
+    public void setUp() throws IOException {
+        sceneModel = BenchmarkScenes.load(scene, model);
+        image = new BufferedImage(sceneModel.width(), sceneModel.height(), BufferedImage.TYPE_INT_ARGB);
+        g2d = image.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        curTime = (curTime + 16) % 40000;
+        g2d.setTransform(identity);
+        g2d.setColor(HeadlessRenderer.BACKGROUND);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        sceneModel.paint(g2d, identity, curTime);
+        return image;
+    }
+}
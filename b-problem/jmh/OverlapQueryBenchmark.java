@@ -0,0 +1,32 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SceneQuery#overlaps} over ten frames of a sparse scene that is much taller than it is wide, 1000 figures
+ * per 1300x400 band like {@link CullingBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OverlapQueryBenchmark {
+    @Param({"10000", "100000"})
+    public int figureCount;
+
+    private Scene scene;
+
+    @Setup
+    public void setUp() {
+        FlatScene.Builder builder = new FlatScene.Builder();
+        SceneGenerator.generate(builder, 1300, 400 * (figureCount / 1000), figureCount, 42);
+        scene = builder.build();
+    }
+
+    @Benchmark
+    public List<SceneQuery.Overlap> overlaps() {
+        return new SceneQuery(scene).overlaps(20000, 20160, 16);
+    }
+}
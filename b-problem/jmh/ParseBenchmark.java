@@ -0,0 +1,40 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the text scene format into both scene models.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParseBenchmark {
+    @Param({"0", "10", "gen:10000", "gen:100000", "gen:1000000"})
+    public String scene;
+
+    private byte[] text;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = BenchmarkScenes.text(scene);
+    }
+
+    @Benchmark
+    public List<ShapeWrapper> objects() {
+        List<ShapeWrapper> figures = new ArrayList<>();
+        SceneParser.parse(text, new FigureListBuilder(figures));
+        return figures;
+    }
+
+    @Benchmark
+    public FlatScene flat() {
+        FlatScene.Builder builder = new FlatScene.Builder();
+        SceneParser.parse(text, builder);
+        return builder.build();
+    }
+}
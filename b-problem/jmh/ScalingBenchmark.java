@@ -0,0 +1,35 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation phase only, on generated scenes of growing size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScalingBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int figureCount;
+
+    @Param({"object", "flat"})
+    public String model;
+
+    private Scene scene;
+    private long curTime;
+
+    @Setup
+    public void setUp() throws IOException {
+        scene = BenchmarkScenes.load("gen:" + figureCount, model);
+    }
+
+    @Benchmark
+    public Scene evaluate() {
+        curTime = (curTime + 16) % 40000;
+        scene.evaluate(curTime);
+        return scene;
+    }
+}
@@ -0,0 +1,75 @@
+package bproblem;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fill phase of one frame on a 1300x400 canvas and on a 3840x2160 one with the same figure density. {@code java2d}
+ * and {@code software} fill sequentially, a number is the thread count of a {@link TiledRenderer}, which fills with
+ * the software backend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TiledRenderBenchmark {
+    @Param({"1300x400", "3840x2160"})
+    public String canvas;
+
+    @Param({"java2d", "software", "1", "2", "4", "8"})
+    public String renderer;
+
+    private Scene scene;
+    private BufferedImage image;
+    private TiledRenderer tiledRenderer;
+    private SoftwareRasterizer rasterizer;
+
+    @Setup
+    public void setUp() {
+        String[] size = canvas.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        FlatScene.Builder builder = new FlatScene.Builder();
+        // 10000 figures on 1300x400
+        SceneGenerator.generate(builder, width, height, (int) ((long) width * height / 52), 42);
+        scene = builder.build();
+        scene.evaluate(5000);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        if (renderer.equals("software")) {
+            rasterizer = new SoftwareRasterizer(width, height,
+                    ((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+        } else if (!renderer.equals("java2d")) {
+            tiledRenderer = new TiledRenderer(Integer.parseInt(renderer), TiledRenderer.DEFAULT_TILE_HEIGHT);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (tiledRenderer != null) {
+            tiledRenderer.shutdown();
+        }
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        if (tiledRenderer != null) {
+            tiledRenderer.render(scene, image, HeadlessRenderer.BACKGROUND);
+        } else if (rasterizer != null) {
+            rasterizer.clear(HeadlessRenderer.BACKGROUND.getRGB());
+            scene.rasterizeAll(rasterizer);
+        } else {
+            Graphics2D g2d = image.createGraphics();
+            try {
+                g2d.setColor(HeadlessRenderer.BACKGROUND);
+                g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+                scene.drawAll(g2d, g2d.getTransform());
+            } finally {
+                g2d.dispose();
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,118 @@
+package bproblem;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compiled scenes: every contest input renders the same frames after a round trip through {@link SceneCompiler},
+ * and a corrupted file is rejected with the offset of the bad value.
+ */
+public class SceneCompilerTest {
+    // Offsets in the file of the scene built by setUp: a 2-color palette, then 2 figures with 1 animation each
+    private static final int FIGURE_0 = 40;
+    private static final int FIGURE_1 = 80;
+    private static final int ANIMATION_0 = 120;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        FlatScene.Builder builder = new FlatScene.Builder();
+        builder.size(100, 100);
+        builder.rectangle(20, 20, 10, 10, 0, Color.RED);
+        builder.move(80, 80, 1000, false);
+        builder.endFigure();
+        builder.circle(50, 50, 5, Color.BLUE);
+        builder.scale(2, 1000, true);
+        builder.endFigure();
+        file = Files.createTempFile("scene", SceneCompiler.EXTENSION);
+        SceneCompiler.write(builder.build(), file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void inputsRenderTheSameFramesWhenCompiled() throws IOException {
+        int inputs = 0;
+        try (DirectoryStream<Path> texts = Files.newDirectoryStream(Paths.get(System.getProperty("scene.dir", "input")),
+                "*.txt")) {
+            for (Path text : texts) {
+                assertEquals(text + " differs at the frame of", -1, SceneCompiler.firstDifferentFrame(text));
+                ++inputs;
+            }
+        }
+        assertTrue("No inputs found", inputs > 0);
+    }
+
+    @Test
+    public void loadsWhatWasWritten() throws IOException {
+        FlatScene scene = SceneCompiler.load(file);
+        assertEquals(2, scene.figureCount);
+        assertEquals(2, scene.animationCount());
+        assertEquals(Color.BLUE, scene.palette[scene.color[1]]);
+        assertEquals(FlatScene.SCALE, scene.animKind[1]);
+    }
+
+    @Test
+    public void rejectsUnknownFigureType() throws IOException {
+        assertCorrupted(FIGURE_0, (byte) 7, FIGURE_0);
+    }
+
+    @Test
+    public void rejectsColorIndexOutsideThePalette() throws IOException {
+        assertCorrupted(FIGURE_0 + 1, (byte) 2, FIGURE_0 + 1);
+        assertCorrupted(FIGURE_0 + 1, (byte) -1, FIGURE_0 + 1);
+    }
+
+    @Test
+    public void rejectsAnimationIndexPastTheAnimations() throws IOException {
+        assertCorrupted(FIGURE_1 + 4, 3, FIGURE_1 + 4);
+    }
+
+    @Test
+    public void rejectsAnimationIndexBeforeThePreviousFigure() throws IOException {
+        assertCorrupted(FIGURE_0 + 4, 2, FIGURE_1 + 4);
+    }
+
+    @Test
+    public void rejectsUnknownAnimationKind() throws IOException {
+        assertCorrupted(ANIMATION_0, (byte) 9, ANIMATION_0);
+    }
+
+    private void assertCorrupted(int position, byte value, int offset) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[position] = value;
+        assertRejected(bytes, offset);
+    }
+
+    private void assertCorrupted(int position, int value, int offset) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(position, value);
+        assertRejected(bytes, offset);
+    }
+
+    private void assertRejected(byte[] bytes, int offset) throws IOException {
+        Files.write(file, bytes);
+        try {
+            SceneCompiler.load(file);
+            fail("Corrupted scene loaded");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith(" at offset " + offset));
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package bproblem;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Text scenes: numbers read on the fast path equal {@link Double#parseDouble}, others fall back to it, and malformed
+ * input is rejected with the line it is on.
+ */
+public class SceneParserTest {
+    @Test
+    public void fastPathMatchesParseDouble() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; ++i) {
+            long mantissa = (long) (random.nextDouble() * Math.pow(10, 1 + random.nextInt(15)));
+            String digits = Long.toString(mantissa);
+            int dot = random.nextInt(digits.length() + 1);
+            String number = (random.nextBoolean() ? "-" : "") + digits.substring(0, dot) + "." + digits.substring(dot);
+            assertParsesLikeParseDouble(number);
+        }
+        for (String number : new String[]{"0", "-0", "+1.5", "1.", ".5", "007", "0.1", "123456789012345",
+                "0.000000000000000000001"}) {
+            assertParsesLikeParseDouble(number);
+        }
+    }
+
+    @Test
+    public void fallsBackToParseDouble() {
+        for (String number : new String[]{"1e3", "-2.5E-2", "1234567890123456.5", "0.1234567890123456789",
+                "Infinity", "NaN", "0x1p3"}) {
+            assertParsesLikeParseDouble(number);
+        }
+    }
+
+    @Test
+    public void parsesCrlfLines() {
+        String scene = "100 50\r\n1\r\ncircle 10 20 5 red\r\n1\r\nmove 30 40 1000 cycle\r\n";
+        FlatScene.Builder builder = new FlatScene.Builder();
+        SceneParser.parse(scene.getBytes(StandardCharsets.US_ASCII), builder);
+        FlatScene flat = builder.build();
+        assertEquals(100, flat.width());
+        assertEquals(1, flat.figureCount);
+        assertEquals(1, flat.animationCount());
+        assertTrue(flat.animCycle[0]);
+    }
+
+    @Test
+    public void countsCrlfLinesInErrors() {
+        assertRejected("100 50\r\n1\r\n\r\ncircle 10 20 5 red\r\n1\r\nmove 30 40 1000 loop\r\n",
+                "Line 6: expected cycle but found 'loop'");
+    }
+
+    @Test
+    public void rejectsUnknownFigure() {
+        assertRejected("100 50\n1\ntriangle 1 2 3 red\n0\n",
+                "Line 3: expected rectangle or circle but found 'triangle'");
+    }
+
+    @Test
+    public void rejectsUnknownAnimation() {
+        assertRejected("100 50\n1\ncircle 1 2 3 red\n1\nspin 90 1000\n",
+                "Line 5: expected move, rotate or scale but found 'spin'");
+    }
+
+    @Test
+    public void rejectsBadNumber() {
+        assertRejected("100 50\n1\ncircle 1 y 3 red\n0\n", "Line 3: expected circle center y but found 'y'");
+        assertRejected("100 50\n1\ncircle 1 . 3 red\n0\n", "Line 3: expected circle center y but found '.'");
+    }
+
+    @Test
+    public void rejectsBadColor() {
+        assertRejected("100 50\n1\ncircle 1 2 3 blue\n0\n", "Line 3: invalid color 'blue'");
+    }
+
+    @Test
+    public void rejectsBadCycle() {
+        assertRejected("100 50\n1\ncircle 1 2 3 red\n1\nrotate 90 1000 cycles\n",
+                "Line 5: expected cycle but found 'cycles'");
+    }
+
+    @Test
+    public void rejectsMissingValues() {
+        assertRejected("100 50\n1\ncircle 1 2\n0\n", "Line 3: missing circle radius");
+        assertRejected("100 50\n1\ncircle 1 2 3 red\n1\nmove 10 20\n", "Line 5: missing move time");
+        assertRejected("100 50\n2\ncircle 1 2 3 red\n0\n", "Line 5: missing figure");
+    }
+
+    @Test
+    public void rejectsNonIntegerCount() {
+        assertRejected("100 50\n2.5\n", "Line 2: expected integer figure count but found '2.5'");
+    }
+
+    @Test
+    public void rejectsTrailingValues() {
+        assertRejected("100 50 7\n0\n", "Line 1: unexpected '7' at the end of the line");
+    }
+
+    @Test
+    public void rejectsTooLongToken() {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < 65; ++i) {
+            digits.append('1');
+        }
+        assertRejected("100 50\n1\ncircle " + digits + " 2 3 red\n0\n",
+                "Line 3: token is too long: '" + digits.substring(0, 64) + "...'");
+    }
+
+    @Test
+    public void streamReportsTheSameLine() {
+        String scene = "100 50\n1\ncircle 1 2 3 red\n1\nmove 10 20 1000 loop\n";
+        try {
+            SceneParser.parse(new ByteArrayInputStream(scene.getBytes(StandardCharsets.US_ASCII)),
+                    new FlatScene.Builder());
+            fail("Malformed scene parsed");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Line 5: expected cycle but found 'loop'", e.getMessage());
+        }
+    }
+
+    private static void assertParsesLikeParseDouble(String number) {
+        CircleCenter center = new CircleCenter();
+        SceneParser.parseFigure(("circle " + number + " 0 1 red\n0\n").getBytes(StandardCharsets.US_ASCII), center);
+        assertEquals(number, Double.doubleToLongBits(Double.parseDouble(number)),
+                Double.doubleToLongBits(center.x));
+    }
+
+    private static void assertRejected(String scene, String message) {
+        try {
+            SceneParser.parse(scene.getBytes(StandardCharsets.US_ASCII), new FlatScene.Builder());
+            fail("Malformed scene parsed");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+
+    /**
+     * Keeps the center x of the last circle.
+     */
+    private static class CircleCenter implements SceneBuilder {
+        double x;
+
+        @Override
+        public void size(int width, int height) {
+        }
+
+        @Override
+        public void rectangle(double centerX, double centerY, double width, double height, double angle,
+                              Color color) {
+        }
+
+        @Override
+        public void circle(double centerX, double centerY, double radius, Color color) {
+            x = centerX;
+        }
+
+        @Override
+        public void move(double destX, double destY, long time, boolean cycle) {
+        }
+
+        @Override
+        public void rotate(double angle, long time, boolean cycle) {
+        }
+
+        @Override
+        public void scale(double destScale, long time, boolean cycle) {
+        }
+
+        @Override
+        public void endFigure() {
+        }
+    }
+}
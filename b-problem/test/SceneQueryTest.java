@@ -0,0 +1,116 @@
+package bproblem;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Overlaps of every contest input agree with pairwise {@link Area} intersections of the figure outlines at the same
+ * samples. Java2D flattens ellipses slightly outwards, so pairs whose intersection is a sliver may go either way.
+ */
+public class SceneQueryTest {
+    // Intersections whose bounds are thinner than this may be edges that touch
+    private static final double SLIVER = 1e-2;
+
+    @Test
+    public void overlapsMatchAreaIntersections() throws IOException {
+        int inputs = 0;
+        try (DirectoryStream<Path> texts = Files.newDirectoryStream(Paths.get(System.getProperty("scene.dir", "input")),
+                "*.txt")) {
+            for (Path text : texts) {
+                assertOverlapsMatch(text, 0, 5000, 250);
+                assertOverlapsMatch(text, 1234, 4321, 400);
+                ++inputs;
+            }
+        }
+        assertTrue("No inputs found", inputs > 0);
+    }
+
+    private static void assertOverlapsMatch(Path text, long from, long to, long step) throws IOException {
+        RenderOptions options = new RenderOptions();
+        options.cull = false;
+        Scene scene = options.load(text);
+        Map<Long, SceneQuery.Overlap> found = new HashMap<>();
+        List<SceneQuery.Overlap> overlaps = new SceneQuery(scene).overlaps(from, to, step);
+        long previous = -1;
+        for (SceneQuery.Overlap overlap : overlaps) {
+            long key = (long) overlap.first << 32 | overlap.second;
+            assertTrue(text + ": pairs out of order at " + overlap.first + "/" + overlap.second,
+                    overlap.first < overlap.second && key > previous);
+            previous = key;
+            found.put(key, overlap);
+        }
+
+        int n = scene.figureCount();
+        // First and last sample at which each pair clearly overlaps, and the same including slivers
+        Map<Long, long[]> clear = new HashMap<>();
+        Map<Long, long[]> touching = new HashMap<>();
+        AffineTransform transform = new AffineTransform();
+        Rectangle2D.Double frame = new Rectangle2D.Double();
+        Area[] areas = new Area[n];
+        for (long t = from; ; t = Math.min(t + step, to)) {
+            scene.evaluate(t);
+            for (int f = 0; f < n; ++f) {
+                Shape outline = scene.outline(f, transform, frame)
+                        ? new Ellipse2D.Double(frame.x, frame.y, frame.width, frame.height) : (Shape) frame.clone();
+                areas[f] = new Area(transform.createTransformedShape(outline));
+            }
+            for (int a = 0; a < n; ++a) {
+                for (int b = a + 1; b < n; ++b) {
+                    if (!areas[a].getBounds2D().intersects(areas[b].getBounds2D())) {
+                        continue;
+                    }
+                    Area intersection = new Area(areas[a]);
+                    intersection.intersect(areas[b]);
+                    if (intersection.isEmpty()) {
+                        continue;
+                    }
+                    long key = (long) a << 32 | b;
+                    record(touching, key, t);
+                    Rectangle2D bounds = intersection.getBounds2D();
+                    if (bounds.getWidth() > SLIVER && bounds.getHeight() > SLIVER) {
+                        record(clear, key, t);
+                    }
+                }
+            }
+            if (t >= to) {
+                break;
+            }
+        }
+
+        for (Map.Entry<Long, long[]> pair : clear.entrySet()) {
+            SceneQuery.Overlap overlap = found.get(pair.getKey());
+            String name = text + " [" + from + ", " + to + "]: " + (pair.getKey() >>> 32) + "/"
+                    + pair.getKey().intValue();
+            assertNotNull(name + " overlap missing", overlap);
+            assertTrue(name + " first " + overlap.firstTime, overlap.firstTime <= pair.getValue()[0]);
+            assertTrue(name + " last " + overlap.lastTime, overlap.lastTime >= pair.getValue()[1]);
+        }
+        for (SceneQuery.Overlap overlap : found.values()) {
+            long[] times = touching.get((long) overlap.first << 32 | overlap.second);
+            String name = text + " [" + from + ", " + to + "]: " + overlap.first + "/" + overlap.second;
+            assertNotNull(name + " does not overlap", times);
+            assertTrue(name + " first " + overlap.firstTime, overlap.firstTime >= times[0]);
+            assertTrue(name + " last " + overlap.lastTime, overlap.lastTime <= times[1]);
+        }
+    }
+
+    private static void record(Map<Long, long[]> pairs, long key, long time) {
+        long[] times = pairs.computeIfAbsent(key, k -> new long[]{time, time});
+        times[1] = time;
+    }
+}
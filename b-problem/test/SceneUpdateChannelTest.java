@@ -0,0 +1,263 @@
+package bproblem;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Live edits: replies and edit groups of the command protocol, and a running scene that took the published edits
+ * renders like the edited record loaded from scratch, with and without culling.
+ */
+public class SceneUpdateChannelTest {
+    private static final long[] TIMES = {0, 1000, 2500, 7777};
+    private static final String CIRCLE = "circle 150 150 40 red\n1\nmove 300 50 2000 cycle\n";
+    private static final String SQUARE = "rectangle 60 300 50 50 30 yellow\n0\n";
+
+    @Test
+    public void editsRenderLikeReloadedScene() throws IOException {
+        for (String[] args : new String[][]{{}, {"--no-cull"}, {"--flat"}, {"--flat", "--no-cull"}}) {
+            Session session = new Session(args);
+            assertEquals(Arrays.asList("ok 11", "ok 12", "ok 12", "ok 12", "ok 11", "ok 11"), session.send(
+                    "add\n" + CIRCLE
+                            + "add 0\n" + SQUARE
+                            + "replace 5\n" + CIRCLE
+                            + "animate 3\n2\nrotate 90 1000\nscale 2 3000 cycle\n"
+                            + "remove 7\n"
+                            + "replace 10\n" + SQUARE));
+            session.applyEdits();
+            session.assertRendersLikeReload();
+        }
+    }
+
+    @Test
+    public void groupIsPublishedAtCommit() throws IOException {
+        Session session = new Session();
+        assertEquals(Arrays.asList("ok 10"), session.send("begin\nadd 3\n" + CIRCLE + "remove 0\ncommit\n"));
+        List<EditableScene.Edit> edits = session.channel.poll();
+        assertEquals(2, edits.size());
+        assertEquals(EditableScene.Edit.ADD, edits.get(0).kind);
+        assertEquals(3, edits.get(0).index);
+        assertEquals(EditableScene.Edit.REMOVE, edits.get(1).kind);
+        assertEquals(0, edits.get(1).index);
+        assertNull(session.channel.poll());
+        session.apply(edits);
+        session.assertRendersLikeReload();
+    }
+
+    @Test
+    public void pollTakesEveryUpdateInOrder() throws IOException {
+        Session session = new Session();
+        session.send("remove 9\n");
+        session.send("begin\nreplace 0\n" + SQUARE + "commit\n");
+        session.send("add 9\n" + CIRCLE);
+        List<EditableScene.Edit> edits = session.channel.poll();
+        assertEquals(3, edits.size());
+        assertNull(session.channel.poll());
+        session.apply(edits);
+        session.assertRendersLikeReload();
+    }
+
+    @Test
+    public void failedGroupIsDiscarded() throws IOException {
+        Session session = new Session();
+        assertEquals(Arrays.asList("error figure index 12 is not in 0..10", "error group discarded"),
+                session.send("begin\nadd\n" + CIRCLE + "replace 2\n" + SQUARE + "remove 12\nremove 0\ncommit\n"));
+        assertNull(session.channel.poll());
+        assertRecordUnchanged(session);
+    }
+
+    @Test
+    public void openGroupIsDiscardedAtEndOfInput() throws IOException {
+        Session session = new Session();
+        assertEquals(Arrays.asList(), session.send("begin\nremove 0\nadd 0\n" + SQUARE));
+        assertNull(session.channel.poll());
+        assertRecordUnchanged(session);
+        assertEquals(Arrays.asList("ok 9"), session.send("remove 0\n"));
+    }
+
+    @Test
+    public void malformedAnimationCountSkipsToNextCommand() throws IOException {
+        Session session = new Session();
+        assertEquals(Arrays.asList("error expected animation count but found 'many'", "ok 9"),
+                session.send("add\ncircle 1 2 3 red\nmany\nmove 1 2 3 cycle\nrotate 4 5\nremove 0\n"));
+        assertEquals(Arrays.asList("error expected animation count but found '-1'", "ok 10"),
+                session.send("animate 2\n-1\nscale 2 100\nadd\n" + SQUARE));
+        session.applyEdits();
+        session.assertRendersLikeReload();
+    }
+
+    @Test
+    public void rejectsBadIndices() throws IOException {
+        Session session = new Session();
+        assertEquals(Arrays.asList(
+                "error figure index 10 is not in 0..9",
+                "error figure index 11 is not in 0..10",
+                "error figure index -1 is not in 0..9",
+                "error expected figure index but found 'x'",
+                "error remove takes one figure index",
+                "error replace takes one figure index",
+                "error figure index 10 is not in 0..9"),
+                session.send("remove 10\n"
+                        + "add 11\n" + CIRCLE
+                        + "animate -1\n0\n"
+                        + "remove x\n"
+                        + "remove\n"
+                        + "replace 1 2\n" + SQUARE
+                        + "replace 10\n" + SQUARE));
+        assertNull(session.channel.poll());
+        assertRecordUnchanged(session);
+    }
+
+    @Test
+    public void rejectsMisplacedCommands() throws IOException {
+        Session session = new Session();
+        assertEquals(Arrays.asList(
+                "error expected add, replace, animate, remove, begin or commit but found 'jump'",
+                "error commit without begin",
+                "error begin inside begin",
+                "ok 9"),
+                session.send("jump 3\ncommit\nbegin\nremove 0\nbegin\ncommit\n"));
+        assertEquals(1, session.channel.poll().size());
+    }
+
+    @Test
+    public void dirtyRegionsFollowEdits() throws IOException {
+        for (String[] args : new String[][]{{}, {"--no-cull"}}) {
+            Session session = new Session(args);
+            int width = session.scene.width();
+            int height = session.scene.height();
+            DirtyRegionPainter painter = new DirtyRegionPainter(session.scene);
+            BufferedImage painted = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            String[] updates = {"add 0\n" + SQUARE, "remove 1\n", "replace 0\n" + CIRCLE,
+                    "begin\nadd 4\n" + SQUARE + "animate 9\n0\ncommit\n"};
+            long[] times = {0, 1000, 2500, 4000, 7777};
+            for (int step = 0; step < times.length; ++step) {
+                Rectangle dirty = painter.advance(times[step]);
+                if (dirty != null) {
+                    Graphics2D g2d = painted.createGraphics();
+                    g2d.clip(dirty);
+                    painter.paint(g2d, g2d.getTransform(), width, height, HeadlessRenderer.BACKGROUND);
+                    g2d.dispose();
+                }
+                BufferedImage expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g2d = expected.createGraphics();
+                g2d.setColor(HeadlessRenderer.BACKGROUND);
+                g2d.fillRect(0, 0, width, height);
+                session.scene.paint(g2d, g2d.getTransform(), times[step]);
+                g2d.dispose();
+                assertArrayEquals(Arrays.toString(args) + " at " + times[step] + " ms", pixels(expected),
+                        pixels(painted));
+                if (step == updates.length) {
+                    break;
+                }
+                session.send(updates[step]);
+                for (EditableScene.Edit edit : session.channel.poll()) {
+                    int before = edit.kind != EditableScene.Edit.ADD ? session.paintedIndex(edit.index) : -1;
+                    session.apply(edit);
+                    int after = edit.kind != EditableScene.Edit.REMOVE ? session.paintedIndex(edit.index) : -1;
+                    if (before >= 0) {
+                        painter.figureRemoved(before);
+                    }
+                    if (after >= 0) {
+                        painter.figureInserted(after);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertRecordUnchanged(Session session) throws IOException {
+        RenderOptions options = new RenderOptions();
+        assertPixelsEqual(options.load(session.record), options.load(SceneRecord.read(input())));
+    }
+
+    private static void assertPixelsEqual(Scene expected, Scene actual) {
+        assertEquals(expected.figureCount(), actual.figureCount());
+        for (long time : TIMES) {
+            assertArrayEquals("at " + time + " ms", render(expected, time), render(actual, time));
+        }
+    }
+
+    private static int[] render(Scene scene, long time) {
+        int[] pixels = new int[scene.width() * scene.height()];
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(scene.width(), scene.height(), pixels);
+        rasterizer.clear(HeadlessRenderer.BACKGROUND.getRGB());
+        scene.evaluate(time);
+        scene.rasterizeAll(rasterizer);
+        return pixels;
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    private static Path input() {
+        return Paths.get(System.getProperty("scene.dir", "input"), "0.txt");
+    }
+
+    /**
+     * Channel fed directly, without its thread, and the running scene that takes its edits.
+     */
+    private static final class Session {
+        final RenderOptions options = new RenderOptions();
+        final SceneRecord record;
+        final Scene scene;
+        final EditableScene editable;
+        final CulledScene culled;
+        final SceneUpdateChannel channel;
+
+        Session(String... args) throws IOException {
+            assertEquals(args.length, options.parse(args, 0));
+            record = SceneRecord.read(input());
+            scene = options.loadEditable(record);
+            culled = scene instanceof CulledScene ? (CulledScene) scene : null;
+            editable = (EditableScene) (culled != null ? culled.underlying() : scene);
+            channel = SceneUpdateChannel.open("stdin", record, options);
+        }
+
+        List<String> send(String commands) throws IOException {
+            StringWriter replies = new StringWriter();
+            channel.process(new BufferedReader(new StringReader(commands)), new PrintWriter(replies, true));
+            String text = replies.toString().trim();
+            return text.isEmpty() ? Arrays.asList() : Arrays.asList(text.split("\\R"));
+        }
+
+        void applyEdits() {
+            apply(channel.poll());
+        }
+
+        void apply(List<EditableScene.Edit> edits) {
+            for (EditableScene.Edit edit : edits) {
+                apply(edit);
+            }
+        }
+
+        void apply(EditableScene.Edit edit) {
+            editable.apply(edit);
+            if (culled != null) {
+                culled.edited(edit);
+            }
+        }
+
+        int paintedIndex(int figure) {
+            return culled != null ? culled.visibleIndex(figure) : figure;
+        }
+
+        void assertRendersLikeReload() {
+            assertPixelsEqual(options.load(record), scene);
+        }
+    }
+}
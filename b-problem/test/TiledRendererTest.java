@@ -0,0 +1,98 @@
+package bproblem;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tiled software frames of every contest input equal the sequential software frames pixel for pixel, including
+ * after the viewport of a culled scene changes while the renderer keeps its drawing views.
+ */
+public class TiledRendererTest {
+    private static final long[] TIMES = {0, 1000, 2500, 7777};
+
+    @Test
+    public void tiledFramesEqualSequentialFrames() throws IOException {
+        assertInputsRenderTheSame("--backend", "software");
+        assertInputsRenderTheSame("--backend", "software", "--flat");
+    }
+
+    @Test
+    public void cachedViewsFollowTheViewport() throws IOException {
+        for (Path text : inputs()) {
+            RenderOptions options = options("--backend", "software");
+            CulledScene scene = (CulledScene) options.load(text);
+            TiledRenderer tiled = new TiledRenderer(3, 7);
+            try {
+                assertFramesEqual(text, scene, tiled, options);
+                scene.setViewport(0, 0, scene.width() / 2.0, scene.height() / 2.0);
+                assertFramesEqual(text, scene, tiled, options);
+            } finally {
+                tiled.shutdown();
+            }
+        }
+    }
+
+    private static void assertInputsRenderTheSame(String... args) throws IOException {
+        for (String tiles : new String[]{"4", "3:7"}) {
+            String[] tiledArgs = new String[args.length + 2];
+            System.arraycopy(args, 0, tiledArgs, 0, args.length);
+            tiledArgs[args.length] = "--tiles";
+            tiledArgs[args.length + 1] = tiles;
+            for (Path text : inputs()) {
+                RenderOptions options = options(tiledArgs);
+                Scene scene = options.load(text);
+                TiledRenderer tiled = options.newTiledRenderer();
+                try {
+                    assertFramesEqual(text, scene, tiled, options);
+                } finally {
+                    tiled.shutdown();
+                }
+            }
+        }
+    }
+
+    private static void assertFramesEqual(Path text, Scene scene, TiledRenderer tiled, RenderOptions options) {
+        BufferedImage expected = new BufferedImage(scene.width(), scene.height(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage actual = new BufferedImage(scene.width(), scene.height(), BufferedImage.TYPE_INT_RGB);
+        int[] expectedPixels = ((DataBufferInt) expected.getRaster().getDataBuffer()).getData();
+        int[] actualPixels = ((DataBufferInt) actual.getRaster().getDataBuffer()).getData();
+        SoftwareRasterizer rasterizer = new SoftwareRasterizer(scene.width(), scene.height(), expectedPixels);
+        for (long time : TIMES) {
+            options.evaluate(scene, time);
+            rasterizer.clear(HeadlessRenderer.BACKGROUND.getRGB());
+            scene.rasterizeAll(rasterizer);
+            tiled.render(scene, actual, HeadlessRenderer.BACKGROUND);
+            assertArrayEquals(text + " at " + time + " ms with " + tiled.threads() + " threads", expectedPixels,
+                    actualPixels);
+        }
+    }
+
+    private static RenderOptions options(String... args) {
+        RenderOptions options = new RenderOptions();
+        assertEquals(args.length, options.parse(args, 0));
+        return options;
+    }
+
+    private static List<Path> inputs() throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        try (DirectoryStream<Path> texts = Files.newDirectoryStream(Paths.get(System.getProperty("scene.dir", "input")),
+                "*.txt")) {
+            for (Path text : texts) {
+                inputs.add(text);
+            }
+        }
+        assertFalse("No inputs found", inputs.isEmpty());
+        return inputs;
+    }
+}
@@ -0,0 +1,123 @@
+package com.yandex.championship.quest;
+
+import android.os.Trace;
+
+import com.yandex.championship.quest_core_lib.QuestCore;
+
+import java.util.concurrent.Executor;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
+
+/**
+ * Runs {@link QuestCore} calls on a background executor, so a slow check never blocks the main thread. Each call is
+ * followed by the reads the UI needs to show its outcome, and the {@link Outcome} is delivered on the delivery
+ * executor, the main thread in the app. Only one call is in progress at a time: taps that arrive before the outcome
+ * of the previous one has been delivered are dropped, so outcomes arrive in the order of the calls and a burst of
+ * taps answers a task once.
+ * <p>
+ * The call and its reads run inside a "QuestCore call" trace section.
+ * <p>
+ * All methods must be called on the delivery thread. The executors belong to the caller, which stops them.
+ */
+class AsyncQuestCore {
+    interface Call {
+        @TaskResult
+        int run(Quest quest);
+    }
+
+    interface Callback {
+        void onOutcome(Outcome outcome);
+    }
+
+    /**
+     * Result of a call and what it leads to, read on the background thread right after the call.
+     */
+    static final class Outcome {
+        @TaskResult
+        final int result;
+        // Task to show after NEXT_QUESTION
+        @TaskType
+        final int taskType;
+        final String taskText;
+        // Answer of the quest after BINGO
+        final int questResult;
+
+        private Outcome(int result, int taskType, String taskText, int questResult) {
+            this.result = result;
+            this.taskType = taskType;
+            this.taskText = taskText;
+            this.questResult = questResult;
+        }
+    }
+
+    private final Quest mQuest;
+    private final Executor mBackgroundExecutor;
+    private final Executor mDeliveryExecutor;
+    private boolean mBusy;
+    private boolean mShutDown;
+
+    /**
+     * @param backgroundExecutor runs the calls one at a time
+     * @param deliveryExecutor   runs the callbacks on the thread that submits the calls
+     */
+    AsyncQuestCore(Quest quest, Executor backgroundExecutor, Executor deliveryExecutor) {
+        mQuest = quest;
+        mBackgroundExecutor = backgroundExecutor;
+        mDeliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * @return false if the call was dropped because another one is in progress
+     */
+    boolean submit(Call call, Callback callback) {
+        if (mBusy || mShutDown) {
+            return false;
+        }
+        mBusy = true;
+        mBackgroundExecutor.execute(() -> {
+            Outcome outcome;
+            try {
+                outcome = run(call);
+            } catch (RuntimeException e) {
+                // Fail on the delivery thread like a listener that calls the core directly, ready for the next call
+                mDeliveryExecutor.execute(() -> {
+                    mBusy = false;
+                    throw e;
+                });
+                return;
+            }
+            mDeliveryExecutor.execute(() -> {
+                mBusy = false;
+                if (!mShutDown) {
+                    callback.onOutcome(outcome);
+                }
+            });
+        });
+        return true;
+    }
+
+    /**
+     * Drops the outcome of the call in progress, if any, and all later calls.
+     */
+    void shutdown() {
+        mShutDown = true;
+    }
+
+    private Outcome run(Call call) {
+        Trace.beginSection("QuestCore call");
+        try {
+            int result = call.run(mQuest);
+            switch (result) {
+                case TaskResult.NEXT_QUESTION:
+                    return new Outcome(result, mQuest.getTaskType(), mQuest.getTaskText(), 0);
+                case TaskResult.BINGO:
+                    return new Outcome(result, 0, null, mQuest.getResult());
+                default:
+                    return new Outcome(result, 0, null, 0);
+            }
+        } finally {
+            Trace.endSection();
+        }
+    }
+}
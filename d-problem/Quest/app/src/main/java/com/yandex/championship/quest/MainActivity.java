@@ -1,6 +1,10 @@
 package com.yandex.championship.quest;
 
+import android.content.Context;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Trace;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.Gravity;
@@ -14,6 +18,11 @@ import android.widget.Toast;
 
 import com.yandex.championship.quest_core_lib.QuestCore;
 
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.app.AppCompatActivity;
 
 import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
@@ -23,77 +32,161 @@ import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
 public class MainActivity extends AppCompatActivity {
     private static final int BUTTON_TEXT_SIZE = 36;
 
-    private final QuestCore mQuestCore = new QuestCore(this);
-    private Button mBackButton;
+    // Replaced by tests before the activity is created
+    @VisibleForTesting
+    static Dependencies sDependencies = new Dependencies();
+
+    private ExecutorService mQuestExecutor;
+    private AsyncQuestCore mAsyncQuestCore;
+    private LinearLayout mParentLayout;
     private TextView mTitleTextView;
 
+    // Controls of each task type and the result view, built once and attached below the title as needed
+    private Button mBackButton;
+    private View mDirectionControls;
+    private HorizontalScrollView mNumberControls;
+    private View mTextControls;
+    private EditText mTextField;
+    private TextView mResultTextView;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mQuestExecutor = sDependencies.createQuestExecutor();
+        mAsyncQuestCore = new AsyncQuestCore(sDependencies.createQuest(this), mQuestExecutor,
+                sDependencies.createDeliveryExecutor());
         setContentView(R.layout.layout);
-        mQuestCore.resetQuest();
-        mBackButton = createBackButton();
+        mParentLayout = findViewById(R.id.main_layout);
         mTitleTextView = findViewById(R.id.title_text);
-        renderNextTask();
+        mBackButton = createBackButton();
+        mDirectionControls = getDirectionTaskControlsLayout();
+        mNumberControls = getNumberTaskControlsLayout();
+        mTextControls = getTextTaskControlsLayout();
+        mResultTextView = createResultTextView();
+        mAsyncQuestCore.submit(quest -> {
+            quest.resetQuest();
+            return TaskResult.NEXT_QUESTION;
+        }, this::processOutcome);
+    }
+
+    /**
+     * The quest and the threads that the activity talks to.
+     */
+    @VisibleForTesting
+    static class Dependencies {
+        Quest createQuest(Context context) {
+            return new NativeQuest(new QuestCore(context));
+        }
+
+        /**
+         * @return executor of the quest calls, shut down with the activity
+         */
+        ExecutorService createQuestExecutor() {
+            return Executors.newSingleThreadExecutor();
+        }
+
+        /**
+         * @return executor that runs outcomes on the main thread
+         */
+        Executor createDeliveryExecutor() {
+            return new Handler(Looper.getMainLooper())::post;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        mAsyncQuestCore.shutdown();
+        mQuestExecutor.shutdownNow();
+        super.onDestroy();
     }
 
-    private void processTaskResult(@TaskResult int result) {
-        switch (result) {
+    private void answer(AsyncQuestCore.Call call) {
+        mAsyncQuestCore.submit(call, this::processOutcome);
+    }
+
+    private void processOutcome(AsyncQuestCore.Outcome outcome) {
+        // Next to "QuestCore call" and the framework's own layout sections in a system trace
+        Trace.beginSection("Render outcome");
+        try {
+            renderOutcome(outcome);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private void renderOutcome(AsyncQuestCore.Outcome outcome) {
+        switch (outcome.result) {
             case TaskResult.WRONG_ANSWER:
                 Toast.makeText(this, getString(R.string.wrong_answer_toast_text),
                         Toast.LENGTH_SHORT).show();
                 break;
             case TaskResult.NEXT_QUESTION:
-                renderNextTask();
+                renderNextTask(outcome.taskType, outcome.taskText);
                 break;
             case TaskResult.BINGO:
-                renderResult();
+                renderResult(outcome.questResult);
                 break;
             default:
-                throw new IllegalStateException("Unexpected value: " + result);
+                throw new IllegalStateException("Unexpected value: " + outcome.result);
         }
     }
 
-    private void renderNextTask() {
-        mTitleTextView.setText(mQuestCore.getTaskText());
-        clearChildrenBelowChild(mTitleTextView);
+    // Measured against rebuilding the controls by RenderNextTaskBenchmarkTest
+    @VisibleForTesting
+    void renderNextTask(@TaskType int type, String text) {
+        mTitleTextView.setText(text);
 
-        LinearLayout parentLayout = findViewById(R.id.main_layout);
-        int type = mQuestCore.getTaskType();
         switch (type) {
             case TaskType.DIRECTION_TASK:
-                parentLayout.addView(getDirectionTaskControlsLayout());
+                showBelowTitle(mDirectionControls, null);
                 break;
             case TaskType.NUMBER_TASK:
-                parentLayout.addView(getNumberTaskControlsLayout());
-                parentLayout.addView(mBackButton);
+                mNumberControls.scrollTo(0, 0);
+                showBelowTitle(mNumberControls, mBackButton);
                 break;
             case TaskType.TEXT_TASK:
-                parentLayout.addView(getTextTaskControlsLayout());
-                parentLayout.addView(mBackButton);
+                mTextField.setText("yandex");
+                showBelowTitle(mTextControls, mBackButton);
                 break;
             case TaskType.DEADLOCK_TASK:
-                parentLayout.addView(mBackButton);
+                showBelowTitle(mBackButton, null);
                 break;
             default:
-                throw new IllegalStateException("Unexpected value: " + mQuestCore.getTaskType());
+                throw new IllegalStateException("Unexpected value: " + type);
         }
-
-        parentLayout.invalidate();
     }
 
-    private void renderResult() {
+    private void renderResult(int result) {
         mTitleTextView.setText(getString(R.string.result_text));
+        mResultTextView.setText(String.valueOf(result));
+        showBelowTitle(mResultTextView, null);
+    }
+
+    /**
+     * Makes {@code first} and {@code second}, either of which may be null, the only views below the title. Leaves
+     * the layout alone when they already are, which is the case while the task type does not change.
+     */
+    private void showBelowTitle(View first, View second) {
+        int start = mParentLayout.indexOfChild(mTitleTextView) + 1;
+        if (mParentLayout.getChildAt(start) == first && mParentLayout.getChildAt(start + 1) == second
+                && mParentLayout.getChildCount() <= start + 2) {
+            return;
+        }
         clearChildrenBelowChild(mTitleTextView);
+        if (first != null) {
+            mParentLayout.addView(first);
+        }
+        if (second != null) {
+            mParentLayout.addView(second);
+        }
+        mParentLayout.invalidate();
+    }
 
+    private TextView createResultTextView() {
         TextView resultTextView = new TextView(this);
         resultTextView.setTextSize(60);
-        resultTextView.setText(String.valueOf(mQuestCore.getResult()));
         resultTextView.setGravity(Gravity.CENTER);
-
-        LinearLayout parentLayout = findViewById(R.id.main_layout);
-        parentLayout.addView(resultTextView);
-        parentLayout.invalidate();
+        return resultTextView;
     }
 
     private View getDirectionTaskControlsLayout() {
@@ -112,9 +205,9 @@ public class MainActivity extends AppCompatActivity {
         rightButton.setTextSize(BUTTON_TEXT_SIZE);
 
         leftButton.setOnClickListener((View) ->
-                processTaskResult(mQuestCore.checkDirectionAnswer(QuestCore.Direction.LEFT)));
+                answer(quest -> quest.checkDirectionAnswer(QuestCore.Direction.LEFT)));
         rightButton.setOnClickListener((View) ->
-                processTaskResult(mQuestCore.checkDirectionAnswer(QuestCore.Direction.RIGHT)));
+                answer(quest -> quest.checkDirectionAnswer(QuestCore.Direction.RIGHT)));
 
         layout.addView(leftButton);
         layout.addView(rightButton);
@@ -122,7 +215,7 @@ public class MainActivity extends AppCompatActivity {
         return layout;
     }
 
-    private View getNumberTaskControlsLayout() {
+    private HorizontalScrollView getNumberTaskControlsLayout() {
         LinearLayout layout = new LinearLayout(this);
         layout.setOrientation(LinearLayout.HORIZONTAL);
 
@@ -133,7 +226,7 @@ public class MainActivity extends AppCompatActivity {
             button.setTextSize(BUTTON_TEXT_SIZE);
             button.setGravity(Gravity.CENTER);
             button.setOnClickListener((View)->{
-                processTaskResult(mQuestCore.checkNumberAnswer(value));
+                answer(quest -> quest.checkNumberAnswer(value));
             });
             layout.addView(button);
         }
@@ -146,13 +239,16 @@ public class MainActivity extends AppCompatActivity {
     private View getTextTaskControlsLayout() {
         EditText textField = new EditText(this);
         textField.setGravity(Gravity.CENTER_HORIZONTAL);
+        mTextField = textField;
 
         Button okButton = new Button(this);
         okButton.setText(getString(R.string.ok_button_text));
         okButton.setGravity(Gravity.CENTER_HORIZONTAL);
         okButton.setTextSize(BUTTON_TEXT_SIZE);
-        okButton.setOnClickListener((View) -> processTaskResult(
-                mQuestCore.checkTextAnswer(textField.getText().toString())));
+        okButton.setOnClickListener((View) -> {
+            String text = textField.getText().toString();
+            answer(quest -> quest.checkTextAnswer(text));
+        });
         okButton.setEnabled(false);
 
         textField.addTextChangedListener(new TextWatcher() {
@@ -171,7 +267,6 @@ public class MainActivity extends AppCompatActivity {
                 okButton.setEnabled(s.length() > 0);
             }
         });
-        textField.setText("yandex");
         LinearLayout layout = new LinearLayout(this);
         layout.setOrientation(LinearLayout.VERTICAL);
         layout.setGravity(Gravity.CENTER_HORIZONTAL);
@@ -186,17 +281,16 @@ public class MainActivity extends AppCompatActivity {
         backButton.setText(getString(R.string.back_button_text));
         backButton.setGravity(Gravity.CENTER);
         backButton.setTextSize(BUTTON_TEXT_SIZE);
-        backButton.setOnClickListener((View) -> processTaskResult(mQuestCore.goBack()));
+        backButton.setOnClickListener((View) -> answer(Quest::goBack));
         return backButton;
     }
 
     private void clearChildrenBelowChild(TextView child) {
-        LinearLayout parentLayout = findViewById(R.id.main_layout);
-        if (parentLayout.indexOfChild(child) == parentLayout.getChildCount() - 1) {
+        if (mParentLayout.indexOfChild(child) == mParentLayout.getChildCount() - 1) {
             return;
         }
-        int firstChildToRemoveIndex = parentLayout.indexOfChild(child) + 1;
-        parentLayout.removeViews(firstChildToRemoveIndex,
-                parentLayout.getChildCount() - firstChildToRemoveIndex);
+        int firstChildToRemoveIndex = mParentLayout.indexOfChild(child) + 1;
+        mParentLayout.removeViews(firstChildToRemoveIndex,
+                mParentLayout.getChildCount() - firstChildToRemoveIndex);
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.yandex.championship.quest;
+
+import com.yandex.championship.quest_core_lib.QuestCore;
+
+/**
+ * {@link Quest} of the native {@link QuestCore}.
+ */
+final class NativeQuest implements Quest {
+    private final QuestCore mQuestCore;
+
+    NativeQuest(QuestCore questCore) {
+        mQuestCore = questCore;
+    }
+
+    @Override
+    public void resetQuest() {
+        mQuestCore.resetQuest();
+    }
+
+    @Override
+    public int getResult() {
+        return mQuestCore.getResult();
+    }
+
+    @Override
+    public int getTaskType() {
+        return mQuestCore.getTaskType();
+    }
+
+    @Override
+    public String getTaskText() {
+        return mQuestCore.getTaskText();
+    }
+
+    @Override
+    public int goBack() {
+        return mQuestCore.goBack();
+    }
+
+    @Override
+    public int checkDirectionAnswer(String direction) {
+        return mQuestCore.checkDirectionAnswer(direction);
+    }
+
+    @Override
+    public int checkNumberAnswer(int number) {
+        return mQuestCore.checkNumberAnswer(number);
+    }
+
+    @Override
+    public int checkTextAnswer(String text) {
+        return mQuestCore.checkTextAnswer(text);
+    }
+}
@@ -0,0 +1,34 @@
+package com.yandex.championship.quest;
+
+import com.yandex.championship.quest_core_lib.QuestCore;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.Direction;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
+
+/**
+ * The calls of {@link QuestCore} that the app makes. {@link NativeQuest} forwards them to the core; tests answer
+ * them without loading the native library.
+ */
+interface Quest {
+    void resetQuest();
+
+    int getResult();
+
+    @TaskType
+    int getTaskType();
+
+    String getTaskText();
+
+    @TaskResult
+    int goBack();
+
+    @TaskResult
+    int checkDirectionAnswer(@Direction String direction);
+
+    @TaskResult
+    int checkNumberAnswer(int number);
+
+    @TaskResult
+    int checkTextAnswer(String text);
+}
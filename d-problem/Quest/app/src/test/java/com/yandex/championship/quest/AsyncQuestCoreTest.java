@@ -0,0 +1,191 @@
+package com.yandex.championship.quest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.Direction;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncQuestCoreTest {
+    /**
+     * Runs its tasks only when asked to, and tells whether one of them is running.
+     */
+    private static final class QueueExecutor implements Executor {
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+        private boolean mRunning;
+
+        @Override
+        public void execute(Runnable task) {
+            mTasks.add(task);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                mRunning = true;
+                try {
+                    task.run();
+                } finally {
+                    mRunning = false;
+                }
+            }
+        }
+
+        int size() {
+            return mTasks.size();
+        }
+    }
+
+    private final FakeQuest mQuest = new FakeQuest("right", "1", "\"YANDEX\"");
+    private final QueueExecutor mBackground = new QueueExecutor();
+    private final QueueExecutor mDelivery = new QueueExecutor();
+    private final AsyncQuestCore mAsyncQuestCore = new AsyncQuestCore(mQuest, mBackground, mDelivery);
+    private final List<AsyncQuestCore.Outcome> mOutcomes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mQuest.resetQuest();
+    }
+
+    @Test
+    public void dropsCallsWhileOneIsInFlight() {
+        assertTrue(submit(Direction.RIGHT));
+        assertFalse(submit(Direction.LEFT));
+        mBackground.runAll();
+        // Still in flight until the outcome is delivered
+        assertFalse(submit(Direction.LEFT));
+        mDelivery.runAll();
+
+        assertEquals(1, mOutcomes.size());
+        assertEquals(1, mQuest.answers().size());
+        assertTrue(submit(Direction.LEFT));
+    }
+
+    @Test
+    public void deliversOutcomesOnTheDeliveryExecutor() {
+        mAsyncQuestCore.submit(quest -> quest.checkDirectionAnswer(Direction.RIGHT), outcome -> {
+            assertTrue("Delivered outside the delivery executor", mDelivery.mRunning);
+            mOutcomes.add(outcome);
+        });
+        mBackground.runAll();
+        assertTrue(mOutcomes.isEmpty());
+        assertEquals(1, mDelivery.size());
+        mDelivery.runAll();
+
+        AsyncQuestCore.Outcome outcome = mOutcomes.get(0);
+        assertEquals(TaskResult.NEXT_QUESTION, outcome.result);
+        assertEquals(TaskType.NUMBER_TASK, outcome.taskType);
+        assertEquals("Task 2", outcome.taskText);
+    }
+
+    @Test
+    public void readsTheResultAfterBingo() {
+        mQuest.checkDirectionAnswer(Direction.RIGHT);
+        mQuest.checkNumberAnswer(1);
+        mAsyncQuestCore.submit(quest -> quest.checkTextAnswer("YANDEX"), mOutcomes::add);
+        mBackground.runAll();
+        mDelivery.runAll();
+
+        AsyncQuestCore.Outcome outcome = mOutcomes.get(0);
+        assertEquals(TaskResult.BINGO, outcome.result);
+        assertEquals(FakeQuest.RESULT, outcome.questResult);
+        assertNull(outcome.taskText);
+    }
+
+    @Test
+    public void deliversNothingAfterShutdown() {
+        assertTrue(submit(Direction.RIGHT));
+        mBackground.runAll();
+        mAsyncQuestCore.shutdown();
+        mDelivery.runAll();
+        assertTrue(mOutcomes.isEmpty());
+
+        assertFalse(submit(Direction.LEFT));
+        assertEquals(0, mBackground.size());
+    }
+
+    @Test
+    public void acceptsCallsAfterOneThrew() {
+        IllegalStateException failure = new IllegalStateException("No result before BINGO");
+        assertTrue(mAsyncQuestCore.submit(quest -> {
+            throw failure;
+        }, mOutcomes::add));
+        mBackground.runAll();
+        assertFalse(submit(Direction.RIGHT));
+        try {
+            mDelivery.runAll();
+            fail("The failure was not rethrown on the delivery executor");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+
+        assertTrue(submit(Direction.RIGHT));
+        mBackground.runAll();
+        mDelivery.runAll();
+        assertEquals(TaskResult.NEXT_QUESTION, mOutcomes.get(0).result);
+    }
+
+    @Test
+    public void submitReturnsWhileTheCallIsBlocked() throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FakeQuest quest = new FakeQuest("right", "1") {
+            @Override
+            public int checkDirectionAnswer(String direction) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return super.checkDirectionAnswer(direction);
+            }
+        };
+        ExecutorService background = Executors.newSingleThreadExecutor();
+        // This thread plays the main thread: it runs what is delivered to it
+        BlockingQueue<Runnable> delivery = new LinkedBlockingQueue<>();
+        AsyncQuestCore asyncQuestCore = new AsyncQuestCore(quest, background, delivery::add);
+        try {
+            assertTrue(asyncQuestCore.submit(q -> q.checkDirectionAnswer(Direction.RIGHT), mOutcomes::add));
+            assertTrue("The call did not start", entered.await(5, TimeUnit.SECONDS));
+            assertFalse(asyncQuestCore.submit(q -> q.checkDirectionAnswer(Direction.LEFT), mOutcomes::add));
+            assertNull(delivery.poll(50, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            Runnable outcome = delivery.poll(5, TimeUnit.SECONDS);
+            assertNotNull("Nothing was delivered", outcome);
+            outcome.run();
+            assertEquals(1, mOutcomes.size());
+            assertEquals(TaskType.NUMBER_TASK, mOutcomes.get(0).taskType);
+            assertEquals(Arrays.asList("right"), quest.answers());
+        } finally {
+            release.countDown();
+            background.shutdownNow();
+        }
+    }
+
+    private boolean submit(String direction) {
+        return mAsyncQuestCore.submit(quest -> quest.checkDirectionAnswer(direction), mOutcomes::add);
+    }
+}
@@ -0,0 +1,48 @@
+package com.yandex.championship.quest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every task on the calling thread, so that a test sees each outcome as soon as it clicks.
+ */
+class DirectExecutorService extends AbstractExecutorService {
+    private boolean mShutDown;
+
+    @Override
+    public void execute(Runnable command) {
+        if (mShutDown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        command.run();
+    }
+
+    @Override
+    public void shutdown() {
+        mShutDown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        mShutDown = true;
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return mShutDown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return mShutDown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return mShutDown;
+    }
+}
@@ -0,0 +1,32 @@
+package com.yandex.championship.quest;
+
+import android.content.Context;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Gives {@link MainActivity} a fake quest and runs its calls and their outcomes on the calling thread.
+ */
+class FakeDependencies extends MainActivity.Dependencies {
+    private final Quest mQuest;
+
+    FakeDependencies(Quest quest) {
+        mQuest = quest;
+    }
+
+    @Override
+    Quest createQuest(Context context) {
+        return mQuest;
+    }
+
+    @Override
+    ExecutorService createQuestExecutor() {
+        return new DirectExecutorService();
+    }
+
+    @Override
+    Executor createDeliveryExecutor() {
+        return Runnable::run;
+    }
+}
@@ -0,0 +1,120 @@
+package com.yandex.championship.quest;
+
+import com.yandex.championship.quest.replay.Answer;
+import com.yandex.championship.quest.replay.RecordedPath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
+
+/**
+ * Quest that leads along one path of answers to BINGO, given like the paths that the explorer records, see
+ * {@link RecordedPath}. Each task on the way has the type that its
+ * answer needs, a deadlock for {@code back}, and every other answer is wrong. Records the answers it is given.
+ */
+class FakeQuest implements Quest {
+    static final int RESULT = 42;
+
+    // Type of the task that each answer needs
+    private static final Answer.Visitor<Integer> TASK_TYPES = new Answer.Visitor<Integer>() {
+        @Override
+        public Integer left() {
+            return TaskType.DIRECTION_TASK;
+        }
+
+        @Override
+        public Integer right() {
+            return TaskType.DIRECTION_TASK;
+        }
+
+        @Override
+        public Integer back() {
+            return TaskType.DEADLOCK_TASK;
+        }
+
+        @Override
+        public Integer number(int number) {
+            return TaskType.NUMBER_TASK;
+        }
+
+        @Override
+        public Integer word(String word) {
+            return TaskType.TEXT_TASK;
+        }
+    };
+
+    private final List<Answer> mPath;
+    private int mStep;
+    private final List<String> mAnswers = new ArrayList<>();
+
+    FakeQuest(String... path) {
+        this(RecordedPath.parse(Arrays.asList(path)));
+    }
+
+    FakeQuest(List<Answer> path) {
+        mPath = path;
+    }
+
+    /**
+     * @return answers given since the last reset, in the syntax of the path
+     */
+    List<String> answers() {
+        return mAnswers;
+    }
+
+    @Override
+    public void resetQuest() {
+        mStep = 0;
+        mAnswers.clear();
+    }
+
+    @Override
+    public int getResult() {
+        if (mStep < mPath.size()) {
+            throw new IllegalStateException("No result before BINGO");
+        }
+        return RESULT;
+    }
+
+    @Override
+    public int getTaskType() {
+        return mPath.get(mStep).accept(TASK_TYPES);
+    }
+
+    @Override
+    public String getTaskText() {
+        return "Task " + (mStep + 1);
+    }
+
+    @Override
+    public int goBack() {
+        return answer(Answer.BACK);
+    }
+
+    @Override
+    public int checkDirectionAnswer(String direction) {
+        return answer(Answer.parse(direction));
+    }
+
+    @Override
+    public int checkNumberAnswer(int number) {
+        return answer(Answer.number(number));
+    }
+
+    @Override
+    public int checkTextAnswer(String text) {
+        return answer(Answer.word(text));
+    }
+
+    private int answer(Answer answer) {
+        mAnswers.add(answer.toString());
+        if (mStep == mPath.size() || !mPath.get(mStep).equals(answer)) {
+            return TaskResult.WRONG_ANSWER;
+        }
+        ++mStep;
+        return mStep == mPath.size() ? TaskResult.BINGO : TaskResult.NEXT_QUESTION;
+    }
+}
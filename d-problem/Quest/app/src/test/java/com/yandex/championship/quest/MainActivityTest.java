@@ -0,0 +1,74 @@
+package com.yandex.championship.quest;
+
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.HorizontalScrollView;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tasks of the same type in a row: the activity keeps the controls of that type attached, and the next task must
+ * still show its own text, reset the controls and take their answers.
+ */
+@RunWith(RobolectricTestRunner.class)
+// Robolectric needs Java 9 for API 29
+@Config(sdk = 28)
+public class MainActivityTest {
+    @After
+    public void tearDown() {
+        MainActivity.sDependencies = new MainActivity.Dependencies();
+    }
+
+    @Test
+    public void textTaskAfterTextTaskResetsTheFieldAndTakesTheAnswer() {
+        FakeQuest quest = new FakeQuest("\"ONE\"", "\"TWO\"", "right");
+        QuestScreen screen = QuestScreen.launch(quest);
+        EditText textField = screen.find(EditText.class, null);
+
+        screen.give("\"ONE\"");
+
+        assertEquals("Task 2", screen.title());
+        assertSame(textField, screen.find(EditText.class, null));
+        assertEquals("yandex", textField.getText().toString());
+        screen.give("\"TWO\"");
+        assertEquals(Arrays.asList("\"ONE\"", "\"TWO\""), quest.answers());
+        assertEquals("Task 3", screen.title());
+        screen.find(Button.class, screen.string(R.string.right_button_text));
+    }
+
+    @Test
+    public void numberTaskAfterNumberTaskTakesTheAnswer() {
+        FakeQuest quest = new FakeQuest("3", "16", "left");
+        QuestScreen screen = QuestScreen.launch(quest);
+        HorizontalScrollView numbers = screen.find(HorizontalScrollView.class, null);
+
+        screen.give("3");
+
+        assertEquals("Task 2", screen.title());
+        assertSame(numbers, screen.find(HorizontalScrollView.class, null));
+        screen.give("16");
+        assertEquals(Arrays.asList("3", "16"), quest.answers());
+        assertEquals("Task 3", screen.title());
+    }
+
+    @Test
+    public void wrongAnswerKeepsTheTask() {
+        FakeQuest quest = new FakeQuest("\"ONE\"", "\"TWO\"");
+        QuestScreen screen = QuestScreen.launch(quest);
+
+        screen.give("\"TWO\"");
+
+        assertEquals("Task 1", screen.title());
+        assertEquals("TWO", screen.find(EditText.class, null).getText().toString());
+        screen.give("\"ONE\"");
+        assertEquals("Task 2", screen.title());
+    }
+}
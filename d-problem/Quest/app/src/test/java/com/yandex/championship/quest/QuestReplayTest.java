@@ -0,0 +1,268 @@
+package com.yandex.championship.quest;
+
+import android.view.View;
+import android.widget.TextView;
+
+import com.yandex.championship.quest.replay.Answer;
+import com.yandex.championship.quest.replay.RecordedPath;
+import com.yandex.championship.quest.replay.ReplayReport;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays recorded paths of answers through the screens of {@link MainActivity}: every answer is given with the
+ * control that the user would press, and the last one must lead to the result screen. The quest is a
+ * {@link FakeQuest} along the same path, as the native core does not load on the host JVM. {@code shortest.txt} was
+ * recorded by the explorer from the real core, {@code dead-ends.txt} adds the deadlocks and back buttons on the way.
+ * <p>
+ * Each path is replayed several times, and every step is timed like {@code ReplayBenchmark} times the core: the
+ * calls of the quest, the delivery of the outcome, which renders it, and a measure and layout pass of the window
+ * afterwards. Step 0 is the launch of the activity. The median, 90th percentile and maximum in nanoseconds of each
+ * step are written to {@code build/benchmarks/replay-<path>.json}.
+ */
+@RunWith(RobolectricTestRunner.class)
+// Robolectric needs Java 9 for API 29
+@Config(sdk = 28)
+public class QuestReplayTest {
+    private static final int WARMUP = 5;
+    private static final int ITERATIONS = 50;
+
+    @After
+    public void tearDown() {
+        MainActivity.sDependencies = new MainActivity.Dependencies();
+    }
+
+    @Test
+    public void shortestPathReachesTheResult() throws IOException {
+        replay("shortest");
+    }
+
+    @Test
+    public void pathWithDeadEndsReachesTheResult() throws IOException {
+        replay("dead-ends");
+    }
+
+    private void replay(String name) throws IOException {
+        List<Answer> path = readPath(name + ".txt");
+        int steps = path.size() + 1;
+        long[][] questNanos = new long[ITERATIONS][steps];
+        long[][] renderNanos = new long[ITERATIONS][steps];
+        long[][] layoutNanos = new long[ITERATIONS][steps];
+        for (int i = 0; i < WARMUP; ++i) {
+            assertReplays(path, new long[steps], new long[steps], new long[steps]);
+        }
+        for (int i = 0; i < ITERATIONS; ++i) {
+            assertReplays(path, questNanos[i], renderNanos[i], layoutNanos[i]);
+        }
+        writeReport(name, path, questNanos, renderNanos, layoutNanos);
+    }
+
+    private void assertReplays(List<Answer> path, long[] questNanos, long[] renderNanos, long[] layoutNanos) {
+        FakeQuest fakeQuest = new FakeQuest(path);
+        TimedQuest quest = new TimedQuest(fakeQuest);
+        TimedDelivery delivery = new TimedDelivery();
+        QuestScreen screen = QuestScreen.launch(new FakeDependencies(quest) {
+            @Override
+            Executor createDeliveryExecutor() {
+                return delivery;
+            }
+        });
+
+        for (int step = 0; step <= path.size(); ++step) {
+            if (step > 0) {
+                screen.give(path.get(step - 1));
+            }
+            long start = System.nanoTime();
+            screen.measureAndLayout();
+            layoutNanos[step] = System.nanoTime() - start;
+            questNanos[step] = quest.takeNanos();
+            renderNanos[step] = delivery.takeNanos();
+            if (step < path.size()) {
+                assertEquals("Task " + (step + 1), screen.title());
+            }
+        }
+
+        List<String> answers = new ArrayList<>();
+        for (Answer answer : path) {
+            answers.add(answer.toString());
+        }
+        assertEquals(answers, fakeQuest.answers());
+        assertEquals(screen.string(R.string.result_text), screen.title());
+        List<View> shown = screen.viewsBelowTitle();
+        assertEquals(1, shown.size());
+        assertEquals(String.valueOf(FakeQuest.RESULT), ((TextView) shown.get(0)).getText().toString());
+    }
+
+    private static void writeReport(String name, List<Answer> path, long[][] questNanos, long[][] renderNanos,
+                                    long[][] layoutNanos) throws IOException {
+        int steps = path.size() + 1;
+        long[] totals = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; ++i) {
+            for (int step = 0; step < steps; ++step) {
+                totals[i] += questNanos[i][step] + renderNanos[i][step] + layoutNanos[i][step];
+            }
+        }
+
+        File directory = new File("build", "benchmarks");
+        assertTrue("Cannot create " + directory, directory.isDirectory() || directory.mkdirs());
+        try (PrintStream out = new PrintStream(new File(directory, "replay-" + name + ".json"), "UTF-8")) {
+            out.println("{");
+            out.println("  \"iterations\": " + ITERATIONS + ",");
+            out.println("  \"warmup\": " + WARMUP + ",");
+            out.println("  \"total\": " + ReplayReport.stats(totals) + ",");
+            out.println("  \"steps\": [");
+            for (int step = 0; step < steps; ++step) {
+                StringBuilder line = new StringBuilder("    {\"step\": ").append(step)
+                        .append(", \"answer\": ")
+                        .append(step == 0 ? "\"launch\"" : ReplayReport.quote(path.get(step - 1).toString()))
+                        .append(", \"quest\": ").append(ReplayReport.stats(column(questNanos, step)))
+                        .append(", \"render\": ").append(ReplayReport.stats(column(renderNanos, step)))
+                        .append(", \"layout\": ").append(ReplayReport.stats(column(layoutNanos, step))).append('}');
+                if (step + 1 < steps) {
+                    line.append(',');
+                }
+                out.println(line);
+            }
+            out.println("  ]");
+            out.println("}");
+        }
+    }
+
+    private static long[] column(long[][] nanos, int step) {
+        long[] samples = new long[nanos.length];
+        for (int i = 0; i < nanos.length; ++i) {
+            samples[i] = nanos[i][step];
+        }
+        return samples;
+    }
+
+    private static List<Answer> readPath(String name) throws IOException {
+        try (InputStream stream = QuestReplayTest.class.getResourceAsStream("/paths/" + name)) {
+            assertNotNull(name + " is missing", stream);
+            return RecordedPath.read(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Runs the outcomes on the calling thread, where each renders itself, and adds up the time they take.
+     */
+    private static final class TimedDelivery implements Executor {
+        private long mNanos;
+
+        @Override
+        public void execute(Runnable command) {
+            long start = System.nanoTime();
+            command.run();
+            mNanos += System.nanoTime() - start;
+        }
+
+        /**
+         * @return nanoseconds spent since the last call
+         */
+        long takeNanos() {
+            long nanos = mNanos;
+            mNanos = 0;
+            return nanos;
+        }
+    }
+
+    /**
+     * Adds up the time of every call of a {@link Quest}.
+     */
+    private static final class TimedQuest implements Quest {
+        private final Quest mQuest;
+        private long mNanos;
+
+        TimedQuest(Quest quest) {
+            mQuest = quest;
+        }
+
+        /**
+         * @return nanoseconds spent in the quest since the last call
+         */
+        long takeNanos() {
+            long nanos = mNanos;
+            mNanos = 0;
+            return nanos;
+        }
+
+        @Override
+        public void resetQuest() {
+            long start = System.nanoTime();
+            mQuest.resetQuest();
+            mNanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public int getResult() {
+            long start = System.nanoTime();
+            int result = mQuest.getResult();
+            mNanos += System.nanoTime() - start;
+            return result;
+        }
+
+        @Override
+        public int getTaskType() {
+            long start = System.nanoTime();
+            int type = mQuest.getTaskType();
+            mNanos += System.nanoTime() - start;
+            return type;
+        }
+
+        @Override
+        public String getTaskText() {
+            long start = System.nanoTime();
+            String text = mQuest.getTaskText();
+            mNanos += System.nanoTime() - start;
+            return text;
+        }
+
+        @Override
+        public int goBack() {
+            long start = System.nanoTime();
+            int result = mQuest.goBack();
+            mNanos += System.nanoTime() - start;
+            return result;
+        }
+
+        @Override
+        public int checkDirectionAnswer(String direction) {
+            long start = System.nanoTime();
+            int result = mQuest.checkDirectionAnswer(direction);
+            mNanos += System.nanoTime() - start;
+            return result;
+        }
+
+        @Override
+        public int checkNumberAnswer(int number) {
+            long start = System.nanoTime();
+            int result = mQuest.checkNumberAnswer(number);
+            mNanos += System.nanoTime() - start;
+            return result;
+        }
+
+        @Override
+        public int checkTextAnswer(String text) {
+            long start = System.nanoTime();
+            int result = mQuest.checkTextAnswer(text);
+            mNanos += System.nanoTime() - start;
+            return result;
+        }
+    }
+}
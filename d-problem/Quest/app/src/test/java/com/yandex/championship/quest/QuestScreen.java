@@ -0,0 +1,155 @@
+package com.yandex.championship.quest;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.yandex.championship.quest.replay.Answer;
+
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a {@link MainActivity} through its controls the way a user does. Tests that launch one restore
+ * {@link MainActivity#sDependencies} afterwards.
+ */
+class QuestScreen {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private final MainActivity mActivity;
+    // Presses the controls that give each answer
+    private final Answer.Visitor<Void> mControls = new Answer.Visitor<Void>() {
+        @Override
+        public Void left() {
+            click(string(R.string.left_button_text));
+            return null;
+        }
+
+        @Override
+        public Void right() {
+            click(string(R.string.right_button_text));
+            return null;
+        }
+
+        @Override
+        public Void back() {
+            click(string(R.string.back_button_text));
+            return null;
+        }
+
+        @Override
+        public Void number(int number) {
+            click(String.valueOf(number));
+            return null;
+        }
+
+        @Override
+        public Void word(String word) {
+            find(EditText.class, null).setText(word);
+            click(string(R.string.ok_button_text));
+            return null;
+        }
+    };
+
+    private QuestScreen(MainActivity activity) {
+        mActivity = activity;
+    }
+
+    /**
+     * Starts the activity on {@code quest}, with its calls and outcomes run on the calling thread.
+     */
+    static QuestScreen launch(Quest quest) {
+        return launch(new FakeDependencies(quest));
+    }
+
+    static QuestScreen launch(MainActivity.Dependencies dependencies) {
+        MainActivity.sDependencies = dependencies;
+        return new QuestScreen(Robolectric.buildActivity(MainActivity.class).setup().get());
+    }
+
+    MainActivity activity() {
+        return mActivity;
+    }
+
+    /**
+     * Measures and lays out the whole window at a phone's size, like the frame after a change of the screen.
+     */
+    void measureAndLayout() {
+        View decorView = mActivity.getWindow().getDecorView();
+        decorView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        decorView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    String string(int id) {
+        return mActivity.getString(id);
+    }
+
+    String title() {
+        TextView title = mActivity.findViewById(R.id.title_text);
+        return title.getText().toString();
+    }
+
+    /**
+     * Gives {@code answer}, written like in a recorded path, with the controls on the screen.
+     */
+    void give(String answer) {
+        give(Answer.parse(answer));
+    }
+
+    void give(Answer answer) {
+        answer.accept(mControls);
+    }
+
+    void click(String text) {
+        Button button = find(Button.class, text);
+        assertTrue(text + " is disabled", button.isEnabled());
+        button.performClick();
+    }
+
+    /**
+     * @return the view of the given class, and the given text if it is not null, that is shown below the title
+     */
+    <T extends View> T find(Class<T> viewClass, String text) {
+        List<View> views = new ArrayList<>();
+        for (View view : viewsBelowTitle()) {
+            addWithDescendants(view, views);
+        }
+        for (View view : views) {
+            if (viewClass.isInstance(view)
+                    && (text == null || text.equals(((TextView) view).getText().toString()))) {
+                return viewClass.cast(view);
+            }
+        }
+        throw new AssertionError("No " + viewClass.getSimpleName() + " " + (text != null ? text + " " : "")
+                + "on the screen of " + title());
+    }
+
+    List<View> viewsBelowTitle() {
+        LinearLayout layout = mActivity.findViewById(R.id.main_layout);
+        int start = layout.indexOfChild(mActivity.findViewById(R.id.title_text)) + 1;
+        List<View> views = new ArrayList<>();
+        for (int i = start; i < layout.getChildCount(); ++i) {
+            views.add(layout.getChildAt(i));
+        }
+        return views;
+    }
+
+    private static void addWithDescendants(View view, List<View> views) {
+        views.add(view);
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); ++i) {
+                addWithDescendants(group.getChildAt(i), views);
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.yandex.championship.quest;
+
+import android.content.Context;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.HorizontalScrollView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures task transitions of {@link MainActivity#renderNextTask}, which attaches controls built once, against the
+ * renderer it replaced, which built the controls of every task afresh. Each transition is followed by a measure and
+ * layout pass of the window, where fresh controls cost the most. Both run the same cycle of task types, and the bytes
+ * allocated by the test thread and the elapsed time of each are printed and written to
+ * {@code build/benchmarks/render-next-task.json}.
+ */
+@RunWith(RobolectricTestRunner.class)
+// Robolectric needs Java 9 for API 29
+@Config(sdk = 28)
+public class RenderNextTaskBenchmarkTest {
+    private static final int WARMUP = 200;
+    private static final int TRANSITIONS = 2000;
+    private static final int[] TYPES = {TaskType.DIRECTION_TASK, TaskType.NUMBER_TASK, TaskType.TEXT_TASK,
+            TaskType.DEADLOCK_TASK};
+    private static final String[] TEXTS = {"Task 1", "Task 2", "Task 3", "Task 4"};
+
+    @After
+    public void tearDown() {
+        MainActivity.sDependencies = new MainActivity.Dependencies();
+    }
+
+    @Test
+    public void pooledControlsAllocateLessThanRebuiltOnes() throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue("Allocated bytes are not measured on this JVM",
+                threads instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+                        && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled());
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+
+        QuestScreen rebuildingScreen = QuestScreen.launch(new FakeQuest("left"));
+        RebuildingRenderer rebuilding = new RebuildingRenderer(rebuildingScreen.activity());
+        long[] rebuilt = measure(allocations, rebuildingScreen, rebuilding::renderNextTask);
+
+        QuestScreen pooledScreen = QuestScreen.launch(new FakeQuest("left"));
+        long[] pooled = measure(allocations, pooledScreen, pooledScreen.activity()::renderNextTask);
+
+        String report = "{\"transitions\": " + TRANSITIONS + ", \"warmup\": " + WARMUP
+                + ", \"rebuilding\": {\"allocatedBytes\": " + rebuilt[0] + ", \"nanos\": " + rebuilt[1] + "}"
+                + ", \"pooled\": {\"allocatedBytes\": " + pooled[0] + ", \"nanos\": " + pooled[1] + "}}";
+        System.out.println(report);
+        File directory = new File("build", "benchmarks");
+        assertTrue("Cannot create " + directory, directory.isDirectory() || directory.mkdirs());
+        try (PrintStream out = new PrintStream(new File(directory, "render-next-task.json"), "UTF-8")) {
+            out.println(report);
+        }
+
+        assertTrue("Pooled controls allocated " + pooled[0] + " bytes, rebuilt ones " + rebuilt[0],
+                pooled[0] < rebuilt[0]);
+    }
+
+    /**
+     * @return bytes allocated by the test thread and nanoseconds elapsed over {@link #TRANSITIONS} transitions
+     */
+    private static long[] measure(com.sun.management.ThreadMXBean allocations, QuestScreen screen,
+                                  Renderer renderer) {
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARMUP; ++i) {
+            transition(renderer, screen, i);
+        }
+        long allocatedBefore = allocations.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSITIONS; ++i) {
+            transition(renderer, screen, i);
+        }
+        long nanos = System.nanoTime() - start;
+        return new long[]{allocations.getThreadAllocatedBytes(thread) - allocatedBefore, nanos};
+    }
+
+    private static void transition(Renderer renderer, QuestScreen screen, int i) {
+        renderer.renderNextTask(TYPES[i % TYPES.length], TEXTS[i % TEXTS.length]);
+        screen.measureAndLayout();
+    }
+
+    private interface Renderer {
+        void renderNextTask(int type, String text);
+    }
+
+    /**
+     * {@code renderNextTask} as it was before the controls were pooled: every task clears the views below the title
+     * and attaches controls built for it, only the back button is shared.
+     */
+    private static final class RebuildingRenderer {
+        private static final int BUTTON_TEXT_SIZE = 36;
+
+        private final Context mContext;
+        private final LinearLayout mParentLayout;
+        private final TextView mTitleTextView;
+        private final Button mBackButton;
+        // Answer of the last click, the listeners capture their answers like those of the activity
+        private String mClicked;
+
+        RebuildingRenderer(MainActivity activity) {
+            mContext = activity;
+            mParentLayout = activity.findViewById(R.id.main_layout);
+            mTitleTextView = activity.findViewById(R.id.title_text);
+            mBackButton = newButton(R.string.back_button_text);
+            mBackButton.setGravity(Gravity.CENTER);
+            mBackButton.setOnClickListener((View) -> mClicked = "back");
+        }
+
+        void renderNextTask(int type, String text) {
+            mTitleTextView.setText(text);
+            int firstChildToRemoveIndex = mParentLayout.indexOfChild(mTitleTextView) + 1;
+            if (firstChildToRemoveIndex < mParentLayout.getChildCount()) {
+                mParentLayout.removeViews(firstChildToRemoveIndex,
+                        mParentLayout.getChildCount() - firstChildToRemoveIndex);
+            }
+
+            switch (type) {
+                case TaskType.DIRECTION_TASK:
+                    mParentLayout.addView(getDirectionTaskControlsLayout());
+                    break;
+                case TaskType.NUMBER_TASK:
+                    mParentLayout.addView(getNumberTaskControlsLayout());
+                    mParentLayout.addView(mBackButton);
+                    break;
+                case TaskType.TEXT_TASK:
+                    mParentLayout.addView(getTextTaskControlsLayout());
+                    mParentLayout.addView(mBackButton);
+                    break;
+                case TaskType.DEADLOCK_TASK:
+                    mParentLayout.addView(mBackButton);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected value: " + type);
+            }
+
+            mParentLayout.invalidate();
+        }
+
+        private View getDirectionTaskControlsLayout() {
+            LinearLayout layout = new LinearLayout(mContext);
+            layout.setGravity(Gravity.CENTER_HORIZONTAL);
+            layout.setOrientation(LinearLayout.HORIZONTAL);
+
+            Button leftButton = newButton(R.string.left_button_text);
+            leftButton.setGravity(Gravity.START | Gravity.CENTER_VERTICAL);
+            Button rightButton = newButton(R.string.right_button_text);
+            rightButton.setGravity(Gravity.END | Gravity.CENTER_VERTICAL);
+            leftButton.setOnClickListener((View) -> mClicked = "left");
+            rightButton.setOnClickListener((View) -> mClicked = "right");
+
+            layout.addView(leftButton);
+            layout.addView(rightButton);
+            return layout;
+        }
+
+        private View getNumberTaskControlsLayout() {
+            LinearLayout layout = new LinearLayout(mContext);
+            layout.setOrientation(LinearLayout.HORIZONTAL);
+
+            for (int i = 0; i < 16; ++i) {
+                int value = i + 1;
+                Button button = new Button(mContext);
+                button.setText(String.valueOf(value));
+                button.setTextSize(BUTTON_TEXT_SIZE);
+                button.setGravity(Gravity.CENTER);
+                button.setOnClickListener((View) -> mClicked = String.valueOf(value));
+                layout.addView(button);
+            }
+
+            HorizontalScrollView view = new HorizontalScrollView(mContext);
+            view.addView(layout);
+            return view;
+        }
+
+        private View getTextTaskControlsLayout() {
+            EditText textField = new EditText(mContext);
+            textField.setGravity(Gravity.CENTER_HORIZONTAL);
+
+            Button okButton = newButton(R.string.ok_button_text);
+            okButton.setGravity(Gravity.CENTER_HORIZONTAL);
+            okButton.setOnClickListener((View) -> mClicked = "\"" + textField.getText() + "\"");
+            okButton.setEnabled(false);
+
+            textField.addTextChangedListener(new TextWatcher() {
+                @Override
+                public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+                    // no-op
+                }
+
+                @Override
+                public void onTextChanged(CharSequence s, int start, int before, int count) {
+                    // no-op
+                }
+
+                @Override
+                public void afterTextChanged(Editable s) {
+                    okButton.setEnabled(s.length() > 0);
+                }
+            });
+            textField.setText("yandex");
+            LinearLayout layout = new LinearLayout(mContext);
+            layout.setOrientation(LinearLayout.VERTICAL);
+            layout.setGravity(Gravity.CENTER_HORIZONTAL);
+
+            layout.addView(textField);
+            layout.addView(okButton);
+            return layout;
+        }
+
+        private Button newButton(int textId) {
+            Button button = new Button(mContext);
+            button.setText(mContext.getString(textId));
+            button.setTextSize(BUTTON_TEXT_SIZE);
+            return button;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package android.content;
+
+/**
+ * Stand-in for the Android class on the JVM. {@code QuestCore} only uses it to look up the task texts.
+ */
+public abstract class Context {
+    public abstract String getString(int resId);
+}
@@ -0,0 +1,89 @@
+package com.yandex.championship.quest.explorer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line of {@link QuestExplorer} and {@link ParallelQuestExplorer}:
+ * <pre>
+ * --words yandex,...      text answers to try, "yandex" like the app when none are given
+ * --dictionary file       more text answers, one per line
+ * --backtrack reset|back  how to return to a task after an answer, see {@link QuestDriver}
+ * --seed n                shuffles the order of the answers, which picks one of several shortest paths
+ * --max-depth n           longest path to search
+ * --max-states n          most tasks to expand
+ * --workers n             worker processes of {@link ParallelQuestExplorer}, one per core by default
+ * --record file           writes the shortest path to file, one answer per line, for {@link ReplayBenchmark}
+ * </pre>
+ */
+class ExplorerOptions {
+    String[] words;
+    boolean backtrackWithBack;
+    // null for the app's order
+    Long seed;
+    int maxDepth = 64;
+    long maxStates = 1_000_000;
+    int workers = Runtime.getRuntime().availableProcessors();
+    Path record;
+
+    static ExplorerOptions parse(String[] args, boolean parallel) throws IOException {
+        ExplorerOptions options = new ExplorerOptions();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            switch (args[i]) {
+                case "--words":
+                    words.addAll(Arrays.asList(args[++i].split(",")));
+                    break;
+                case "--dictionary":
+                    for (String line : Files.readAllLines(Paths.get(args[++i]), StandardCharsets.UTF_8)) {
+                        if (!line.trim().isEmpty()) {
+                            words.add(line.trim());
+                        }
+                    }
+                    break;
+                case "--backtrack":
+                    String mode = args[++i];
+                    if (!mode.equals("reset") && !mode.equals("back")) {
+                        throw new IllegalArgumentException("Expected reset or back but found " + mode);
+                    }
+                    options.backtrackWithBack = mode.equals("back");
+                    break;
+                case "--seed":
+                    options.seed = Long.parseLong(args[++i]);
+                    break;
+                case "--max-depth":
+                    options.maxDepth = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-states":
+                    options.maxStates = Long.parseLong(args[++i]);
+                    break;
+                case "--workers":
+                    if (!parallel) {
+                        throw new IllegalArgumentException("--workers is an option of ParallelQuestExplorer");
+                    }
+                    options.workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--record":
+                    options.record = Paths.get(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (words.isEmpty()) {
+            // What the app puts into the text field
+            words.add("yandex");
+        }
+        options.words = words.toArray(new String[0]);
+        return options;
+    }
+}
@@ -0,0 +1,67 @@
+package com.yandex.championship.quest.explorer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The nodes of one level of the {@link SearchTree}, split into a range for each worker of
+ * {@link ParallelQuestExplorer}. A worker takes the nodes of its own range in order and, when that runs out, steals
+ * the upper half of another worker's range. Every node is taken exactly once without locks: a range only changes by
+ * a compare-and-set of its packed bounds, except that its worker refills it while it is empty.
+ */
+class LevelRanges {
+    // Untaken nodes of each worker, packed as from << 32 | to
+    private final AtomicLongArray mRanges;
+
+    /**
+     * Splits nodes {@code levelStart until levelEnd} into equal contiguous ranges, stealing evens them out.
+     */
+    LevelRanges(int levelStart, int levelEnd, int workerCount) {
+        mRanges = new AtomicLongArray(workerCount);
+        int count = levelEnd - levelStart;
+        for (int w = 0; w < workerCount; ++w) {
+            long from = levelStart + (long) count * w / workerCount;
+            long to = levelStart + (long) count * (w + 1) / workerCount;
+            mRanges.set(w, from << 32 | to);
+        }
+    }
+
+    /**
+     * May only be called by the thread of worker {@code w}.
+     *
+     * @return next node of worker {@code w}'s range, after stealing from other workers if it is empty, or NO_NODE
+     * when the level is done
+     */
+    int take(int w) {
+        while (true) {
+            long range = mRanges.get(w);
+            int from = (int) (range >>> 32);
+            int to = (int) range;
+            if (from == to) {
+                break;
+            }
+            if (mRanges.compareAndSet(w, range, (long) (from + 1) << 32 | to)) {
+                return from;
+            }
+        }
+        int workerCount = mRanges.length();
+        for (int k = 1; k < workerCount; ++k) {
+            int victim = (w + k) % workerCount;
+            while (true) {
+                long range = mRanges.get(victim);
+                int from = (int) (range >>> 32);
+                int to = (int) range;
+                if (from == to) {
+                    break;
+                }
+                // Take the upper half, which is furthest from where the victim is working
+                int middle = from + (to - from) / 2;
+                if (mRanges.compareAndSet(victim, range, (long) from << 32 | middle)) {
+                    // Only this thread changes an empty range of its own
+                    mRanges.set(w, (long) (middle + 1) << 32 | to);
+                    return middle;
+                }
+            }
+        }
+        return SearchTree.NO_NODE;
+    }
+}
@@ -0,0 +1,242 @@
+package com.yandex.championship.quest.explorer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches the quest like {@link QuestExplorer}, with the tasks of each level expanded by several worker processes.
+ * The native state of {@code QuestCore} is global to a process, so every worker is a JVM running a
+ * {@link QuestDriver}, which reaches the task it is handed by replaying the task's answers.
+ * <p>
+ * Each worker owns a range of the level and steals half of another worker's range when its own runs out, see
+ * {@link LevelRanges}. The expansions are then merged in the order of the tree, so the visited set only needs the
+ * merging thread and the shortest path, counts and dropped duplicates are the same for any number of workers and any
+ * schedule. A seed only changes the order in which answers are tried, see {@link ExplorerOptions}.
+ * <p>
+ * Usage: {@code ParallelQuestExplorer [options]}, see {@link ExplorerOptions}
+ */
+public class ParallelQuestExplorer {
+    private final ExplorerOptions mOptions;
+    private final List<Worker> mWorkers = new ArrayList<>();
+    private final ExecutorService mExecutor;
+    private final SearchTree mTree = new SearchTree();
+    private final StateSet mVisited = new StateSet();
+    private long mExpanded;
+
+    // Unexpanded nodes of the level being expanded
+    private LevelRanges mRanges;
+    // Expansion of each node of the level, indexed from its first node
+    private long[] mFingerprints = new long[0];
+    private int[] mBingos = new int[0];
+    private int[][] mNext = new int[0][];
+
+    ParallelQuestExplorer(ExplorerOptions options) throws IOException {
+        mOptions = options;
+        for (int i = 0; i < options.workers; ++i) {
+            mWorkers.add(new Worker(options));
+        }
+        for (Worker worker : mWorkers) {
+            worker.awaitReady();
+        }
+        mExecutor = Executors.newFixedThreadPool(options.workers);
+    }
+
+    /**
+     * @return node reached by the answer that gave BINGO, or NO_NODE if there is none within the limits
+     */
+    int search() throws IOException, InterruptedException {
+        int levelStart = 0;
+        while (levelStart < mTree.size() && mExpanded < mOptions.maxStates
+                && mTree.depth(levelStart) < mOptions.maxDepth) {
+            int levelEnd = (int) Math.min(mTree.size(), levelStart + mOptions.maxStates - mExpanded);
+            expandLevel(levelStart, levelEnd);
+            mExpanded += levelEnd - levelStart;
+
+            int nextLevelStart = mTree.size();
+            for (int node = levelStart; node < levelEnd; ++node) {
+                int i = node - levelStart;
+                if (mBingos[i] != QuestDriver.NO_ANSWER) {
+                    return mTree.add(node, mBingos[i]);
+                }
+                if (mVisited.add(mFingerprints[i])) {
+                    for (int answer : mNext[i]) {
+                        mTree.add(node, answer);
+                    }
+                }
+            }
+            levelStart = nextLevelStart;
+        }
+        return SearchTree.NO_NODE;
+    }
+
+    private void expandLevel(int levelStart, int levelEnd) throws IOException, InterruptedException {
+        int count = levelEnd - levelStart;
+        if (mFingerprints.length < count) {
+            mFingerprints = new long[count];
+            mBingos = new int[count];
+            mNext = new int[count][];
+        }
+        int workerCount = mWorkers.size();
+        mRanges = new LevelRanges(levelStart, levelEnd, workerCount);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int w = 0; w < workerCount; ++w) {
+            int worker = w;
+            tasks.add(() -> {
+                expandRanges(worker, levelStart);
+                return null;
+            });
+        }
+        for (Future<Void> future : mExecutor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    private void expandRanges(int w, int levelStart) throws IOException {
+        Worker worker = mWorkers.get(w);
+        int[] path = new int[16];
+        int node;
+        while ((node = mRanges.take(w)) != SearchTree.NO_NODE) {
+            path = mTree.path(node, path);
+            int i = node - levelStart;
+            worker.expand(path, mTree.depth(node));
+            mFingerprints[i] = worker.mFingerprint;
+            mBingos[i] = worker.mBingo;
+            mNext[i] = worker.mNext;
+        }
+    }
+
+    void close() {
+        mExecutor.shutdown();
+        for (Worker worker : mWorkers) {
+            worker.close();
+        }
+    }
+
+    long coreCalls() {
+        long coreCalls = 0;
+        for (Worker worker : mWorkers) {
+            coreCalls += worker.mCoreCalls;
+        }
+        return coreCalls;
+    }
+
+    /**
+     * {@link QuestDriver} in a process of its own.
+     */
+    private static final class Worker {
+        private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+        private final Process mProcess;
+        private final Writer mIn;
+        private final BufferedReader mOut;
+        private final StringBuilder mRequest = new StringBuilder();
+
+        // Reply to the last expand
+        long mFingerprint;
+        int mBingo;
+        int[] mNext;
+        long mCoreCalls;
+
+        Worker(ExplorerOptions options) throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-Djava.library.path=" + System.getProperty("java.library.path"));
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(QuestDriver.class.getName());
+            command.add(options.seed != null ? options.seed.toString() : "none");
+            command.add(options.backtrackWithBack ? "back" : "reset");
+            for (String word : options.words) {
+                command.add(word);
+            }
+            mProcess = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            mIn = new OutputStreamWriter(mProcess.getOutputStream(), StandardCharsets.US_ASCII);
+            mOut = new BufferedReader(new InputStreamReader(mProcess.getInputStream(), StandardCharsets.US_ASCII));
+        }
+
+        void awaitReady() throws IOException {
+            if (!"ready".equals(mOut.readLine())) {
+                throw new IOException("Quest worker failed to start");
+            }
+        }
+
+        void expand(int[] path, int depth) throws IOException {
+            mRequest.setLength(0);
+            for (int i = 0; i < depth; ++i) {
+                if (i > 0) {
+                    mRequest.append(' ');
+                }
+                mRequest.append(path[i]);
+            }
+            mRequest.append('\n');
+            mIn.write(mRequest.toString());
+            mIn.flush();
+
+            String reply = mOut.readLine();
+            if (reply == null) {
+                throw new IOException("Quest worker exited");
+            }
+            String[] fields = reply.split(" ");
+            mFingerprint = Long.parseLong(fields[0]);
+            mBingo = Integer.parseInt(fields[1]);
+            mCoreCalls = Long.parseLong(fields[2]);
+            mNext = new int[fields.length - 3];
+            for (int i = 0; i < mNext.length; ++i) {
+                mNext[i] = Integer.parseInt(fields[i + 3]);
+            }
+        }
+
+        /**
+         * Closes the worker's stdin, which ends it, and destroys it if it has not exited within a few seconds.
+         */
+        void close() {
+            try {
+                mIn.close();
+                mProcess.waitFor(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                // Destroyed below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                mProcess.destroy();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        ExplorerOptions options = ExplorerOptions.parse(args, true);
+        ParallelQuestExplorer explorer = new ParallelQuestExplorer(options);
+        try {
+            long start = System.nanoTime();
+            int bingo = explorer.search();
+            long nanos = System.nanoTime() - start;
+            System.out.println(options.workers + " workers");
+            QuestExplorer.printReport(explorer.mTree, bingo,
+                    new QuestDriver(options.words, options.backtrackWithBack, options.seed), options,
+                    explorer.mExpanded, explorer.mVisited.size(), explorer.coreCalls(), nanos);
+        } finally {
+            explorer.close();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.yandex.championship.quest.explorer;
+
+import android.content.Context;
+
+import com.yandex.championship.quest_core_lib.R;
+
+/**
+ * Serves the task texts of quest-core-lib's res/values/values.xml, so {@code QuestCore} reads the same texts as on a
+ * device.
+ */
+class QuestContext extends Context {
+    @Override
+    public String getString(int resId) {
+        if (resId == R.string.direction_task) {
+            return "Иди направо";
+        } else if (resId == R.string.number_task) {
+            return "Вернись назад, пойди налево и найди код, чтобы пройти дальше";
+        } else if (resId == R.string.text_task) {
+            return "Введи название компании, проводящей контест, на английском";
+        } else if (resId == R.string.deadlock_task) {
+            return "Тупик";
+        }
+        throw new IllegalArgumentException("Unknown string resource: 0x" + Integer.toHexString(resId));
+    }
+}
@@ -0,0 +1,370 @@
+package com.yandex.championship.quest.explorer;
+
+import com.yandex.championship.quest.replay.Answer;
+import com.yandex.championship.quest_core_lib.QuestCore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskType;
+
+/**
+ * Moves a {@link QuestCore} to a task given by the answers that lead there from the start of the quest and tries
+ * what the app offers at that task: both directions, the numbers 1..16, each word of a dictionary and the back
+ * button. A wrong answer is assumed to leave the task as it was, like in the app.
+ * <p>
+ * The core keeps its state in native code and only moves forward, so a task is revisited by resetting the quest and
+ * replaying its answers, or with backtracking by back, by pressing back after an answer when that returns to the same
+ * task. Tasks of one type share their text, apart from the code shown in a deadlock, so the fingerprint of a task
+ * covers its type, its text and the outcome of every answer.
+ * <p>
+ * The state of the core is global to the process, even for several {@link QuestCore} instances, so there can be only
+ * one driver per process. Run as a program, a driver serves {@link ParallelQuestExplorer}: each line on stdin holds
+ * the answers of a path, each reply on stdout holds the fingerprint, the answer that gave BINGO or -1, the core calls
+ * made so far and the answers that led to another task.
+ */
+class QuestDriver {
+    static final int LEFT = 0;
+    static final int RIGHT = 1;
+    static final int BACK = 2;
+    // Numbers 1..16 are answers FIRST_NUMBER.., the dictionary words follow them
+    static final int FIRST_NUMBER = 3;
+    static final int NUMBER_COUNT = Answer.NUMBER_COUNT;
+    static final int FIRST_WORD = FIRST_NUMBER + NUMBER_COUNT;
+    static final int NO_ANSWER = -1;
+
+    private final QuestCore mCore = new QuestCore(new QuestContext());
+    private final CoreAnswers mCoreAnswers = new CoreAnswers(mCore);
+    // Each action as the answer it gives
+    private final Answer[] mActionAnswers;
+    private final boolean mBacktrackWithBack;
+    // Answers for each task type in the order they are tried
+    private final int[][] mAnswers = new int[TaskType.DEADLOCK_TASK + 1][];
+
+    // Answers that lead to the task the core is at, mCurrentDepth is -1 when that is not known
+    private int[] mCurrent = new int[16];
+    private int mCurrentDepth = -1;
+    private long mCoreCalls;
+
+    // Outcome of the last expand
+    private long mFingerprint;
+    private int mBingo;
+    private int[] mNext = new int[FIRST_WORD];
+    private int mNextCount;
+
+    /**
+     * @param seed shuffles the order in which the answers of each task type are tried, or null for the app's order
+     */
+    QuestDriver(String[] words, boolean backtrackWithBack, Long seed) {
+        mBacktrackWithBack = backtrackWithBack;
+        mActionAnswers = new Answer[FIRST_WORD + words.length];
+        mActionAnswers[LEFT] = Answer.LEFT;
+        mActionAnswers[RIGHT] = Answer.RIGHT;
+        mActionAnswers[BACK] = Answer.BACK;
+        for (int i = 0; i < NUMBER_COUNT; ++i) {
+            mActionAnswers[FIRST_NUMBER + i] = Answer.number(i + 1);
+        }
+        for (int i = 0; i < words.length; ++i) {
+            mActionAnswers[FIRST_WORD + i] = Answer.word(words[i]);
+        }
+
+        mAnswers[TaskType.DIRECTION_TASK] = new int[]{LEFT, RIGHT};
+        int[] numberAnswers = new int[NUMBER_COUNT + 1];
+        for (int i = 0; i < NUMBER_COUNT; ++i) {
+            numberAnswers[i] = FIRST_NUMBER + i;
+        }
+        numberAnswers[NUMBER_COUNT] = BACK;
+        mAnswers[TaskType.NUMBER_TASK] = numberAnswers;
+        int[] textAnswers = new int[words.length + 1];
+        for (int i = 0; i < words.length; ++i) {
+            textAnswers[i] = FIRST_WORD + i;
+        }
+        textAnswers[words.length] = BACK;
+        mAnswers[TaskType.TEXT_TASK] = textAnswers;
+        mAnswers[TaskType.DEADLOCK_TASK] = new int[]{BACK};
+
+        if (seed != null) {
+            Random random = new Random(seed);
+            for (int[] answers : mAnswers) {
+                for (int i = answers.length - 1; i > 0; --i) {
+                    int j = random.nextInt(i + 1);
+                    int answer = answers[i];
+                    answers[i] = answers[j];
+                    answers[j] = answer;
+                }
+            }
+        }
+        if (mNext.length < textAnswers.length) {
+            mNext = new int[textAnswers.length];
+        }
+    }
+
+    /**
+     * Tries every answer at the task reached by {@code path[0..depth)}, see {@link #fingerprint}, {@link #bingo} and
+     * {@link #next}. Stops at the first answer that gives BINGO.
+     */
+    void expand(int[] path, int depth) {
+        moveTo(path, depth);
+        int type = mCore.getTaskType();
+        String text = mCore.getTaskText();
+        int taskResult = mCore.getResult();
+        mCoreCalls += 3;
+
+        mFingerprint = observation(type, text);
+        mBingo = NO_ANSWER;
+        mNextCount = 0;
+        for (int action : mAnswers[type]) {
+            if (mCurrentDepth != depth) {
+                moveTo(path, depth);
+            }
+            int result = answer(action);
+            mFingerprint = mix(mFingerprint + action * 3L + result);
+            if (result == TaskResult.BINGO) {
+                mBingo = action;
+                mCurrentDepth = -1;
+                return;
+            } else if (result == TaskResult.NEXT_QUESTION) {
+                int nextType = mCore.getTaskType();
+                mFingerprint = mix(mFingerprint ^ observation(nextType, mCore.getTaskText()));
+                mCoreCalls += 2;
+                mNext[mNextCount++] = action;
+                if (mBacktrackWithBack && action != BACK && nextType != TaskType.DIRECTION_TASK) {
+                    mCurrentDepth = goBack(type, text, taskResult) ? depth : -1;
+                } else {
+                    // Next task, which is where the following expand starts when it is a child of this one
+                    if (mCurrent.length <= depth) {
+                        mCurrent = Arrays.copyOf(mCurrent, Math.max(depth + 1, mCurrent.length * 2));
+                    }
+                    mCurrent[depth] = action;
+                    mCurrentDepth = depth + 1;
+                }
+            }
+        }
+    }
+
+    long fingerprint() {
+        return mFingerprint;
+    }
+
+    /**
+     * @return answer that gave BINGO, or NO_ANSWER
+     */
+    int bingo() {
+        return mBingo;
+    }
+
+    int nextCount() {
+        return mNextCount;
+    }
+
+    /**
+     * @return {@code index}-th answer that led to another task
+     */
+    int next(int index) {
+        return mNext[index];
+    }
+
+    long coreCalls() {
+        return mCoreCalls;
+    }
+
+    /**
+     * Replays {@code path[0..depth)} and prints each task with the answer given to it, then the result.
+     */
+    void printPath(int[] path, int depth, PrintStream out) {
+        mCore.resetQuest();
+        mCurrentDepth = -1;
+        out.println("Shortest path to BINGO, " + depth + " answers:");
+        for (int i = 0; i < depth; ++i) {
+            out.println("  " + (i + 1) + ". " + typeName(mCore.getTaskType()) + " \""
+                    + mCore.getTaskText().replace('\n', ' ') + "\" -> " + answerName(path[i]));
+            answer(path[i]);
+        }
+        out.println("Result: " + mCore.getResult());
+    }
+
+    /**
+     * Presses back and checks that the core shows everything it showed at the task that was left: its type, its text
+     * and the result of the quest so far. Otherwise the core is somewhere else, and the next answer falls back to
+     * {@link #moveTo}.
+     */
+    private boolean goBack(int type, String text, int taskResult) {
+        int result = mCore.goBack();
+        ++mCoreCalls;
+        if (result != TaskResult.NEXT_QUESTION) {
+            return false;
+        }
+        mCoreCalls += 3;
+        return mCore.getTaskType() == type && mCore.getTaskText().equals(text) && mCore.getResult() == taskResult;
+    }
+
+    /**
+     * Resets the quest and replays {@code path[0..depth)}, unless the core is already there.
+     */
+    private void moveTo(int[] path, int depth) {
+        if (isCurrent(path, depth)) {
+            return;
+        }
+        mCore.resetQuest();
+        ++mCoreCalls;
+        for (int i = 0; i < depth; ++i) {
+            int result = answer(path[i]);
+            if (result != TaskResult.NEXT_QUESTION) {
+                throw new IllegalStateException("Answer " + (i + 1) + " gave " + resultName(result)
+                        + " when replayed, the quest does not replay deterministically");
+            }
+        }
+        if (mCurrent.length < depth) {
+            mCurrent = new int[Math.max(depth, mCurrent.length * 2)];
+        }
+        System.arraycopy(path, 0, mCurrent, 0, depth);
+        mCurrentDepth = depth;
+    }
+
+    private boolean isCurrent(int[] path, int depth) {
+        if (mCurrentDepth != depth) {
+            return false;
+        }
+        for (int i = 0; i < depth; ++i) {
+            if (mCurrent[i] != path[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int answer(int action) {
+        ++mCoreCalls;
+        return mActionAnswers[action].accept(mCoreAnswers);
+    }
+
+    /**
+     * @return {@code action} the way {@link com.yandex.championship.quest.replay.RecordedPath} reads it
+     */
+    String answerName(int action) {
+        return mActionAnswers[action].toString();
+    }
+
+    static String typeName(int type) {
+        switch (type) {
+            case TaskType.DIRECTION_TASK:
+                return "DIRECTION_TASK";
+            case TaskType.NUMBER_TASK:
+                return "NUMBER_TASK";
+            case TaskType.TEXT_TASK:
+                return "TEXT_TASK";
+            case TaskType.DEADLOCK_TASK:
+                return "DEADLOCK_TASK";
+            default:
+                throw new IllegalStateException("Unexpected value: " + type);
+        }
+    }
+
+    static String resultName(int result) {
+        switch (result) {
+            case TaskResult.WRONG_ANSWER:
+                return "WRONG_ANSWER";
+            case TaskResult.NEXT_QUESTION:
+                return "NEXT_QUESTION";
+            case TaskResult.BINGO:
+                return "BINGO";
+            default:
+                throw new IllegalStateException("Unexpected value: " + result);
+        }
+    }
+
+    private static long observation(int type, String text) {
+        long hash = mix(type + 1);
+        for (int i = 0; i < text.length(); ++i) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    /**
+     * Gives answers to a {@link QuestCore} and returns its {@link TaskResult}.
+     */
+    static final class CoreAnswers implements Answer.Visitor<Integer> {
+        private final QuestCore mCore;
+
+        CoreAnswers(QuestCore core) {
+            mCore = core;
+        }
+
+        @Override
+        public Integer left() {
+            return mCore.checkDirectionAnswer(QuestCore.Direction.LEFT);
+        }
+
+        @Override
+        public Integer right() {
+            return mCore.checkDirectionAnswer(QuestCore.Direction.RIGHT);
+        }
+
+        @Override
+        public Integer back() {
+            return mCore.goBack();
+        }
+
+        @Override
+        public Integer number(int number) {
+            return mCore.checkNumberAnswer(number);
+        }
+
+        @Override
+        public Integer word(String word) {
+            return mCore.checkTextAnswer(word);
+        }
+    }
+
+    /**
+     * Worker of {@link ParallelQuestExplorer}.
+     * <p>
+     * Usage: {@code QuestDriver seed|none reset|back [word...]}
+     */
+    public static void main(String[] args) throws IOException {
+        Long seed = args[0].equals("none") ? null : Long.valueOf(args[0]);
+        QuestDriver driver = new QuestDriver(Arrays.copyOfRange(args, 2, args.length), args[1].equals("back"), seed);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+        out.println("ready");
+        out.flush();
+
+        int[] path = new int[16];
+        StringBuilder reply = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] answers = line.isEmpty() ? new String[0] : line.split(" ");
+            if (path.length < answers.length) {
+                path = new int[Math.max(answers.length, path.length * 2)];
+            }
+            for (int i = 0; i < answers.length; ++i) {
+                path[i] = Integer.parseInt(answers[i]);
+            }
+            driver.expand(path, answers.length);
+
+            reply.setLength(0);
+            reply.append(driver.fingerprint()).append(' ').append(driver.bingo()).append(' ')
+                    .append(driver.coreCalls());
+            for (int i = 0; i < driver.nextCount(); ++i) {
+                reply.append(' ').append(driver.next(i));
+            }
+            out.println(reply);
+            out.flush();
+        }
+    }
+}
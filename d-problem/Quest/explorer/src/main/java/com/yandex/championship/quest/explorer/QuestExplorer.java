@@ -0,0 +1,91 @@
+package com.yandex.championship.quest.explorer;
+
+import com.yandex.championship.quest_core_lib.QuestCore;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+
+/**
+ * Drives {@link QuestCore} on the JVM, without the app, and searches the quest breadth first for the shortest
+ * sequence of answers that ends in {@link TaskResult#BINGO}. Tasks are expanded by a {@link QuestDriver}, and when
+ * the fingerprint of a task was seen before, the tasks its answers lead to are not searched again.
+ * <p>
+ * Usage: {@code QuestExplorer [options]}, see {@link ExplorerOptions}
+ */
+public class QuestExplorer {
+    private final QuestDriver mDriver;
+    private final ExplorerOptions mOptions;
+    private final SearchTree mTree = new SearchTree();
+    private final StateSet mVisited = new StateSet();
+    private int[] mPath = new int[16];
+    private long mExpanded;
+
+    QuestExplorer(ExplorerOptions options) {
+        mOptions = options;
+        mDriver = new QuestDriver(options.words, options.backtrackWithBack, options.seed);
+    }
+
+    /**
+     * @return node reached by the answer that gave BINGO, or NO_NODE if there is none within the limits
+     */
+    int search() {
+        for (int node = 0; node < mTree.size() && mExpanded < mOptions.maxStates; ++node) {
+            int depth = mTree.depth(node);
+            if (depth >= mOptions.maxDepth) {
+                continue;
+            }
+            mPath = mTree.path(node, mPath);
+            mDriver.expand(mPath, depth);
+            ++mExpanded;
+            if (mDriver.bingo() != QuestDriver.NO_ANSWER) {
+                return mTree.add(node, mDriver.bingo());
+            }
+            if (mVisited.add(mDriver.fingerprint())) {
+                for (int i = 0; i < mDriver.nextCount(); ++i) {
+                    mTree.add(node, mDriver.next(i));
+                }
+            }
+        }
+        return SearchTree.NO_NODE;
+    }
+
+    /**
+     * Prints the path to {@code bingo}, replayed on {@code driver}, and how fast the search went. Records the path
+     * when asked to.
+     */
+    static void printReport(SearchTree tree, int bingo, QuestDriver driver, ExplorerOptions options, long expanded,
+                            int distinct, long coreCalls, long nanos) throws IOException {
+        if (bingo != SearchTree.NO_NODE) {
+            int[] path = tree.path(bingo, new int[0]);
+            int depth = tree.depth(bingo);
+            driver.printPath(path, depth, System.out);
+            if (options.record != null) {
+                List<String> lines = new ArrayList<>();
+                for (int i = 0; i < depth; ++i) {
+                    lines.add(driver.answerName(path[i]));
+                }
+                Files.write(options.record, lines, StandardCharsets.UTF_8);
+            }
+        } else {
+            System.out.println("No BINGO within " + options.maxDepth + " answers and " + options.maxStates
+                    + " states");
+        }
+        System.out.printf("Explored %d states (%d distinct) in %d ms, %.0f states/s, %d core calls%n",
+                expanded, distinct, nanos / 1_000_000, expanded * 1e9 / Math.max(nanos, 1), coreCalls);
+    }
+
+    public static void main(String[] args) throws IOException {
+        ExplorerOptions options = ExplorerOptions.parse(args, false);
+        QuestExplorer explorer = new QuestExplorer(options);
+        long start = System.nanoTime();
+        int bingo = explorer.search();
+        long nanos = System.nanoTime() - start;
+        printReport(explorer.mTree, bingo, explorer.mDriver, options, explorer.mExpanded, explorer.mVisited.size(),
+                explorer.mDriver.coreCalls(), nanos);
+    }
+}
@@ -0,0 +1,179 @@
+package com.yandex.championship.quest.explorer;
+
+import com.yandex.championship.quest.replay.Answer;
+import com.yandex.championship.quest.replay.RecordedPath;
+import com.yandex.championship.quest.replay.ReplayReport;
+import com.yandex.championship.quest_core_lib.QuestCore;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static com.yandex.championship.quest_core_lib.QuestCore.TaskResult;
+
+/**
+ * Replays a recorded path of answers through {@link QuestCore} from the reset to BINGO, the way the app does, and
+ * times every step: the answer call and the reads that the app makes to render its outcome, the task type and text
+ * or the result. The path is read by {@link RecordedPath}, as written by {@code --record} of the explorers. Fails
+ * when an answer does not lead on to the next one or the last does not give BINGO.
+ * <p>
+ * The report is JSON with the median, 90th percentile and maximum in nanoseconds of each step over all iterations,
+ * and of the whole path.
+ * <p>
+ * Usage: {@code ReplayBenchmark path [--iterations n] [--warmup n] [--report file]}
+ */
+public class ReplayBenchmark {
+    private final QuestCore mQuestCore = new QuestCore(new QuestContext());
+    private final QuestDriver.CoreAnswers mCoreAnswers = new QuestDriver.CoreAnswers(mQuestCore);
+    private final List<Answer> mPath;
+
+    // Step 0 is the reset, step i the i-th answer. Nanoseconds per iteration and step
+    private long[][] mCallNanos;
+    private long[][] mReadNanos;
+    private final int[] mResults;
+    private final int[] mTaskTypes;
+
+    ReplayBenchmark(List<Answer> path) {
+        mPath = path;
+        mResults = new int[path.size() + 1];
+        mTaskTypes = new int[path.size() + 1];
+    }
+
+    /**
+     * Replays the path {@code warmup} times untimed, then {@code iterations} times timed.
+     */
+    void run(int warmup, int iterations) {
+        int steps = mPath.size() + 1;
+        mCallNanos = new long[iterations][steps];
+        mReadNanos = new long[iterations][steps];
+        for (int i = 0; i < warmup; ++i) {
+            replay(new long[steps], new long[steps]);
+        }
+        for (int i = 0; i < iterations; ++i) {
+            replay(mCallNanos[i], mReadNanos[i]);
+        }
+    }
+
+    private void replay(long[] callNanos, long[] readNanos) {
+        for (int step = 0; step <= mPath.size(); ++step) {
+            long start = System.nanoTime();
+            int result;
+            if (step == 0) {
+                mQuestCore.resetQuest();
+                result = TaskResult.NEXT_QUESTION;
+            } else {
+                result = mPath.get(step - 1).accept(mCoreAnswers);
+            }
+            long called = System.nanoTime();
+            int taskType = -1;
+            if (result == TaskResult.NEXT_QUESTION) {
+                taskType = mQuestCore.getTaskType();
+                mQuestCore.getTaskText();
+            } else if (result == TaskResult.BINGO) {
+                mQuestCore.getResult();
+            }
+            long read = System.nanoTime();
+            callNanos[step] = called - start;
+            readNanos[step] = read - called;
+
+            boolean last = step == mPath.size();
+            if (result != (last ? TaskResult.BINGO : TaskResult.NEXT_QUESTION)) {
+                throw new IllegalStateException((step == 0 ? "Reset"
+                        : "Answer " + step + " (" + mPath.get(step - 1) + ")")
+                        + " gave " + QuestDriver.resultName(result) + " instead of " + (last ? "BINGO" : "the next task"));
+            }
+            mResults[step] = result;
+            mTaskTypes[step] = taskType;
+        }
+    }
+
+    void writeReport(PrintStream out, int warmup) {
+        int iterations = mCallNanos.length;
+        int steps = mPath.size() + 1;
+        long[] totals = new long[iterations];
+        for (int i = 0; i < iterations; ++i) {
+            for (int step = 0; step < steps; ++step) {
+                totals[i] += mCallNanos[i][step] + mReadNanos[i][step];
+            }
+        }
+
+        out.println("{");
+        out.println("  \"iterations\": " + iterations + ",");
+        out.println("  \"warmup\": " + warmup + ",");
+        out.println("  \"total\": " + ReplayReport.stats(totals) + ",");
+        out.println("  \"steps\": [");
+        long[] samples = new long[iterations];
+        for (int step = 0; step < steps; ++step) {
+            StringBuilder line = new StringBuilder("    {\"step\": ").append(step)
+                    .append(", \"answer\": ")
+                    .append(step == 0 ? "\"reset\"" : ReplayReport.quote(mPath.get(step - 1).toString()))
+                    .append(", \"result\": \"").append(QuestDriver.resultName(mResults[step])).append('"');
+            if (mTaskTypes[step] >= 0) {
+                line.append(", \"task\": \"").append(QuestDriver.typeName(mTaskTypes[step])).append('"');
+            }
+            for (int i = 0; i < iterations; ++i) {
+                samples[i] = mCallNanos[i][step];
+            }
+            line.append(", \"call\": ").append(ReplayReport.stats(samples));
+            for (int i = 0; i < iterations; ++i) {
+                samples[i] = mReadNanos[i][step];
+            }
+            line.append(", \"read\": ").append(ReplayReport.stats(samples)).append('}');
+            if (step + 1 < steps) {
+                line.append(',');
+            }
+            out.println(line);
+        }
+        out.println("  ]");
+        out.println("}");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            throw new IllegalArgumentException("Usage: ReplayBenchmark path [--iterations n] [--warmup n]"
+                    + " [--report file]");
+        }
+        int iterations = 1000;
+        int warmup = 100;
+        String report = null;
+        for (int i = 1; i < args.length; ++i) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value of " + args[i]);
+            }
+            switch (args[i]) {
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--report":
+                    report = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Expected at least one iteration but found " + iterations);
+        }
+
+        List<Answer> path;
+        try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            path = RecordedPath.read(reader);
+        }
+        ReplayBenchmark benchmark = new ReplayBenchmark(path);
+        benchmark.run(warmup, iterations);
+        if (report == null) {
+            benchmark.writeReport(System.out, warmup);
+        } else {
+            try (PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(report)), false, "UTF-8")) {
+                benchmark.writeReport(out, warmup);
+            }
+        }
+    }
+}
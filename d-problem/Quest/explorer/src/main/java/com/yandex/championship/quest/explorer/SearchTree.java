@@ -0,0 +1,59 @@
+package com.yandex.championship.quest.explorer;
+
+import java.util.Arrays;
+
+/**
+ * Tasks found by a breadth first search, each stored as its parent and the answer that led from there. Nodes are
+ * added in breadth first order, so the tree is its own queue. Node 0 is the first task of the quest.
+ */
+class SearchTree {
+    static final int NO_NODE = -1;
+
+    private int[] mParent = new int[1024];
+    private int[] mAnswer = new int[1024];
+    private int[] mDepth = new int[1024];
+    private int mSize;
+
+    SearchTree() {
+        add(NO_NODE, 0);
+    }
+
+    /**
+     * @return the new node
+     */
+    int add(int parent, int answer) {
+        if (mSize == mParent.length) {
+            int capacity = mSize * 2;
+            mParent = Arrays.copyOf(mParent, capacity);
+            mAnswer = Arrays.copyOf(mAnswer, capacity);
+            mDepth = Arrays.copyOf(mDepth, capacity);
+        }
+        mParent[mSize] = parent;
+        mAnswer[mSize] = answer;
+        mDepth[mSize] = parent == NO_NODE ? 0 : mDepth[parent] + 1;
+        return mSize++;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int depth(int node) {
+        return mDepth[node];
+    }
+
+    /**
+     * @return answers that lead to {@code node} in {@code path[0..depth(node))}, in {@code path} when it is long
+     * enough
+     */
+    int[] path(int node, int[] path) {
+        int depth = mDepth[node];
+        if (path.length < depth) {
+            path = new int[Math.max(depth, path.length * 2)];
+        }
+        for (int n = node, i = depth; i-- > 0; n = mParent[n]) {
+            path[i] = mAnswer[n];
+        }
+        return path;
+    }
+}
@@ -0,0 +1,55 @@
+package com.yandex.championship.quest.explorer;
+
+/**
+ * Set of 64-bit state fingerprints, open addressing over a single {@code long[]} so that millions of visited states
+ * cost eight bytes each instead of a boxed entry.
+ */
+class StateSet {
+    // Marks a free slot, fingerprints that happen to be zero are stored as ZERO_REPLACEMENT
+    private static final long EMPTY = 0;
+    private static final long ZERO_REPLACEMENT = 0x9e3779b97f4a7c15L;
+
+    private long[] mSlots = new long[1 << 10];
+    private int mSize;
+
+    /**
+     * @return true if the fingerprint was not in the set yet
+     */
+    boolean add(long fingerprint) {
+        if (fingerprint == EMPTY) {
+            fingerprint = ZERO_REPLACEMENT;
+        }
+        int mask = mSlots.length - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (mSlots[slot] != EMPTY) {
+            if (mSlots[slot] == fingerprint) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        mSlots[slot] = fingerprint;
+        if (++mSize * 2 > mSlots.length) {
+            grow();
+        }
+        return true;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    private void grow() {
+        long[] old = mSlots;
+        mSlots = new long[old.length * 2];
+        int mask = mSlots.length - 1;
+        for (long fingerprint : old) {
+            if (fingerprint != EMPTY) {
+                int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+                while (mSlots[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                mSlots[slot] = fingerprint;
+            }
+        }
+    }
+}
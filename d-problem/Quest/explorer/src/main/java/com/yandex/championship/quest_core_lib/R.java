@@ -0,0 +1,13 @@
+package com.yandex.championship.quest_core_lib;
+
+/**
+ * Resource ids that {@code QuestCore} reads, as listed in R.txt of quest-core-lib-release.aar.
+ */
+public final class R {
+    public static final class string {
+        public static int deadlock_task = 0x7f140028;
+        public static int direction_task = 0x7f140029;
+        public static int number_task = 0x7f14002a;
+        public static int text_task = 0x7f14002d;
+    }
+}
@@ -0,0 +1,82 @@
+package com.yandex.championship.quest.explorer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class LevelRangesTest {
+    @Test
+    public void everyNodeIsTakenOnce() throws InterruptedException {
+        int[] levelSizes = {0, 1, 2, 3, 7, 100, 1000, 20_000};
+        for (int workers = 1; workers <= 8; ++workers) {
+            for (int levelSize : levelSizes) {
+                for (int round = 0; round < 20; ++round) {
+                    assertTakenOnce(workers, 12_345, levelSize);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void idleWorkersStealEverything() {
+        // Only worker 2 takes, so it drains its own range and then steals all of the others
+        LevelRanges ranges = new LevelRanges(10, 20, 4);
+        boolean[] taken = new boolean[10];
+        int node;
+        int count = 0;
+        while ((node = ranges.take(2)) != SearchTree.NO_NODE) {
+            assertFalse(taken[node - 10]);
+            taken[node - 10] = true;
+            ++count;
+        }
+        assertEquals(10, count);
+        assertEquals(SearchTree.NO_NODE, ranges.take(0));
+    }
+
+    /**
+     * Runs one thread per worker that takes nodes until the level is done.
+     */
+    private static void assertTakenOnce(int workers, int levelStart, int levelSize) throws InterruptedException {
+        LevelRanges ranges = new LevelRanges(levelStart, levelStart + levelSize, workers);
+        AtomicIntegerArray takes = new AtomicIntegerArray(levelSize);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CyclicBarrier start = new CyclicBarrier(workers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < workers; ++w) {
+            int worker = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    int node;
+                    while ((node = ranges.take(worker)) != SearchTree.NO_NODE) {
+                        takes.incrementAndGet(node - levelStart);
+                        if ((node & 7) == worker) {
+                            // Let the others steal from a worker that is busy with a node
+                            Thread.yield();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        for (int i = 0; i < levelSize; ++i) {
+            assertEquals(workers + " workers, level of " + levelSize + ": node " + (levelStart + i), 1,
+                    takes.get(i));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.yandex.championship.quest.explorer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SearchTreeTest {
+    @Test
+    public void startsWithTheFirstTask() {
+        SearchTree tree = new SearchTree();
+        assertEquals(1, tree.size());
+        assertEquals(0, tree.depth(0));
+        int[] path = new int[0];
+        assertSame(path, tree.path(0, path));
+    }
+
+    @Test
+    public void reconstructsPathsPastGrowth() {
+        SearchTree tree = new SearchTree();
+        List<int[]> expected = new ArrayList<>();
+        expected.add(new int[0]);
+        Random random = new Random(7);
+        // Breadth first like the explorers: the parent of each node was added before it
+        for (int node = 1; node < 5000; ++node) {
+            int parent = Math.max(0, node - 1 - random.nextInt(8));
+            int answer = random.nextInt(40);
+            assertEquals(node, tree.add(parent, answer));
+            int[] parentPath = expected.get(parent);
+            int[] path = new int[parentPath.length + 1];
+            System.arraycopy(parentPath, 0, path, 0, parentPath.length);
+            path[parentPath.length] = answer;
+            expected.add(path);
+        }
+        assertEquals(5000, tree.size());
+
+        int[] scratch = new int[1];
+        for (int node = 0; node < tree.size(); ++node) {
+            int depth = tree.depth(node);
+            assertEquals(expected.get(node).length, depth);
+            scratch = tree.path(node, scratch);
+            int[] path = new int[depth];
+            System.arraycopy(scratch, 0, path, 0, depth);
+            assertArrayEquals("node " + node, expected.get(node), path);
+        }
+    }
+
+    @Test
+    public void reusesALongEnoughPath() {
+        SearchTree tree = new SearchTree();
+        int child = tree.add(0, 5);
+        int grandchild = tree.add(child, 9);
+        int[] path = new int[4];
+        assertSame(path, tree.path(grandchild, path));
+        assertArrayEquals(new int[]{5, 9, 0, 0}, path);
+        int[] grown = tree.path(grandchild, new int[1]);
+        assertEquals(5, grown[0]);
+        assertEquals(9, grown[1]);
+    }
+}
@@ -0,0 +1,61 @@
+package com.yandex.championship.quest.explorer;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StateSetTest {
+    @Test
+    public void addReportsNewFingerprints() {
+        StateSet set = new StateSet();
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.add(-42));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void keepsFingerprintsThatShareASlot() {
+        // k << 32 | k hashes to slot 0 for every k, so each add probes past all the earlier ones
+        StateSet set = new StateSet();
+        for (long k = 1; k <= 300; ++k) {
+            assertTrue(set.add(k << 32 | k));
+        }
+        for (long k = 1; k <= 300; ++k) {
+            assertFalse(set.add(k << 32 | k));
+        }
+        assertEquals(300, set.size());
+    }
+
+    @Test
+    public void storesTheZeroFingerprint() {
+        StateSet set = new StateSet();
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertEquals(1, set.size());
+        // Zero takes the place of its replacement, which a 64-bit fingerprint hits with probability 2^-64
+        assertFalse(set.add(0x9e3779b97f4a7c15L));
+    }
+
+    @Test
+    public void growsLikeAHashSet() {
+        StateSet set = new StateSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; ++i) {
+            // Draw from a small range half of the time, so that repeats survive the growth too
+            long fingerprint = random.nextBoolean() ? random.nextLong() : random.nextInt(50_000);
+            assertEquals("add " + fingerprint, expected.add(fingerprint), set.add(fingerprint));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long fingerprint : expected) {
+            assertFalse(set.add(fingerprint));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.yandex.championship.quest.replay;
+
+/**
+ * One answer of a recorded path, written as {@code left}, {@code right}, {@code back}, a number 1..16 or a quoted
+ * word. {@link #accept} hands it to whatever gives it: the core, a fake quest or the controls of the app.
+ */
+public final class Answer {
+    public static final int NUMBER_COUNT = 16;
+
+    public static final Answer LEFT = new Answer(Kind.LEFT, 0, null);
+    public static final Answer RIGHT = new Answer(Kind.RIGHT, 0, null);
+    public static final Answer BACK = new Answer(Kind.BACK, 0, null);
+
+    private enum Kind {LEFT, RIGHT, BACK, NUMBER, WORD}
+
+    private final Kind mKind;
+    private final int mNumber;
+    private final String mWord;
+
+    private Answer(Kind kind, int number, String word) {
+        mKind = kind;
+        mNumber = number;
+        mWord = word;
+    }
+
+    /**
+     * @param number 1..{@value #NUMBER_COUNT}
+     */
+    public static Answer number(int number) {
+        if (number < 1 || number > NUMBER_COUNT) {
+            throw new IllegalArgumentException("Number " + number + " is not in 1.." + NUMBER_COUNT);
+        }
+        return new Answer(Kind.NUMBER, number, null);
+    }
+
+    public static Answer word(String word) {
+        return new Answer(Kind.WORD, 0, word);
+    }
+
+    /**
+     * @param text answer as written in a recorded path, without surrounding whitespace
+     */
+    public static Answer parse(String text) {
+        switch (text) {
+            case "left":
+                return LEFT;
+            case "right":
+                return RIGHT;
+            case "back":
+                return BACK;
+            default:
+                if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+                    return word(text.substring(1, text.length() - 1));
+                }
+                int number;
+                try {
+                    number = Integer.parseInt(text);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Expected left, right, back, a number or a quoted word but "
+                            + "found " + text);
+                }
+                return number(number);
+        }
+    }
+
+    /**
+     * Gives this answer to {@code visitor}.
+     */
+    public <T> T accept(Visitor<T> visitor) {
+        switch (mKind) {
+            case LEFT:
+                return visitor.left();
+            case RIGHT:
+                return visitor.right();
+            case BACK:
+                return visitor.back();
+            case NUMBER:
+                return visitor.number(mNumber);
+            default:
+                return visitor.word(mWord);
+        }
+    }
+
+    /**
+     * @return the answer as written in a recorded path
+     */
+    @Override
+    public String toString() {
+        switch (mKind) {
+            case LEFT:
+                return "left";
+            case RIGHT:
+                return "right";
+            case BACK:
+                return "back";
+            case NUMBER:
+                return String.valueOf(mNumber);
+            default:
+                return "\"" + mWord + "\"";
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Answer)) {
+            return false;
+        }
+        Answer answer = (Answer) other;
+        return mKind == answer.mKind && mNumber == answer.mNumber
+                && (mWord == null ? answer.mWord == null : mWord.equals(answer.mWord));
+    }
+
+    @Override
+    public int hashCode() {
+        return (mKind.hashCode() * 31 + mNumber) * 31 + (mWord == null ? 0 : mWord.hashCode());
+    }
+
+    /**
+     * What each kind of answer does.
+     */
+    public interface Visitor<T> {
+        T left();
+
+        T right();
+
+        T back();
+
+        /**
+         * @param number 1..{@value Answer#NUMBER_COUNT}
+         */
+        T number(int number);
+
+        T word(String word);
+    }
+}
@@ -0,0 +1,43 @@
+package com.yandex.championship.quest.replay;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Path of answers from the reset of the quest to BINGO, one {@link Answer} per line, as written by {@code --record}
+ * of the explorers. Blank lines are skipped.
+ */
+public final class RecordedPath {
+    private RecordedPath() {
+    }
+
+    public static List<Answer> read(Reader reader) throws IOException {
+        List<String> lines = new ArrayList<>();
+        BufferedReader lineReader = new BufferedReader(reader);
+        for (String line = lineReader.readLine(); line != null; line = lineReader.readLine()) {
+            lines.add(line);
+        }
+        return parse(lines);
+    }
+
+    public static List<Answer> parse(List<String> lines) {
+        List<Answer> answers = new ArrayList<>();
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                answers.add(Answer.parse(line.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Answer " + (answers.size() + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        if (answers.isEmpty()) {
+            throw new IllegalArgumentException("The path has no answers");
+        }
+        return answers;
+    }
+}
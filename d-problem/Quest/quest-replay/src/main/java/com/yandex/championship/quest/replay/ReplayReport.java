@@ -0,0 +1,39 @@
+package com.yandex.championship.quest.replay;
+
+import java.util.Arrays;
+
+/**
+ * Pieces of the JSON reports of replayed paths.
+ */
+public final class ReplayReport {
+    private ReplayReport() {
+    }
+
+    /**
+     * @return {@code {"median": .., "p90": .., "max": ..}} of {@code nanos}, which is not empty
+     */
+    public static String stats(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return "{\"median\": " + sorted[(sorted.length - 1) / 2] + ", \"p90\": "
+                + sorted[(int) Math.ceil(sorted.length * 0.9) - 1] + ", \"max\": " + sorted[sorted.length - 1] + "}";
+    }
+
+    /**
+     * @return {@code text} as a JSON string
+     */
+    public static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.yandex.championship.quest.replay;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RecordedPathTest {
+    @Test
+    public void readsEveryKindOfAnswer() throws IOException {
+        List<Answer> path = RecordedPath.read(new StringReader("left\n\n  right \nback\n16\n\"YANDEX\"\n"));
+        assertEquals(Arrays.asList(Answer.LEFT, Answer.RIGHT, Answer.BACK, Answer.number(16), Answer.word("YANDEX")),
+                path);
+    }
+
+    @Test
+    public void writesAnswersAsTheyAreRead() {
+        for (String text : new String[]{"left", "right", "back", "1", "16", "\"yandex\"", "\"\""}) {
+            assertEquals(text, Answer.parse(text).toString());
+        }
+    }
+
+    @Test
+    public void dispatchesOnTheKind() {
+        Answer.Visitor<String> visitor = new Answer.Visitor<String>() {
+            @Override
+            public String left() {
+                return "L";
+            }
+
+            @Override
+            public String right() {
+                return "R";
+            }
+
+            @Override
+            public String back() {
+                return "B";
+            }
+
+            @Override
+            public String number(int number) {
+                return "N" + number;
+            }
+
+            @Override
+            public String word(String word) {
+                return "W" + word;
+            }
+        };
+        StringBuilder given = new StringBuilder();
+        for (Answer answer : RecordedPath.parse(Arrays.asList("left", "right", "back", "7", "\"a b\""))) {
+            given.append(answer.accept(visitor)).append(' ');
+        }
+        assertEquals("L R B N7 Wa b ", given.toString());
+    }
+
+    @Test
+    public void rejectsMalformedAnswers() {
+        assertRejected("Answer 2: Expected left, right, back, a number or a quoted word but found up", "left", "up");
+        assertRejected("Answer 1: Number 17 is not in 1..16", "17");
+        assertRejected("Answer 3: Number 0 is not in 1..16", "left", "", "\"x\"", "0");
+        assertRejected("Answer 1: Expected left, right, back, a number or a quoted word but found \"", "\"");
+        assertRejected("The path has no answers", " ", "");
+    }
+
+    private static void assertRejected(String message, String... lines) {
+        try {
+            RecordedPath.parse(Arrays.asList(lines));
+            fail("Parsed " + Arrays.toString(lines));
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}